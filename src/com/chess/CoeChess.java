@@ -1,12 +1,19 @@
 package com.chess;
 
+import java.io.IOException;
+import java.nio.file.Paths;
+
 import com.chess.engine.board.Board;
+import com.chess.engine.board.PieceSquareTables;
 import com.chess.gui.Table;
 
 public class CoeChess {
 
-	public static void main(String[] args) {
+	public static void main(String[] args) throws IOException {
 		
+		if(args.length > 0) {
+			PieceSquareTables.loadWeights(Paths.get(args[0]));
+		}
 		Board board = Board.createStandardBoard();
 		System.out.println(board);
 		
@@ -0,0 +1,156 @@
+package com.chess.engine.board;
+
+import com.chess.engine.Alliance;
+
+/**
+ * Attack tables and helpers for bitboards, 64 bit sets of tiles where bit i stands for tile
+ * coordinate i, so bit 0 is a8 and bit 63 is h1.
+ */
+public final class BitBoards {
+	
+	public static final long FIRST_COLUMN = toBitBoard(BoardUtils.FIRST_COLUMN);
+	public static final long EIGHTH_COLUMN = toBitBoard(BoardUtils.EIGHTH_COLUMN);
+	public static final long[] COLUMNS = initColumns();
+	public static final long[] ADJACENT_COLUMNS = initAdjacentColumns();
+	
+	private static final long[] KNIGHT_ATTACKS = initLeaperAttacks(new int[][] {
+			{-2, -1}, {-2, 1}, {-1, -2}, {-1, 2}, {1, -2}, {1, 2}, {2, -1}, {2, 1}
+	});
+	private static final long[] KING_ATTACKS = initLeaperAttacks(new int[][] {
+			{-1, -1}, {-1, 0}, {-1, 1}, {0, -1}, {0, 1}, {1, -1}, {1, 0}, {1, 1}
+	});
+	private static final int[][] ROOK_DIRECTIONS = { {-1, 0}, {1, 0}, {0, -1}, {0, 1} };
+	private static final int[][] BISHOP_DIRECTIONS = { {-1, -1}, {-1, 1}, {1, -1}, {1, 1} };
+	
+	private BitBoards() {
+		
+		throw new RuntimeException("Cannot initiate this class");
+	}
+	
+	/**
+	 * Function that turns one of the boolean tile tables of BoardUtils into a bitboard
+	 * @param tiles    a table with one entry per tile coordinate
+	 * @return    the bitboard with a bit set for every true entry
+	 */
+	public static long toBitBoard(final boolean[] tiles) {
+		
+		long bitBoard = 0L;
+		for(int i = 0; i < tiles.length; i++) {
+			if(tiles[i]) {
+				bitBoard |= 1L << i;
+			}
+		}
+		
+		return bitBoard;
+	}
+	
+	public static long knightAttacks(final int coordinate) {
+		
+		return KNIGHT_ATTACKS[coordinate];
+	}
+	
+	public static long kingAttacks(final int coordinate) {
+		
+		return KING_ATTACKS[coordinate];
+	}
+	
+	public static long rookAttacks(final int coordinate, final long occupancy) {
+		
+		return slidingAttacks(coordinate, occupancy, ROOK_DIRECTIONS);
+	}
+	
+	public static long bishopAttacks(final int coordinate, final long occupancy) {
+		
+		return slidingAttacks(coordinate, occupancy, BISHOP_DIRECTIONS);
+	}
+	
+	public static long queenAttacks(final int coordinate, final long occupancy) {
+		
+		return rookAttacks(coordinate, occupancy) | bishopAttacks(coordinate, occupancy);
+	}
+	
+	/**
+	 * Function that returns every tile attacked by a set of pawns
+	 * @param pawns       the bitboard of the pawns
+	 * @param alliance    the color of the pawns
+	 * @return    the union of the tiles the pawns attack
+	 */
+	public static long pawnAttacks(final long pawns, final Alliance alliance) {
+		
+		if(alliance.isWhite()) {
+			return ((pawns & ~FIRST_COLUMN) >>> 9) | ((pawns & ~EIGHTH_COLUMN) >>> 7);
+		}
+		
+		return ((pawns & ~FIRST_COLUMN) << 7) | ((pawns & ~EIGHTH_COLUMN) << 9);
+	}
+	
+	/**
+	 * Function that returns the column of a tile
+	 * @param coordinate    the tile coordinate
+	 * @return    0 for the a-file up to 7 for the h-file
+	 */
+	public static int column(final int coordinate) {
+		
+		return coordinate % BoardUtils.NUM_TILES_PER_ROW;
+	}
+	
+	private static long[] initColumns() {
+		
+		final long[] columns = new long[BoardUtils.NUM_TILES_PER_ROW];
+		for(int i = 0; i < columns.length; i++) {
+			columns[i] = FIRST_COLUMN << i;
+		}
+		
+		return columns;
+	}
+	
+	private static long[] initAdjacentColumns() {
+		
+		final long[] adjacentColumns = new long[BoardUtils.NUM_TILES_PER_ROW];
+		for(int i = 0; i < adjacentColumns.length; i++) {
+			adjacentColumns[i] = (i > 0 ? COLUMNS[i - 1] : 0L) | (i < adjacentColumns.length - 1 ? COLUMNS[i + 1] : 0L);
+		}
+		
+		return adjacentColumns;
+	}
+	
+	private static long slidingAttacks(final int coordinate, final long occupancy, final int[][] directions) {
+		
+		final int row = coordinate / BoardUtils.NUM_TILES_PER_ROW;
+		final int column = coordinate % BoardUtils.NUM_TILES_PER_ROW;
+		long attacks = 0L;
+		for(final int[] direction : directions) {
+			int r = row + direction[0];
+			int c = column + direction[1];
+			while(r >= 0 && r < BoardUtils.NUM_TILES_PER_ROW && c >= 0 && c < BoardUtils.NUM_TILES_PER_ROW) {
+				final long tile = 1L << (r * BoardUtils.NUM_TILES_PER_ROW + c);
+				attacks |= tile;
+				if((occupancy & tile) != 0) {
+					break;
+				}
+				r += direction[0];
+				c += direction[1];
+			}
+		}
+		
+		return attacks;
+	}
+	
+	private static long[] initLeaperAttacks(final int[][] offsets) {
+		
+		final long[] attacks = new long[BoardUtils.NUM_TILES];
+		for(int coordinate = 0; coordinate < BoardUtils.NUM_TILES; coordinate++) {
+			final int row = coordinate / BoardUtils.NUM_TILES_PER_ROW;
+			final int column = coordinate % BoardUtils.NUM_TILES_PER_ROW;
+			for(final int[] offset : offsets) {
+				final int r = row + offset[0];
+				final int c = column + offset[1];
+				if(r >= 0 && r < BoardUtils.NUM_TILES_PER_ROW && c >= 0 && c < BoardUtils.NUM_TILES_PER_ROW) {
+					attacks[coordinate] |= 1L << (r * BoardUtils.NUM_TILES_PER_ROW + c);
+				}
+			}
+		}
+		
+		return attacks;
+	}
+}
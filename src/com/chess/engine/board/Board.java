@@ -14,6 +14,7 @@ import com.chess.engine.pieces.King;
 import com.chess.engine.pieces.Knight;
 import com.chess.engine.pieces.Pawn;
 import com.chess.engine.pieces.Piece;
+import com.chess.engine.pieces.Piece.PieceType;
 import com.chess.engine.pieces.Queen;
 import com.chess.engine.pieces.Rook;
 import com.chess.engine.player.BlackPlayer;
@@ -31,6 +32,17 @@ public class Board {
 	private final Player currentPlayer;
 	
 	private final Pawn enPassantPawn;
+	private final Move transitionMove;
+	private final int halfMoveClock;
+	private final int fullMoveNumber;
+	private final long zobristHash;
+	private final long pawnZobristHash;
+	private final int middlegameScore;
+	private final int endgameScore;
+	private final int phase;
+	private final long[] pieceBitBoards;
+	private final long whiteOccupancy;
+	private final long blackOccupancy;
 	
 	
 	private Board(final Builder builder) {
@@ -39,6 +51,22 @@ public class Board {
 		this.whitePieces = calculateActivePieces(this.gameBoard, Alliance.WHITE);
 		this.blackPieces = calculateActivePieces(this.gameBoard, Alliance.BLACK);
 		this.enPassantPawn = builder.enPassantPawn;
+		this.transitionMove = builder.transitionMove;
+		this.halfMoveClock = builder.halfMoveClock;
+		this.fullMoveNumber = builder.fullMoveNumber;
+		this.pieceBitBoards = calculatePieceBitBoards(this.whitePieces, this.blackPieces);
+		this.whiteOccupancy = calculateOccupancy(this.pieceBitBoards, Alliance.WHITE);
+		this.blackOccupancy = calculateOccupancy(this.pieceBitBoards, Alliance.BLACK);
+		if(builder.hasPieceSquareScores) {
+			this.middlegameScore = builder.middlegameScore;
+			this.endgameScore = builder.endgameScore;
+			this.phase = builder.phase;
+		}
+		else {
+			this.middlegameScore = calculateMiddlegameScore(this.whitePieces) + calculateMiddlegameScore(this.blackPieces);
+			this.endgameScore = calculateEndgameScore(this.whitePieces) + calculateEndgameScore(this.blackPieces);
+			this.phase = calculatePhase(this.whitePieces) + calculatePhase(this.blackPieces);
+		}
 		
 		final Collection<Move> whiteStandardLegalMoves = calculateLegalMoves(this.whitePieces);
 		final Collection<Move> blackStandardLegalMoves = calculateLegalMoves(this.blackPieces);
@@ -46,6 +74,8 @@ public class Board {
 		this.whitePlayer = new WhitePlayer(this, whiteStandardLegalMoves, blackStandardLegalMoves);
 		this.blackPlayer = new BlackPlayer(this, whiteStandardLegalMoves, blackStandardLegalMoves);
 		this.currentPlayer = builder.nextMoveMaker.choosePlayer(this.whitePlayer, this.blackPlayer);
+		this.zobristHash = Zobrist.calculateHash(this);
+		this.pawnZobristHash = Zobrist.calculatePawnHash(this);
 	}
 	
 	@Override
@@ -79,6 +109,97 @@ public class Board {
 		return this.enPassantPawn;
 	}
 	
+	/**
+	 * A function that returns the move this board was made by. The board before it is the board of the move
+	 * @return    the move, or null for boards that were set up rather than moved to
+	 */
+	public Move getTransitionMove() {
+		return this.transitionMove;
+	}
+	
+	/**
+	 * A function that returns the number of half moves since the last capture or pawn move
+	 * @return    the half move clock, as used by the fifty move rule
+	 */
+	public int getHalfMoveClock() {
+		return this.halfMoveClock;
+	}
+	
+	/**
+	 * A function that returns the number of the move being played, starting at 1 and going up after each black move
+	 * @return    the full move number
+	 */
+	public int getFullMoveNumber() {
+		return this.fullMoveNumber;
+	}
+	
+	/**
+	 * A function that returns the Zobrist hash of this position
+	 * @return    a 64 bit key that is equal for boards with the same pieces, castling rights, en passant pawn and side to move
+	 */
+	public long getZobristHash() {
+		return this.zobristHash;
+	}
+	
+	/**
+	 * A function that returns a Zobrist hash of the pawns alone
+	 * @return    a 64 bit key that is equal for boards with the same pawns of each color on the same tiles
+	 */
+	public long getPawnZobristHash() {
+		return this.pawnZobristHash;
+	}
+	
+	/**
+	 * A function that returns the middlegame material and piece-square score, kept up to date as moves are made
+	 * @return    the score from white's point of view
+	 */
+	public int getMiddlegameScore() {
+		return this.middlegameScore;
+	}
+	
+	/**
+	 * A function that returns the endgame material and piece-square score, kept up to date as moves are made
+	 * @return    the score from white's point of view
+	 */
+	public int getEndgameScore() {
+		return this.endgameScore;
+	}
+	
+	/**
+	 * A function that returns the game phase, worked out from the pieces left on the board and kept up to date as moves are made
+	 * @return    PieceSquareTables.MAX_PHASE for a full set of pieces, falling to 0 when only kings and pawns remain
+	 */
+	public int getPhase() {
+		return Math.min(this.phase, PieceSquareTables.MAX_PHASE);
+	}
+	
+	/**
+	 * A function that returns the tiles holding a given kind of piece
+	 * @param pieceType    the type of the pieces
+	 * @param alliance     the color of the pieces
+	 * @return    a bitboard with bit i set when tile i holds such a piece
+	 */
+	public long getPieceBitBoard(final PieceType pieceType, final Alliance alliance) {
+		return this.pieceBitBoards[pieceType.ordinal() + (alliance.isWhite() ? 0 : 6)];
+	}
+	
+	/**
+	 * A function that returns the tiles occupied by the pieces of one color
+	 * @param alliance    the color of the pieces
+	 * @return    a bitboard with bit i set when tile i holds a piece of that color
+	 */
+	public long getOccupancy(final Alliance alliance) {
+		return alliance.isWhite() ? this.whiteOccupancy : this.blackOccupancy;
+	}
+	
+	/**
+	 * A function that returns every occupied tile
+	 * @return    a bitboard with bit i set when tile i holds a piece
+	 */
+	public long getOccupancy() {
+		return this.whiteOccupancy | this.blackOccupancy;
+	}
+	
 	public Collection<Piece> getBlackPieces() {
 		return this.blackPieces;
 	}
@@ -98,6 +219,60 @@ public class Board {
 		return legalMoves;
 	}
 
+	private static long[] calculatePieceBitBoards(final Collection<Piece> whitePieces, final Collection<Piece> blackPieces) {
+		
+		final long[] pieceBitBoards = new long[2 * PieceType.values().length];
+		for(final Piece piece : whitePieces) {
+			pieceBitBoards[Zobrist.pieceIndex(piece)] |= 1L << piece.getPiecePosition();
+		}
+		for(final Piece piece : blackPieces) {
+			pieceBitBoards[Zobrist.pieceIndex(piece)] |= 1L << piece.getPiecePosition();
+		}
+		
+		return pieceBitBoards;
+	}
+	
+	private static long calculateOccupancy(final long[] pieceBitBoards, final Alliance alliance) {
+		
+		final int offset = alliance.isWhite() ? 0 : PieceType.values().length;
+		long occupancy = 0L;
+		for(int i = 0; i < PieceType.values().length; i++) {
+			occupancy |= pieceBitBoards[offset + i];
+		}
+		
+		return occupancy;
+	}
+	
+	private static int calculateMiddlegameScore(final Collection<Piece> pieces) {
+		
+		int score = 0;
+		for(final Piece piece : pieces) {
+			score += PieceSquareTables.middlegameScore(piece);
+		}
+		
+		return score;
+	}
+	
+	private static int calculateEndgameScore(final Collection<Piece> pieces) {
+		
+		int score = 0;
+		for(final Piece piece : pieces) {
+			score += PieceSquareTables.endgameScore(piece);
+		}
+		
+		return score;
+	}
+
+	private static int calculatePhase(final Collection<Piece> pieces) {
+		
+		int phase = 0;
+		for(final Piece piece : pieces) {
+			phase += PieceSquareTables.phaseWeight(piece);
+		}
+		
+		return phase;
+	}
+
 	private static Collection<Piece> calculateActivePieces(final List<Tile> gameBoard, final Alliance alliance) {
 		
 		final List<Piece> activePieces = new ArrayList<>();
@@ -184,6 +359,13 @@ public class Board {
 		Map<Integer, Piece> boardConfig;
 		Alliance nextMoveMaker;
 		Pawn enPassantPawn;
+		Move transitionMove;
+		int halfMoveClock;
+		int fullMoveNumber = 1;
+		boolean hasPieceSquareScores;
+		int middlegameScore;
+		int endgameScore;
+		int phase;
 		
 		public Builder() {
 			this.boardConfig = new HashMap<>();
@@ -207,5 +389,61 @@ public class Board {
 		public void setEnPassantPawn(Pawn enPassantPawn) {
 			this.enPassantPawn = enPassantPawn;
 		}
+		
+		/**
+		 * Function that records the move the board being built is made by, and moves the half move clock
+		 * and full move number on from those of the board the move was made on
+		 * @param transitionMove    the move being made
+		 * @return    this Builder
+		 */
+		public Builder setTransitionMove(final Move transitionMove) {
+			final Board previousBoard = transitionMove.getBoard();
+			this.transitionMove = transitionMove;
+			this.halfMoveClock = transitionMove.isAttack() || transitionMove.getMovedPiece().getPieceType() == PieceType.PAWN ?
+					0 : previousBoard.getHalfMoveClock() + 1;
+			this.fullMoveNumber = previousBoard.getFullMoveNumber() + (previousBoard.currentPlayer().getAlliance().isBlack() ? 1 : 0);
+			return this;
+		}
+		
+		public Builder setHalfMoveClock(final int halfMoveClock) {
+			this.halfMoveClock = halfMoveClock;
+			return this;
+		}
+		
+		public Builder setFullMoveNumber(final int fullMoveNumber) {
+			this.fullMoveNumber = fullMoveNumber;
+			return this;
+		}
+		
+		/**
+		 * Function that updates the piece-square scores and game phase of the board being built from those
+		 * of the board it follows, so they do not have to be recalculated from every piece. The first call starts from
+		 * the scores of the previous board; later calls keep adding to the result.
+		 * @param previousBoard    the board the new board is derived from
+		 * @param removedPiece     a piece of the previous board that is not on the new board, or null
+		 * @param addedPiece       a piece of the new board that was not on the previous board, or null
+		 * @return    this Builder
+		 */
+		public Builder updatePieceSquareScores(final Board previousBoard, final Piece removedPiece, final Piece addedPiece) {
+			
+			if(!this.hasPieceSquareScores) {
+				this.middlegameScore = previousBoard.getMiddlegameScore();
+				this.endgameScore = previousBoard.getEndgameScore();
+				this.phase = previousBoard.phase;
+				this.hasPieceSquareScores = true;
+			}
+			if(removedPiece != null) {
+				this.middlegameScore -= PieceSquareTables.middlegameScore(removedPiece);
+				this.endgameScore -= PieceSquareTables.endgameScore(removedPiece);
+				this.phase -= PieceSquareTables.phaseWeight(removedPiece);
+			}
+			if(addedPiece != null) {
+				this.middlegameScore += PieceSquareTables.middlegameScore(addedPiece);
+				this.endgameScore += PieceSquareTables.endgameScore(addedPiece);
+				this.phase += PieceSquareTables.phaseWeight(addedPiece);
+			}
+			
+			return this;
+		}
 	}
 }
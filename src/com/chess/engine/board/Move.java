@@ -85,6 +85,39 @@ public abstract class Move {
 		return null;
 	}
 	
+	/**
+	 * Function that returns what SAN has to add to the piece letter to tell this move apart from moves of
+	 * other pieces of the same type to the same destination: the file of the moved piece if that is
+	 * enough, otherwise its rank, and otherwise its whole square
+	 * @return    the disambiguation, empty when no other piece of the type can legally reach the destination
+	 */
+	protected String disambiguation() {
+		
+		boolean ambiguous = false;
+		boolean sameFile = false;
+		boolean sameRank = false;
+		final int currentCoordinate = getCurrentCoordinate();
+		for(final Move move : this.board.currentPlayer().getLegalMoves()) {
+			final int otherCoordinate = move.getCurrentCoordinate();
+			if(move.getDestinationCoordinate() == this.destinationCoordinate && otherCoordinate != currentCoordinate &&
+			   move.getMovedPiece().getPieceType() == this.movedPiece.getPieceType() &&
+			   this.board.currentPlayer().makeMove(move).getMoveStatus().isDone()) {
+				ambiguous = true;
+				sameFile |= otherCoordinate % BoardUtils.NUM_TILES_PER_ROW == currentCoordinate % BoardUtils.NUM_TILES_PER_ROW;
+				sameRank |= otherCoordinate / BoardUtils.NUM_TILES_PER_ROW == currentCoordinate / BoardUtils.NUM_TILES_PER_ROW;
+			}
+		}
+		
+		final String position = BoardUtils.getPositionAtCoordinate(currentCoordinate);
+		if(!ambiguous) {
+			return "";
+		}
+		if(!sameFile) {
+			return position.substring(0, 1);
+		}
+		return sameRank ? position : position.substring(1);
+	}
+	
 	public Board execute() {
 		
 		final Builder builder = new Builder();
@@ -100,8 +133,12 @@ public abstract class Move {
 		}
 		
 		//move the moved piece
-		builder.setPiece(this.movedPiece.movePiece(this));
+		final Piece pieceAfterMove = this.movedPiece.movePiece(this);
+		builder.setPiece(pieceAfterMove);
+		builder.updatePieceSquareScores(this.board, this.movedPiece, pieceAfterMove);
+		builder.updatePieceSquareScores(this.board, getAttackedPiece(), null);
 		builder.setMoveMaker(this.board.currentPlayer().getOpponent().getAlliance());
+		builder.setTransitionMove(this);
 		return builder.build();
 	}
 	
@@ -119,7 +156,8 @@ public abstract class Move {
 		
 		@Override
 		public String toString() {
-			return this.movedPiece.getPieceType().toString() + BoardUtils.getPositionAtCoordinate(this.destinationCoordinate);
+			return this.movedPiece.getPieceType().toString() + disambiguation() + "x" +
+					BoardUtils.getPositionAtCoordinate(this.destinationCoordinate);
 		}
 	}
 	
@@ -137,7 +175,7 @@ public abstract class Move {
 		
 		@Override
 		public String toString() {
-			return movedPiece.getPieceType().toString() + BoardUtils.getPositionAtCoordinate(this.destinationCoordinate);
+			return movedPiece.getPieceType().toString() + disambiguation() + BoardUtils.getPositionAtCoordinate(this.destinationCoordinate);
 		}
 
 	}
@@ -245,8 +283,12 @@ public abstract class Move {
 					builder.setPiece(piece);
 				}
 			}
-			builder.setPiece(this.movedPiece.movePiece(this));
+			final Piece pieceAfterMove = this.movedPiece.movePiece(this);
+			builder.setPiece(pieceAfterMove);
+			builder.updatePieceSquareScores(this.board, this.movedPiece, pieceAfterMove);
+			builder.updatePieceSquareScores(this.board, this.getAttackedPiece(), null);
 			builder.setMoveMaker(this.board.currentPlayer().getOpponent().getAlliance());
+			builder.setTransitionMove(this);
 			return builder.build();
 		}
 	}
@@ -285,8 +327,11 @@ public abstract class Move {
 			for(final Piece piece : pawnMovedBoard.currentPlayer().getOpponent().getActivePieces()) {
 				builder.setPiece(piece);
 			}
-			builder.setPiece(this.promotedPawn.getPromotionPiece().movePiece(this));
-			builder.setMoveMaker(pawnMovedBoard.currentPlayer().getOpponent().getAlliance());
+			final Piece promotionPiece = this.promotedPawn.getPromotionPiece().movePiece(this);
+			builder.setPiece(promotionPiece);
+			builder.updatePieceSquareScores(pawnMovedBoard, pawnMovedBoard.getTile(this.destinationCoordinate).getPiece(), promotionPiece);
+			builder.setMoveMaker(pawnMovedBoard.currentPlayer().getAlliance());
+			builder.setTransitionMove(this);
 			
 			return builder.build();
 		}
@@ -303,7 +348,7 @@ public abstract class Move {
 		
 		@Override
 		public String toString() {
-			return "";
+			return this.decoratedMove.toString() + "=" + this.promotedPawn.getPromotionPiece().getPieceType().toString();
 		}
 	}
 	
@@ -329,8 +374,10 @@ public abstract class Move {
 			
 			final Pawn movedPawn = (Pawn)this.movedPiece.movePiece(this);
 			builder.setPiece(movedPawn);
+			builder.updatePieceSquareScores(this.board, this.movedPiece, movedPawn);
 			builder.setEnPassantPawn(movedPawn);
 			builder.setMoveMaker(this.board.currentPlayer().getOpponent().getAlliance());
+			builder.setTransitionMove(this);
 			return builder.build();
 		}
 		
@@ -381,9 +428,14 @@ public abstract class Move {
 				builder.setPiece(piece);
 			}
 			
-			builder.setPiece(this.movedPiece.movePiece(this));
-			builder.setPiece(new Rook(this.castleRookDestination, this.castleRook.getPieceAlliance()));
+			final Piece kingAfterMove = this.movedPiece.movePiece(this);
+			final Rook rookAfterMove = new Rook(this.castleRookDestination, this.castleRook.getPieceAlliance());
+			builder.setPiece(kingAfterMove);
+			builder.setPiece(rookAfterMove);
+			builder.updatePieceSquareScores(this.board, this.movedPiece, kingAfterMove);
+			builder.updatePieceSquareScores(this.board, this.castleRook, rookAfterMove);
 			builder.setMoveMaker(this.board.currentPlayer().getOpponent().getAlliance());
+			builder.setTransitionMove(this);
 			return builder.build();
 		}
 		
@@ -429,7 +481,7 @@ public abstract class Move {
 		
 		@Override
 		public String toString() {
-			return "0-0";
+			return "O-O";
 		}
 
 	}
@@ -453,7 +505,7 @@ public abstract class Move {
 		
 		@Override
 		public String toString() {
-			return "0-0-0";
+			return "O-O-O";
 		}
 
 	}
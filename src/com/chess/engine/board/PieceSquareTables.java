@@ -0,0 +1,358 @@
+package com.chess.engine.board;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import com.chess.engine.pieces.Piece;
+import com.chess.engine.pieces.Piece.PieceType;
+
+/**
+ * Material values and piece-square tables for the middlegame and the endgame. Tables are laid out
+ * the same way as the board, tile 0 being a8, and are written from white's point of view; black
+ * pieces look up the vertically mirrored tile. The king has no material value here, since both
+ * sides always have one.
+ */
+public final class PieceSquareTables {
+	
+	private static final int[] MIDDLEGAME_PAWN = {
+			  0,   0,   0,   0,   0,   0,   0,   0,
+			 50,  50,  50,  50,  50,  50,  50,  50,
+			 10,  10,  20,  30,  30,  20,  10,  10,
+			  5,   5,  10,  25,  25,  10,   5,   5,
+			  0,   0,   0,  20,  20,   0,   0,   0,
+			  5,  -5, -10,   0,   0, -10,  -5,   5,
+			  5,  10,  10, -20, -20,  10,  10,   5,
+			  0,   0,   0,   0,   0,   0,   0,   0
+	};
+	
+	private static final int[] ENDGAME_PAWN = {
+			  0,   0,   0,   0,   0,   0,   0,   0,
+			 80,  80,  80,  80,  80,  80,  80,  80,
+			 50,  50,  50,  50,  50,  50,  50,  50,
+			 30,  30,  30,  30,  30,  30,  30,  30,
+			 20,  20,  20,  20,  20,  20,  20,  20,
+			 10,  10,  10,  10,  10,  10,  10,  10,
+			 10,  10,  10,  10,  10,  10,  10,  10,
+			  0,   0,   0,   0,   0,   0,   0,   0
+	};
+	
+	private static final int[] MIDDLEGAME_KNIGHT = {
+			-50, -40, -30, -30, -30, -30, -40, -50,
+			-40, -20,   0,   0,   0,   0, -20, -40,
+			-30,   0,  10,  15,  15,  10,   0, -30,
+			-30,   5,  15,  20,  20,  15,   5, -30,
+			-30,   0,  15,  20,  20,  15,   0, -30,
+			-30,   5,  10,  15,  15,  10,   5, -30,
+			-40, -20,   0,   5,   5,   0, -20, -40,
+			-50, -40, -30, -30, -30, -30, -40, -50
+	};
+	
+	private static final int[] ENDGAME_KNIGHT = {
+			-50, -40, -30, -30, -30, -30, -40, -50,
+			-40, -20,   0,   0,   0,   0, -20, -40,
+			-30,   0,  10,  15,  15,  10,   0, -30,
+			-30,   5,  15,  20,  20,  15,   5, -30,
+			-30,   0,  15,  20,  20,  15,   0, -30,
+			-30,   5,  10,  15,  15,  10,   5, -30,
+			-40, -20,   0,   5,   5,   0, -20, -40,
+			-50, -40, -30, -30, -30, -30, -40, -50
+	};
+	
+	private static final int[] MIDDLEGAME_BISHOP = {
+			-20, -10, -10, -10, -10, -10, -10, -20,
+			-10,   0,   0,   0,   0,   0,   0, -10,
+			-10,   0,   5,  10,  10,   5,   0, -10,
+			-10,   5,   5,  10,  10,   5,   5, -10,
+			-10,   0,  10,  10,  10,  10,   0, -10,
+			-10,  10,  10,  10,  10,  10,  10, -10,
+			-10,   5,   0,   0,   0,   0,   5, -10,
+			-20, -10, -10, -10, -10, -10, -10, -20
+	};
+	
+	private static final int[] ENDGAME_BISHOP = {
+			-20, -10, -10, -10, -10, -10, -10, -20,
+			-10,   0,   0,   0,   0,   0,   0, -10,
+			-10,   0,   5,  10,  10,   5,   0, -10,
+			-10,   5,   5,  10,  10,   5,   5, -10,
+			-10,   0,  10,  10,  10,  10,   0, -10,
+			-10,  10,  10,  10,  10,  10,  10, -10,
+			-10,   5,   0,   0,   0,   0,   5, -10,
+			-20, -10, -10, -10, -10, -10, -10, -20
+	};
+	
+	private static final int[] MIDDLEGAME_ROOK = {
+			  0,   0,   0,   0,   0,   0,   0,   0,
+			  5,  10,  10,  10,  10,  10,  10,   5,
+			 -5,   0,   0,   0,   0,   0,   0,  -5,
+			 -5,   0,   0,   0,   0,   0,   0,  -5,
+			 -5,   0,   0,   0,   0,   0,   0,  -5,
+			 -5,   0,   0,   0,   0,   0,   0,  -5,
+			 -5,   0,   0,   0,   0,   0,   0,  -5,
+			  0,   0,   0,   5,   5,   0,   0,   0
+	};
+	
+	private static final int[] ENDGAME_ROOK = {
+			  0,   0,   0,   0,   0,   0,   0,   0,
+			  5,  10,  10,  10,  10,  10,  10,   5,
+			  0,   0,   0,   0,   0,   0,   0,   0,
+			  0,   0,   0,   0,   0,   0,   0,   0,
+			  0,   0,   0,   0,   0,   0,   0,   0,
+			  0,   0,   0,   0,   0,   0,   0,   0,
+			  0,   0,   0,   0,   0,   0,   0,   0,
+			  0,   0,   0,   0,   0,   0,   0,   0
+	};
+	
+	private static final int[] MIDDLEGAME_QUEEN = {
+			-20, -10, -10,  -5,  -5, -10, -10, -20,
+			-10,   0,   0,   0,   0,   0,   0, -10,
+			-10,   0,   5,   5,   5,   5,   0, -10,
+			 -5,   0,   5,   5,   5,   5,   0,  -5,
+			  0,   0,   5,   5,   5,   5,   0,  -5,
+			-10,   5,   5,   5,   5,   5,   0, -10,
+			-10,   0,   5,   0,   0,   0,   0, -10,
+			-20, -10, -10,  -5,  -5, -10, -10, -20
+	};
+	
+	private static final int[] ENDGAME_QUEEN = {
+			-20, -10, -10,  -5,  -5, -10, -10, -20,
+			-10,   0,   0,   0,   0,   0,   0, -10,
+			-10,   0,   5,   5,   5,   5,   0, -10,
+			 -5,   0,   5,   5,   5,   5,   0,  -5,
+			 -5,   0,   5,   5,   5,   5,   0,  -5,
+			-10,   0,   5,   5,   5,   5,   0, -10,
+			-10,   0,   0,   0,   0,   0,   0, -10,
+			-20, -10, -10,  -5,  -5, -10, -10, -20
+	};
+	
+	private static final int[] MIDDLEGAME_KING = {
+			-30, -40, -40, -50, -50, -40, -40, -30,
+			-30, -40, -40, -50, -50, -40, -40, -30,
+			-30, -40, -40, -50, -50, -40, -40, -30,
+			-30, -40, -40, -50, -50, -40, -40, -30,
+			-20, -30, -30, -40, -40, -30, -30, -20,
+			-10, -20, -20, -20, -20, -20, -20, -10,
+			 20,  20,   0,   0,   0,   0,  20,  20,
+			 20,  30,  10,   0,   0,  10,  30,  20
+	};
+	
+	private static final int[] ENDGAME_KING = {
+			-50, -40, -30, -20, -20, -30, -40, -50,
+			-30, -20, -10,   0,   0, -10, -20, -30,
+			-30, -10,  20,  30,  30,  20, -10, -30,
+			-30, -10,  30,  40,  40,  30, -10, -30,
+			-30, -10,  30,  40,  40,  30, -10, -30,
+			-30, -10,  20,  30,  30,  20, -10, -30,
+			-30, -30,   0,   0,   0,   0, -30, -30,
+			-50, -30, -30, -30, -30, -30, -30, -50
+	};
+	
+	/** Indexed by PieceType ordinal */
+	private static final int[] MIDDLEGAME_MATERIAL = { 100, 300, 300, 500, 900, 0 };
+	private static final int[] ENDGAME_MATERIAL = { 120, 290, 310, 520, 920, 0 };
+	private static final int[] PHASE_WEIGHTS = { 0, 1, 1, 2, 4, 0 };
+	
+	/** The game phase of the starting position, the phase falls towards 0 as pieces are traded */
+	public static final int MAX_PHASE = 24;
+	
+	private static final int[][] MIDDLEGAME_TABLES = {
+			MIDDLEGAME_PAWN, MIDDLEGAME_KNIGHT, MIDDLEGAME_BISHOP, MIDDLEGAME_ROOK, MIDDLEGAME_QUEEN, MIDDLEGAME_KING
+	};
+	
+	private static final int[][] ENDGAME_TABLES = {
+			ENDGAME_PAWN, ENDGAME_KNIGHT, ENDGAME_BISHOP, ENDGAME_ROOK, ENDGAME_QUEEN, ENDGAME_KING
+	};
+	
+	private PieceSquareTables() {
+		
+		throw new RuntimeException("Cannot initiate this class");
+	}
+	
+	/**
+	 * Function that returns how much a piece counts towards the game phase. Pawns and kings do not count
+	 * @param piece    the piece to weigh
+	 * @return    the phase weight of the piece
+	 */
+	public static int phaseWeight(final Piece piece) {
+		
+		return phaseWeight(piece.getPieceType());
+	}
+	
+	/**
+	 * Function that returns how much a piece type counts towards the game phase
+	 * @param pieceType    the piece type to weigh
+	 * @return    the phase weight of the piece type
+	 */
+	public static int phaseWeight(final PieceType pieceType) {
+		
+		return PHASE_WEIGHTS[pieceType.ordinal()];
+	}
+	
+	/**
+	 * Function that returns the middlegame material and position value of a piece
+	 * @param piece    the piece to score
+	 * @return    the value of the piece, positive for white pieces and negative for black ones
+	 */
+	public static int middlegameScore(final Piece piece) {
+		
+		return score(piece, MIDDLEGAME_MATERIAL, MIDDLEGAME_TABLES);
+	}
+	
+	/**
+	 * Function that returns the endgame material and position value of a piece
+	 * @param piece    the piece to score
+	 * @return    the value of the piece, positive for white pieces and negative for black ones
+	 */
+	public static int endgameScore(final Piece piece) {
+		
+		return score(piece, ENDGAME_MATERIAL, ENDGAME_TABLES);
+	}
+	
+	private static int score(final Piece piece, final int[] material, final int[][] tables) {
+		
+		final int type = piece.getPieceType().ordinal();
+		if(piece.getPieceAlliance().isWhite()) {
+			return material[type] + tables[type][piece.getPiecePosition()];
+		}
+		
+		return -(material[type] + tables[type][mirror(piece.getPiecePosition())]);
+	}
+	
+	/**
+	 * Function that returns a copy of the material values
+	 * @param endgame    whether to return the endgame values rather than the middlegame ones
+	 * @return    the values indexed by PieceType ordinal
+	 */
+	public static int[] getMaterial(final boolean endgame) {
+		
+		return (endgame ? ENDGAME_MATERIAL : MIDDLEGAME_MATERIAL).clone();
+	}
+	
+	/**
+	 * Function that returns a copy of the piece-square table of a piece type
+	 * @param pieceType    the piece type
+	 * @param endgame      whether to return the endgame table rather than the middlegame one
+	 * @return    the table, from white's point of view with tile 0 being a8
+	 */
+	public static int[] getTable(final PieceType pieceType, final boolean endgame) {
+		
+		return (endgame ? ENDGAME_TABLES : MIDDLEGAME_TABLES)[pieceType.ordinal()].clone();
+	}
+	
+	public static void setMaterial(final boolean endgame, final int[] material) {
+		
+		copyInto(material, endgame ? ENDGAME_MATERIAL : MIDDLEGAME_MATERIAL);
+	}
+	
+	public static void setTable(final PieceType pieceType, final boolean endgame, final int[] table) {
+		
+		copyInto(table, (endgame ? ENDGAME_TABLES : MIDDLEGAME_TABLES)[pieceType.ordinal()]);
+	}
+	
+	/**
+	 * Function that replaces the material values and tables with those of a weights file, such as one
+	 * written by saveWeights or the TexelTuner. Each line holds the name of a table followed by its values;
+	 * lines starting with # are skipped and tables that are not in the file keep their values. Boards keep
+	 * the scores they were built with, so weights have to be loaded before the first board is made
+	 * @param file    the weights file
+	 * @throws IOException    if the file cannot be read or holds an unknown table or the wrong number of values
+	 */
+	public static void loadWeights(final Path file) throws IOException {
+		
+		try(final BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.US_ASCII)) {
+			String line;
+			while((line = reader.readLine()) != null) {
+				line = line.trim();
+				if(line.isEmpty() || line.startsWith("#")) {
+					continue;
+				}
+				final String[] tokens = line.split("\\s+");
+				final int[] target = weightsNamed(tokens[0]);
+				if(target == null) {
+					throw new IOException("Unknown weights " + tokens[0]);
+				}
+				if(tokens.length - 1 != target.length) {
+					throw new IOException("Expected " + target.length + " values for " + tokens[0]);
+				}
+				final int[] values = new int[target.length];
+				try {
+					for(int i = 0; i < values.length; i++) {
+						values[i] = Integer.parseInt(tokens[i + 1]);
+					}
+				}
+				catch(final NumberFormatException e) {
+					throw new IOException("Bad value for " + tokens[0], e);
+				}
+				copyInto(values, target);
+			}
+		}
+	}
+	
+	/**
+	 * Function that writes the current material values and tables in the format read by loadWeights
+	 * @param file    the file to write
+	 * @throws IOException    if the file cannot be written
+	 */
+	public static void saveWeights(final Path file) throws IOException {
+		
+		try(final BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.US_ASCII)) {
+			writeWeights(writer, "MIDDLEGAME_MATERIAL", MIDDLEGAME_MATERIAL);
+			writeWeights(writer, "ENDGAME_MATERIAL", ENDGAME_MATERIAL);
+			for(final PieceType pieceType : PieceType.values()) {
+				writeWeights(writer, "MIDDLEGAME_" + pieceType.name(), MIDDLEGAME_TABLES[pieceType.ordinal()]);
+				writeWeights(writer, "ENDGAME_" + pieceType.name(), ENDGAME_TABLES[pieceType.ordinal()]);
+			}
+		}
+	}
+	
+	private static int[] weightsNamed(final String name) {
+		
+		if(name.equals("MIDDLEGAME_MATERIAL")) {
+			return MIDDLEGAME_MATERIAL;
+		}
+		if(name.equals("ENDGAME_MATERIAL")) {
+			return ENDGAME_MATERIAL;
+		}
+		for(final PieceType pieceType : PieceType.values()) {
+			if(name.equals("MIDDLEGAME_" + pieceType.name())) {
+				return MIDDLEGAME_TABLES[pieceType.ordinal()];
+			}
+			if(name.equals("ENDGAME_" + pieceType.name())) {
+				return ENDGAME_TABLES[pieceType.ordinal()];
+			}
+		}
+		
+		return null;
+	}
+	
+	private static void writeWeights(final BufferedWriter writer, final String name, final int[] values) throws IOException {
+		
+		writer.write(name);
+		for(final int value : values) {
+			writer.write(' ');
+			writer.write(Integer.toString(value));
+		}
+		writer.newLine();
+	}
+	
+	private static void copyInto(final int[] source, final int[] target) {
+		
+		if(source.length != target.length) {
+			throw new IllegalArgumentException("Expected " + target.length + " values, got " + source.length);
+		}
+		System.arraycopy(source, 0, target, 0, target.length);
+	}
+	
+	/**
+	 * Function that flips a tile coordinate vertically, turning a8 into a1 and so on
+	 * @param coordinate    the coordinate to flip
+	 * @return    the coordinate of the same file on the opposite rank
+	 */
+	public static int mirror(final int coordinate) {
+		
+		return coordinate ^ 56;
+	}
+}
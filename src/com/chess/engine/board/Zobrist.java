@@ -0,0 +1,127 @@
+package com.chess.engine.board;
+
+import java.util.Random;
+
+import com.chess.engine.Alliance;
+import com.chess.engine.pieces.Piece;
+import com.chess.engine.pieces.Piece.PieceType;
+
+/**
+ * Random keys used to give every position a 64 bit hash. The keys come from a fixed seed so hashes
+ * are the same from one run to the next.
+ */
+public final class Zobrist {
+	
+	private static final long[][] PIECE_KEYS = new long[12][BoardUtils.NUM_TILES];
+	private static final long[] CASTLING_KEYS = new long[4];
+	private static final long[] EN_PASSANT_KEYS = new long[BoardUtils.NUM_TILES_PER_ROW];
+	private static final long BLACK_TO_MOVE_KEY;
+	
+	static {
+		final Random random = new Random(0x5EED_C0E_C4E55L);
+		for(final long[] pieceKeys : PIECE_KEYS) {
+			for(int i = 0; i < pieceKeys.length; i++) {
+				pieceKeys[i] = random.nextLong();
+			}
+		}
+		for(int i = 0; i < CASTLING_KEYS.length; i++) {
+			CASTLING_KEYS[i] = random.nextLong();
+		}
+		for(int i = 0; i < EN_PASSANT_KEYS.length; i++) {
+			EN_PASSANT_KEYS[i] = random.nextLong();
+		}
+		BLACK_TO_MOVE_KEY = random.nextLong();
+	}
+	
+	private Zobrist() {
+		
+		throw new RuntimeException("Cannot initiate this class");
+	}
+	
+	public static long pieceKey(final Piece piece) {
+		
+		return PIECE_KEYS[pieceIndex(piece)][piece.getPiecePosition()];
+	}
+	
+	/**
+	 * Function that returns a number from 0 to 11 identifying the type and color of a piece
+	 * @param piece    the piece to index
+	 * @return    the piece type ordinal for white pieces, shifted by six for black ones
+	 */
+	public static int pieceIndex(final Piece piece) {
+		
+		return piece.getPieceType().ordinal() + (piece.getPieceAlliance().isWhite() ? 0 : 6);
+	}
+	
+	/**
+	 * Function that hashes the pawns of a position and nothing else, for tables of pawn structure scores
+	 * @param board    the board to hash
+	 * @return    the 64 bit Zobrist key of the pawns of both sides
+	 */
+	static long calculatePawnHash(final Board board) {
+		
+		long hash = 0;
+		for(final Alliance alliance : Alliance.values()) {
+			final int pieceIndex = PieceType.PAWN.ordinal() + (alliance.isWhite() ? 0 : 6);
+			long pawns = board.getPieceBitBoard(PieceType.PAWN, alliance);
+			while(pawns != 0) {
+				hash ^= PIECE_KEYS[pieceIndex][Long.numberOfTrailingZeros(pawns)];
+				pawns &= pawns - 1;
+			}
+		}
+		
+		return hash;
+	}
+	
+	/**
+	 * Function that hashes a whole position
+	 * @param board    the board to hash
+	 * @return    the 64 bit Zobrist key of the position
+	 */
+	static long calculateHash(final Board board) {
+		
+		long hash = 0;
+		for(final Piece piece : board.getWhitePieces()) {
+			hash ^= pieceKey(piece);
+		}
+		for(final Piece piece : board.getBlackPieces()) {
+			hash ^= pieceKey(piece);
+		}
+		if(hasCastlingRight(board, 60, 63)) {
+			hash ^= CASTLING_KEYS[0];
+		}
+		if(hasCastlingRight(board, 60, 56)) {
+			hash ^= CASTLING_KEYS[1];
+		}
+		if(hasCastlingRight(board, 4, 7)) {
+			hash ^= CASTLING_KEYS[2];
+		}
+		if(hasCastlingRight(board, 4, 0)) {
+			hash ^= CASTLING_KEYS[3];
+		}
+		if(board.getEnPassantPawn() != null) {
+			hash ^= EN_PASSANT_KEYS[board.getEnPassantPawn().getPiecePosition() % BoardUtils.NUM_TILES_PER_ROW];
+		}
+		if(board.currentPlayer().getAlliance() == Alliance.BLACK) {
+			hash ^= BLACK_TO_MOVE_KEY;
+		}
+		
+		return hash;
+	}
+	
+	/**
+	 * Helper function that tells us if a king and rook are both still on their starting squares and unmoved
+	 * @param board                the board to check
+	 * @param kingCoordinate       the starting square of the king
+	 * @param rookCoordinate       the starting square of the rook
+	 * @return    true if castling on that side is still possible later in the game
+	 */
+	public static boolean hasCastlingRight(final Board board, final int kingCoordinate, final int rookCoordinate) {
+		
+		final Tile kingTile = board.getTile(kingCoordinate);
+		final Tile rookTile = board.getTile(rookCoordinate);
+		return kingTile.isTileOccupied() && kingTile.getPiece().getPieceType().isKing() && kingTile.getPiece().isFirstMove() &&
+			   rookTile.isTileOccupied() && rookTile.getPiece().getPieceType().isRook() && rookTile.getPiece().isFirstMove() &&
+			   kingTile.getPiece().getPieceAlliance() == rookTile.getPiece().getPieceAlliance();
+	}
+}
@@ -0,0 +1,48 @@
+package com.chess.engine.player.ai;
+
+import java.util.List;
+
+import com.chess.engine.board.Move;
+
+/**
+ * One ranked candidate of a multi-PV search: a root move together with its score and the line the
+ * search expects to follow it.
+ */
+public final class AnalysisLine {
+
+	private final int depth;
+	private final int score;
+	private final List<Move> principalVariation;
+	
+	public AnalysisLine(final int depth, final int score, final List<Move> principalVariation) {
+		
+		this.depth = depth;
+		this.score = score;
+		this.principalVariation = principalVariation;
+	}
+	
+	@Override
+	public String toString() {
+		return getMove() + " (" + this.score + " at depth " + this.depth + ") " + this.principalVariation;
+	}
+	
+	public Move getMove() {
+		return this.principalVariation.get(0);
+	}
+	
+	public int getDepth() {
+		return this.depth;
+	}
+	
+	/**
+	 * A function that returns the score of the line from white's point of view
+	 * @return    the score in centipawns, positive when white is better
+	 */
+	public int getScore() {
+		return this.score;
+	}
+	
+	public List<Move> getPrincipalVariation() {
+		return this.principalVariation;
+	}
+}
@@ -0,0 +1,157 @@
+package com.chess.engine.player.ai;
+
+import com.chess.engine.Alliance;
+import com.chess.engine.board.BitBoards;
+import com.chess.engine.board.Board;
+import com.chess.engine.board.BoardUtils;
+import com.chess.engine.pieces.Piece;
+import com.chess.engine.pieces.Piece.PieceType;
+
+/**
+ * The attack masks of every piece on a board, worked out once per evaluation from the board's bitboards
+ * so that the evaluation terms which need them do not have to generate moves.
+ */
+public final class AttackInfo {
+	
+	private final long occupancy;
+	private final long[] pieceAttacks;
+	private final long whitePawnAttacks;
+	private final long blackPawnAttacks;
+	private final long whiteAttacks;
+	private final long blackAttacks;
+	private final long whiteSafeSquares;
+	private final long blackSafeSquares;
+	private final int whiteMobility;
+	private final int blackMobility;
+	
+	public AttackInfo(final Board board) {
+		
+		this.occupancy = board.getOccupancy();
+		this.pieceAttacks = new long[BoardUtils.NUM_TILES];
+		this.whitePawnAttacks = BitBoards.pawnAttacks(board.getPieceBitBoard(PieceType.PAWN, Alliance.WHITE), Alliance.WHITE);
+		this.blackPawnAttacks = BitBoards.pawnAttacks(board.getPieceBitBoard(PieceType.PAWN, Alliance.BLACK), Alliance.BLACK);
+		this.whiteAttacks = calculatePieceAttacks(board, Alliance.WHITE) | this.whitePawnAttacks;
+		this.blackAttacks = calculatePieceAttacks(board, Alliance.BLACK) | this.blackPawnAttacks;
+		this.whiteSafeSquares = ~board.getOccupancy(Alliance.WHITE) & ~this.blackPawnAttacks;
+		this.blackSafeSquares = ~board.getOccupancy(Alliance.BLACK) & ~this.whitePawnAttacks;
+		this.whiteMobility = calculateMobility(board, Alliance.WHITE, this.whiteSafeSquares);
+		this.blackMobility = calculateMobility(board, Alliance.BLACK, this.blackSafeSquares);
+	}
+	
+	/**
+	 * Function that returns the tiles attacked by the piece on a tile. Pawns are only kept as a
+	 * set, see getPawnAttacks
+	 * @param coordinate    the tile of the piece
+	 * @return    the attacked tiles, or 0 for empty tiles and pawns
+	 */
+	public long getAttacks(final int coordinate) {
+		
+		return this.pieceAttacks[coordinate];
+	}
+	
+	/**
+	 * Function that returns every tile attacked by one side, pawns included
+	 * @param alliance    the attacking side
+	 * @return    the union of the attacked tiles
+	 */
+	public long getAttacks(final Alliance alliance) {
+		
+		return alliance.isWhite() ? this.whiteAttacks : this.blackAttacks;
+	}
+	
+	public long getPawnAttacks(final Alliance alliance) {
+		
+		return alliance.isWhite() ? this.whitePawnAttacks : this.blackPawnAttacks;
+	}
+	
+	public long getOccupancy() {
+		
+		return this.occupancy;
+	}
+	
+	/**
+	 * Function that returns the mobility of one side: the number of tiles its knights, bishops, rooks and
+	 * queens attack that are neither occupied by its own pieces nor attacked by enemy pawns
+	 * @param alliance    the side to count
+	 * @return    the summed mobility of the side's pieces
+	 */
+	public int getMobility(final Alliance alliance) {
+		
+		return alliance.isWhite() ? this.whiteMobility : this.blackMobility;
+	}
+	
+	/**
+	 * Function that returns the share of a single piece in its side's mobility. It is only worked out when
+	 * asked for, since the evaluation itself needs no more than the totals
+	 * @param piece    a piece on the board this was computed from
+	 * @return    the number of safe tiles the piece attacks
+	 */
+	public int getMobility(final Piece piece) {
+		
+		if(!countsForMobility(piece.getPieceType())) {
+			return 0;
+		}
+		final long safeSquares = piece.getPieceAlliance().isWhite() ? this.whiteSafeSquares : this.blackSafeSquares;
+		
+		return Long.bitCount(this.pieceAttacks[piece.getPiecePosition()] & safeSquares);
+	}
+	
+	private long calculatePieceAttacks(final Board board, final Alliance alliance) {
+		
+		long attacks = 0L;
+		for(final PieceType pieceType : PieceType.values()) {
+			if(pieceType == PieceType.PAWN) {
+				continue;
+			}
+			long pieces = board.getPieceBitBoard(pieceType, alliance);
+			while(pieces != 0) {
+				final int coordinate = Long.numberOfTrailingZeros(pieces);
+				this.pieceAttacks[coordinate] = attacksFrom(pieceType, coordinate, this.occupancy);
+				attacks |= this.pieceAttacks[coordinate];
+				pieces &= pieces - 1;
+			}
+		}
+		
+		return attacks;
+	}
+	
+	private int calculateMobility(final Board board, final Alliance alliance, final long safeSquares) {
+		
+		int mobility = 0;
+		for(final PieceType pieceType : PieceType.values()) {
+			if(!countsForMobility(pieceType)) {
+				continue;
+			}
+			long pieces = board.getPieceBitBoard(pieceType, alliance);
+			while(pieces != 0) {
+				mobility += Long.bitCount(this.pieceAttacks[Long.numberOfTrailingZeros(pieces)] & safeSquares);
+				pieces &= pieces - 1;
+			}
+		}
+		
+		return mobility;
+	}
+	
+	private static boolean countsForMobility(final PieceType pieceType) {
+		
+		return pieceType != PieceType.PAWN && pieceType != PieceType.KING;
+	}
+	
+	private static long attacksFrom(final PieceType pieceType, final int coordinate, final long occupancy) {
+		
+		switch(pieceType) {
+			case KNIGHT:
+				return BitBoards.knightAttacks(coordinate);
+			case BISHOP:
+				return BitBoards.bishopAttacks(coordinate, occupancy);
+			case ROOK:
+				return BitBoards.rookAttacks(coordinate, occupancy);
+			case QUEEN:
+				return BitBoards.queenAttacks(coordinate, occupancy);
+			case KING:
+				return BitBoards.kingAttacks(coordinate);
+			default:
+				return 0L;
+		}
+	}
+}
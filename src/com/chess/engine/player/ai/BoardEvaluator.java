@@ -5,4 +5,32 @@ import com.chess.engine.board.Board;
 public interface BoardEvaluator {
 
 	int evaluate(final Board board, final int depth);
+	
+	/**
+	 * Function that evaluates a board for a search that only needs to know the score when it falls within
+	 * a window. Evaluators may skip their more expensive terms and return a rough score once it is clear
+	 * that the score will land well outside the window
+	 * @param board    the board to evaluate
+	 * @param depth    the remaining search depth
+	 * @param alpha    the score white is already sure of
+	 * @param beta     the score black is already sure of
+	 * @return    the score, which is only exact when it lies between alpha and beta
+	 */
+	default int evaluate(final Board board, final int depth, final int alpha, final int beta) {
+		
+		return evaluate(board, depth);
+	}
+	
+	/**
+	 * Function that returns the part of evaluate that depends on the search depth, such as a bonus for
+	 * mating sooner. Whatever remains of evaluate once this is taken off must be the same at every depth,
+	 * which is what lets a CachingBoardEvaluator reuse it
+	 * @param board    the board being evaluated
+	 * @param depth    the remaining search depth
+	 * @return    the depth dependent share of the score, 0 unless overridden
+	 */
+	default int depthAdjustment(final Board board, final int depth) {
+		
+		return 0;
+	}
 }
@@ -0,0 +1,66 @@
+package com.chess.engine.player.ai;
+
+import java.util.Random;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.Move;
+
+/**
+ * A strategy that plays from an opening book while the position is in it and leaves every other
+ * position to the strategy it wraps.
+ */
+public final class BookMoveStrategy implements MoveStrategy {
+	
+	private final PolyglotBook book;
+	private final MoveStrategy searchStrategy;
+	private final Random random;
+	private boolean bookMovePlayed;
+	
+	/**
+	 * Constructor for BookMoveStrategy
+	 * @param book              the opening book, which stays open as long as the strategy is used
+	 * @param searchStrategy    the strategy for positions that are not in the book
+	 */
+	public BookMoveStrategy(final PolyglotBook book, final MoveStrategy searchStrategy) {
+		this(book, searchStrategy, new Random());
+	}
+	
+	/**
+	 * Constructor for BookMoveStrategy
+	 * @param book              the opening book, which stays open as long as the strategy is used
+	 * @param searchStrategy    the strategy for positions that are not in the book
+	 * @param random            the source of randomness for choosing between book moves
+	 */
+	public BookMoveStrategy(final PolyglotBook book, final MoveStrategy searchStrategy, final Random random) {
+		this.book = book;
+		this.searchStrategy = searchStrategy;
+		this.random = random;
+	}
+	
+	@Override
+	public Move execute(final Board board) {
+		
+		final Move bookMove = this.book.chooseMove(board, this.random);
+		this.bookMovePlayed = bookMove != Move.NULL_MOVE;
+		if(this.bookMovePlayed) {
+			return bookMove;
+		}
+		
+		return this.searchStrategy.execute(board);
+	}
+	
+	@Override
+	public void stop() {
+		this.searchStrategy.stop();
+	}
+	
+	@Override
+	public void setSearchListener(final SearchListener searchListener) {
+		this.searchStrategy.setSearchListener(searchListener);
+	}
+	
+	@Override
+	public long getNumNodesSearched() {
+		return this.bookMovePlayed ? 0 : this.searchStrategy.getNumNodesSearched();
+	}
+}
@@ -0,0 +1,135 @@
+package com.chess.engine.player.ai;
+
+import java.util.Arrays;
+
+import com.chess.engine.board.Board;
+
+/**
+ * BoardEvaluator that remembers the scores of another evaluator by Zobrist hash. Each entry is a
+ * single long holding the upper half of the key and the score, so entries are written and read
+ * without locking and a reader never sees half of one entry and half of another. The depth
+ * dependent part of a score is left out of the entry and added back on every lookup.
+ */
+public final class CachingBoardEvaluator implements BoardEvaluator {
+	
+	private static final int BYTES_PER_ENTRY = 8;
+	
+	private final BoardEvaluator boardEvaluator;
+	private final long[] entries;
+	private final int mask;
+	private long hits;
+	private long misses;
+	
+	/**
+	 * Constructor for CachingBoardEvaluator
+	 * @param boardEvaluator     the evaluator to cache
+	 * @param sizeInMegabytes    the memory to use, rounded down to a power of two number of entries
+	 */
+	public CachingBoardEvaluator(final BoardEvaluator boardEvaluator, final int sizeInMegabytes) {
+		
+		this(boardEvaluator, new long[Integer.highestOneBit(Math.max(1, (int)(((long) sizeInMegabytes << 20) / BYTES_PER_ENTRY)))]);
+	}
+	
+	private CachingBoardEvaluator(final BoardEvaluator boardEvaluator, final long[] entries) {
+		
+		this.boardEvaluator = boardEvaluator;
+		this.entries = entries;
+		this.mask = entries.length - 1;
+	}
+	
+	/**
+	 * Function that makes a cache in front of another evaluator that shares this cache's entries. It is for
+	 * evaluators that keep per search state, such as the NeuralBoardEvaluator: each search gets its own
+	 * evaluator while all of them keep their scores in one place. Both evaluators must score alike
+	 * @param boardEvaluator    the evaluator to cache
+	 * @return    the cache, with its own counters
+	 */
+	public CachingBoardEvaluator withEvaluator(final BoardEvaluator boardEvaluator) {
+		
+		return new CachingBoardEvaluator(boardEvaluator, this.entries);
+	}
+	
+	@Override
+	public int evaluate(final Board board, final int depth) {
+		
+		final long key = board.getZobristHash();
+		final int index = (int) key & this.mask;
+		final long entry = this.entries[index];
+		if(entry != 0 && (entry >>> 32) == (key >>> 32)) {
+			this.hits++;
+			return (int) entry + this.boardEvaluator.depthAdjustment(board, depth);
+		}
+		
+		this.misses++;
+		final int score = this.boardEvaluator.evaluate(board, depth);
+		store(index, key, score - this.boardEvaluator.depthAdjustment(board, depth));
+		
+		return score;
+	}
+	
+	/**
+	 * Function that evaluates a board, letting the cached evaluator cut its work short outside the window.
+	 * Only scores inside the window are kept, since those outside it may be rough
+	 */
+	@Override
+	public int evaluate(final Board board, final int depth, final int alpha, final int beta) {
+		
+		final long key = board.getZobristHash();
+		final int index = (int) key & this.mask;
+		final long entry = this.entries[index];
+		if(entry != 0 && (entry >>> 32) == (key >>> 32)) {
+			this.hits++;
+			return (int) entry + this.boardEvaluator.depthAdjustment(board, depth);
+		}
+		
+		this.misses++;
+		final int score = this.boardEvaluator.evaluate(board, depth, alpha, beta);
+		if(score > alpha && score < beta) {
+			store(index, key, score - this.boardEvaluator.depthAdjustment(board, depth));
+		}
+		
+		return score;
+	}
+	
+	@Override
+	public int depthAdjustment(final Board board, final int depth) {
+		
+		return this.boardEvaluator.depthAdjustment(board, depth);
+	}
+	
+	private void store(final int index, final long key, final int score) {
+		
+		this.entries[index] = (key & 0xFFFFFFFF00000000L) | (score & 0xFFFFFFFFL);
+	}
+	
+	/**
+	 * Function that empties the cache and resets its counters
+	 */
+	public void clear() {
+		
+		Arrays.fill(this.entries, 0L);
+		this.hits = 0;
+		this.misses = 0;
+	}
+	
+	/**
+	 * Function that returns how many evaluations were answered from the cache. The counters are not
+	 * synchronized, so they are only approximate when several threads share the cache
+	 * @return    the number of hits since creation or the last clear
+	 */
+	public long getHits() {
+		
+		return this.hits;
+	}
+	
+	public long getMisses() {
+		
+		return this.misses;
+	}
+	
+	public double getHitRate() {
+		
+		final long lookups = this.hits + this.misses;
+		return lookups == 0 ? 0 : (double) this.hits / lookups;
+	}
+}
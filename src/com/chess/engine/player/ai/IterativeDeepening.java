@@ -0,0 +1,537 @@
+package com.chess.engine.player.ai;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.Move;
+import com.chess.engine.player.MoveTransition;
+
+/**
+ * Alpha-beta search driven by iterative deepening. Every node is searched as a principal variation
+ * search: the first move gets the full window and the remaining moves get a null window, with a
+ * re-search when one of them turns out to be better. Each iteration opens with an aspiration window
+ * around the score of the previous iteration.
+ *
+ * Results are kept in a transposition table that may be shared with other searches. A search can be
+ * limited by depth, by time, or both, and can be started in ponder mode: it then runs without a time
+ * limit until ponderHit() starts the clock or stop() abandons it.
+ *
+ * In multi-PV mode every iteration searches the root once per requested line, each time excluding the
+ * root moves of the lines already found, so the result is the best few moves ranked by score. The
+ * searches share the transposition table, which makes the extra lines much cheaper than separate runs.
+ */
+public class IterativeDeepening implements MoveStrategy {
+
+	private static final int INFINITY = Integer.MAX_VALUE / 2;
+	private static final int ASPIRATION_WINDOW = 50;
+	private static final int MAX_PLY = 64;
+	private static final int STOP_CHECK_INTERVAL_MASK = 31;
+	private static final int DEFAULT_TABLE_SIZE_MB = 16;
+	private static final int DEFAULT_EVALUATION_CACHE_SIZE_MB = 4;
+
+	private final BoardEvaluator boardEvaluator;
+	private final TranspositionTable transpositionTable;
+	private final int searchDepth;
+	private final long moveTimeMillis;
+	private final Move[][] pvTable;
+	private final int[] pvLength;
+	private final Collection<Move> excludedRootMoves;
+	private List<Move> principalVariation;
+	private List<AnalysisLine> analysisLines;
+	private int multiPV;
+	private long nodesSearched;
+	private int selectiveDepth;
+	private SearchListener searchListener;
+	private volatile boolean stopRequested;
+	private boolean stopped;
+	private volatile boolean pondering;
+	private volatile long deadline;
+
+	public IterativeDeepening(final int searchDepth) {
+		this(searchDepth, 0, new TranspositionTable(DEFAULT_TABLE_SIZE_MB),
+			 new CachingBoardEvaluator(new StandardBoardEvaluator(), DEFAULT_EVALUATION_CACHE_SIZE_MB));
+	}
+
+	/**
+	 * Constructor for IterativeDeepening
+	 * @param searchDepth           the deepest iteration to search
+	 * @param moveTimeMillis        the time budget per move, or 0 to search until searchDepth is reached
+	 * @param transpositionTable    the table to store results in, possibly shared with other searches
+	 */
+	public IterativeDeepening(final int searchDepth,
+							  final long moveTimeMillis,
+							  final TranspositionTable transpositionTable) {
+		this(searchDepth, moveTimeMillis, transpositionTable, new StandardBoardEvaluator());
+	}
+
+	/**
+	 * Constructor for IterativeDeepening
+	 * @param searchDepth           the deepest iteration to search
+	 * @param moveTimeMillis        the time budget per move, or 0 to search until searchDepth is reached
+	 * @param transpositionTable    the table to store results in, possibly shared with other searches
+	 * @param boardEvaluator        the evaluator to score leaves with, used as it is; a CachingBoardEvaluator
+	 *                              around it keeps its scores and can be shared with other searches
+	 */
+	public IterativeDeepening(final int searchDepth,
+							  final long moveTimeMillis,
+							  final TranspositionTable transpositionTable,
+							  final BoardEvaluator boardEvaluator) {
+		this.boardEvaluator = boardEvaluator;
+		this.transpositionTable = transpositionTable;
+		this.searchDepth = Math.min(searchDepth, MAX_PLY - 1);
+		this.moveTimeMillis = moveTimeMillis;
+		this.pvTable = new Move[MAX_PLY][MAX_PLY];
+		this.pvLength = new int[MAX_PLY];
+		this.excludedRootMoves = new HashSet<>();
+		this.principalVariation = Collections.emptyList();
+		this.analysisLines = Collections.emptyList();
+		this.multiPV = 1;
+	}
+
+	@Override
+	public String toString() {
+		return "IterativeDeepening";
+	}
+
+	@Override
+	public void stop() {
+		this.stopRequested = true;
+	}
+
+	@Override
+	public void setSearchListener(final SearchListener searchListener) {
+		this.searchListener = searchListener;
+	}
+
+	/**
+	 * Function that puts the next search in ponder mode, where the time budget does not run
+	 * until ponderHit() is called
+	 * @param pondering    true to ponder
+	 */
+	public void setPondering(final boolean pondering) {
+		this.pondering = pondering;
+	}
+
+	public boolean isPondering() {
+		return this.pondering;
+	}
+
+	/**
+	 * Function called when the opponent played the move that is being pondered on. The running search
+	 * carries on as a normal search, with the full time budget counted from now.
+	 */
+	public void ponderHit() {
+		this.deadline = calculateDeadline(System.currentTimeMillis());
+		this.pondering = false;
+	}
+
+	/**
+	 * A function that returns the principal variation of the last completed iteration
+	 * @return    the expected line of play, starting with the move returned by execute
+	 */
+	public List<Move> getPrincipalVariation() {
+		return this.principalVariation;
+	}
+
+	/**
+	 * Function that sets how many root moves the following searches rank
+	 * @param multiPV    the number of lines to search, 1 for a normal search
+	 */
+	public void setMultiPV(final int multiPV) {
+		this.multiPV = Math.max(1, multiPV);
+	}
+
+	/**
+	 * A function that returns the ranked lines of the last completed iteration
+	 * @return    up to multiPV lines, best first
+	 */
+	public List<AnalysisLine> getAnalysisLines() {
+		return this.analysisLines;
+	}
+
+	@Override
+	public long getNumNodesSearched() {
+		return this.nodesSearched;
+	}
+
+	@Override
+	public Move execute(final Board board) {
+
+		final long startTime = System.currentTimeMillis();
+		this.nodesSearched = 0;
+		this.selectiveDepth = 0;
+		this.principalVariation = Collections.emptyList();
+		this.analysisLines = Collections.emptyList();
+		this.stopRequested = false;
+		this.stopped = false;
+		this.deadline = this.pondering ? Long.MAX_VALUE : calculateDeadline(startTime);
+
+		Move bestMove = Move.NULL_MOVE;
+
+		for(int depth = 1; depth <= this.searchDepth; depth++) {
+
+			final List<AnalysisLine> lines = new ArrayList<>(this.multiPV);
+			this.excludedRootMoves.clear();
+			for(int lineIndex = 0; lineIndex < this.multiPV; lineIndex++) {
+
+				final AnalysisLine previousLine = lineIndex < this.analysisLines.size() ? this.analysisLines.get(lineIndex) : null;
+				this.principalVariation = previousLine != null ? previousLine.getPrincipalVariation() : Collections.emptyList();
+				final int score = aspirationSearch(board, depth, previousLine);
+				if(this.stopped || this.pvLength[0] == 0) {
+					break;
+				}
+
+				final AnalysisLine line = new AnalysisLine(depth, score, extractPrincipalVariation());
+				lines.add(line);
+				this.excludedRootMoves.add(line.getMove());
+
+				if(this.searchListener != null) {
+					this.searchListener.iterationCompleted(new SearchInfo(depth, lineIndex + 1, this.selectiveDepth, score,
+							this.nodesSearched, System.currentTimeMillis() - startTime, this.transpositionTable.hashFull(),
+							line.getPrincipalVariation()));
+				}
+			}
+
+			if(this.stopped) {
+				this.principalVariation = this.analysisLines.isEmpty() ? Collections.emptyList() :
+										  this.analysisLines.get(0).getPrincipalVariation();
+				if(bestMove == Move.NULL_MOVE) {
+					bestMove = !lines.isEmpty() ? lines.get(0).getMove() :
+							   this.pvLength[0] > 0 ? this.pvTable[0][0] : firstLegalMove(board);
+				}
+				break;
+			}
+
+			if(lines.isEmpty()) {
+				break;
+			}
+
+			this.analysisLines = Collections.unmodifiableList(lines);
+			this.principalVariation = lines.get(0).getPrincipalVariation();
+			bestMove = lines.get(0).getMove();
+		}
+
+		this.excludedRootMoves.clear();
+		return bestMove;
+	}
+
+	/**
+	 * Helper function that searches the root inside an aspiration window around the score the line had
+	 * in the previous iteration, widening the window each time the score falls outside it
+	 * @param board           the root board
+	 * @param depth           the depth of the iteration
+	 * @param previousLine    the same line in the previous iteration, or null to use the full window
+	 * @return    the score of the root, with the principal variation left in row 0 of the PV table
+	 */
+	private int aspirationSearch(final Board board, final int depth, final AnalysisLine previousLine) {
+
+		int delta = ASPIRATION_WINDOW;
+		int alpha = previousLine == null ? -INFINITY : Math.max(previousLine.getScore() - delta, -INFINITY);
+		int beta = previousLine == null ? INFINITY : Math.min(previousLine.getScore() + delta, INFINITY);
+
+		while(true) {
+			final int score = board.currentPlayer().getAlliance().isWhite() ? max(board, depth, 0, alpha, beta) :
+																			  min(board, depth, 0, alpha, beta);
+			if(this.stopped) {
+				return score;
+			}
+			if(score <= alpha && alpha > -INFINITY) {
+				delta *= 4;
+				alpha = Math.max(score - delta, -INFINITY);
+			}
+			else if(score >= beta && beta < INFINITY) {
+				delta *= 4;
+				beta = Math.min(score + delta, INFINITY);
+			}
+			else {
+				return score;
+			}
+		}
+	}
+
+	public int max(final Board board, final int depth, final int ply, int alpha, final int beta) {
+
+		if(isStopped()) {
+			return 0;
+		}
+
+		this.pvLength[ply] = ply;
+		if(ply > this.selectiveDepth) {
+			this.selectiveDepth = ply;
+		}
+		if(depth == 0 || ply == MAX_PLY - 1) {
+			return this.boardEvaluator.evaluate(board, depth, alpha, beta);
+		}
+
+		final long hashEntry = this.transpositionTable.probe(board.getZobristHash());
+		if(ply > 0 && isTableCutoff(hashEntry, depth, alpha, beta)) {
+			return TranspositionTable.getScore(hashEntry);
+		}
+
+		final int originalAlpha = alpha;
+		int highestSeenValue = -INFINITY;
+		Move bestMove = Move.NULL_MOVE;
+		int movesSearched = 0;
+		for(final Move move : orderMoves(board, ply, hashEntry)) {
+			if(ply == 0 && this.excludedRootMoves.contains(move)) {
+				continue;
+			}
+			final MoveTransition moveTransition = board.currentPlayer().makeMove(move);
+			if(!moveTransition.getMoveStatus().isDone()) {
+				continue;
+			}
+
+			final Board toBoard = moveTransition.getTransitionBoard();
+			int currentValue;
+			if(movesSearched == 0) {
+				currentValue = min(toBoard, depth - 1, ply + 1, alpha, beta);
+			}
+			else {
+				currentValue = min(toBoard, depth - 1, ply + 1, alpha, alpha + 1);
+				if(currentValue > alpha && currentValue < beta) {
+					currentValue = min(toBoard, depth - 1, ply + 1, alpha, beta);
+				}
+			}
+			movesSearched++;
+			if(this.stopped) {
+				return 0;
+			}
+
+			if(currentValue > highestSeenValue) {
+				highestSeenValue = currentValue;
+				bestMove = move;
+			}
+			if(currentValue > alpha) {
+				alpha = currentValue;
+				updatePrincipalVariation(ply, move);
+				if(alpha >= beta) {
+					break;
+				}
+			}
+		}
+
+		if(movesSearched == 0) {
+			return this.boardEvaluator.evaluate(board, depth);
+		}
+
+		if(ply > 0 || this.excludedRootMoves.isEmpty()) {
+			storeResult(board, depth, highestSeenValue, originalAlpha, beta, bestMove);
+		}
+		return highestSeenValue;
+	}
+
+	public int min(final Board board, final int depth, final int ply, final int alpha, int beta) {
+
+		if(isStopped()) {
+			return 0;
+		}
+
+		this.pvLength[ply] = ply;
+		if(ply > this.selectiveDepth) {
+			this.selectiveDepth = ply;
+		}
+		if(depth == 0 || ply == MAX_PLY - 1) {
+			return this.boardEvaluator.evaluate(board, depth, alpha, beta);
+		}
+
+		final long hashEntry = this.transpositionTable.probe(board.getZobristHash());
+		if(ply > 0 && isTableCutoff(hashEntry, depth, alpha, beta)) {
+			return TranspositionTable.getScore(hashEntry);
+		}
+
+		final int originalBeta = beta;
+		int lowestSeenValue = INFINITY;
+		Move bestMove = Move.NULL_MOVE;
+		int movesSearched = 0;
+		for(final Move move : orderMoves(board, ply, hashEntry)) {
+			if(ply == 0 && this.excludedRootMoves.contains(move)) {
+				continue;
+			}
+			final MoveTransition moveTransition = board.currentPlayer().makeMove(move);
+			if(!moveTransition.getMoveStatus().isDone()) {
+				continue;
+			}
+
+			final Board toBoard = moveTransition.getTransitionBoard();
+			int currentValue;
+			if(movesSearched == 0) {
+				currentValue = max(toBoard, depth - 1, ply + 1, alpha, beta);
+			}
+			else {
+				currentValue = max(toBoard, depth - 1, ply + 1, beta - 1, beta);
+				if(currentValue > alpha && currentValue < beta) {
+					currentValue = max(toBoard, depth - 1, ply + 1, alpha, beta);
+				}
+			}
+			movesSearched++;
+			if(this.stopped) {
+				return 0;
+			}
+
+			if(currentValue < lowestSeenValue) {
+				lowestSeenValue = currentValue;
+				bestMove = move;
+			}
+			if(currentValue < beta) {
+				beta = currentValue;
+				updatePrincipalVariation(ply, move);
+				if(alpha >= beta) {
+					break;
+				}
+			}
+		}
+
+		if(movesSearched == 0) {
+			return this.boardEvaluator.evaluate(board, depth);
+		}
+
+		if(ply > 0 || this.excludedRootMoves.isEmpty()) {
+			storeResult(board, depth, lowestSeenValue, alpha, originalBeta, bestMove);
+		}
+		return lowestSeenValue;
+	}
+
+	/**
+	 * Helper function that polls for a stop request every few nodes, so a search can be abandoned
+	 * within a few milliseconds without paying for a volatile read at every node
+	 * @return    true once the search has been asked to stop or its thread has been interrupted
+	 */
+	private boolean isStopped() {
+
+		if(!this.stopped && (++this.nodesSearched & STOP_CHECK_INTERVAL_MASK) == 0) {
+			this.stopped = this.stopRequested || Thread.currentThread().isInterrupted() ||
+						   System.currentTimeMillis() >= this.deadline;
+		}
+
+		return this.stopped;
+	}
+
+	private long calculateDeadline(final long startTime) {
+
+		return this.moveTimeMillis > 0 ? startTime + this.moveTimeMillis : Long.MAX_VALUE;
+	}
+
+	/**
+	 * Helper function that tells us if a stored result makes searching a node unnecessary. Exact scores
+	 * are only trusted in null window nodes, so the principal variation is never cut short.
+	 * @param hashEntry    the packed table entry, or NO_ENTRY
+	 * @param depth        the remaining depth of the node
+	 * @param alpha        the lower bound of the window
+	 * @param beta         the upper bound of the window
+	 * @return    true if the stored score can be returned as the score of the node
+	 */
+	private static boolean isTableCutoff(final long hashEntry, final int depth, final int alpha, final int beta) {
+
+		if(hashEntry == TranspositionTable.NO_ENTRY || TranspositionTable.getDepth(hashEntry) < depth) {
+			return false;
+		}
+
+		final int score = TranspositionTable.getScore(hashEntry);
+		switch(TranspositionTable.getFlag(hashEntry)) {
+			case TranspositionTable.EXACT:
+				return beta - alpha == 1;
+			case TranspositionTable.LOWER_BOUND:
+				return score >= beta;
+			case TranspositionTable.UPPER_BOUND:
+				return score <= alpha;
+			default:
+				return false;
+		}
+	}
+
+	private void storeResult(final Board board,
+							 final int depth,
+							 final int score,
+							 final int alpha,
+							 final int beta,
+							 final Move bestMove) {
+
+		final int flag = score <= alpha ? TranspositionTable.UPPER_BOUND :
+						 score >= beta ? TranspositionTable.LOWER_BOUND : TranspositionTable.EXACT;
+		this.transpositionTable.store(board.getZobristHash(), depth, score, flag,
+				bestMove.getCurrentCoordinate() < 0 ? TranspositionTable.NO_MOVE : bestMove.getCurrentCoordinate(),
+				bestMove.getCurrentCoordinate() < 0 ? TranspositionTable.NO_MOVE : bestMove.getDestinationCoordinate());
+	}
+
+	private static Move firstLegalMove(final Board board) {
+
+		for(final Move move : board.currentPlayer().getLegalMoves()) {
+			if(board.currentPlayer().makeMove(move).getMoveStatus().isDone()) {
+				return move;
+			}
+		}
+
+		return Move.NULL_MOVE;
+	}
+
+	/**
+	 * Helper function that stores a new best move at the given ply and appends the line found below it,
+	 * so row 0 of the triangular table always holds the principal variation from the root
+	 * @param ply     distance from the root
+	 * @param move    the move that raised the bound at this ply
+	 */
+	private void updatePrincipalVariation(final int ply, final Move move) {
+
+		this.pvTable[ply][ply] = move;
+		final int childLength = this.pvLength[ply + 1];
+		for(int i = ply + 1; i < childLength; i++) {
+			this.pvTable[ply][i] = this.pvTable[ply + 1][i];
+		}
+		this.pvLength[ply] = Math.max(childLength, ply + 1);
+	}
+
+	private List<Move> extractPrincipalVariation() {
+
+		final List<Move> line = new ArrayList<>(this.pvLength[0]);
+		for(int i = 0; i < this.pvLength[0]; i++) {
+			line.add(this.pvTable[0][i]);
+		}
+
+		return Collections.unmodifiableList(line);
+	}
+
+	/**
+	 * Helper function that sorts the moves of a node so the previous principal variation is tried first,
+	 * then the best move stored in the transposition table, followed by captures ordered most valuable
+	 * victim / least valuable attacker
+	 * @param board        the board to order moves for
+	 * @param ply          distance from the root
+	 * @param hashEntry    the table entry of the board, or NO_ENTRY
+	 * @return    the legal moves of the current player in search order
+	 */
+	private List<Move> orderMoves(final Board board, final int ply, final long hashEntry) {
+
+		final Move pvMove = ply < this.principalVariation.size() ? this.principalVariation.get(ply) : null;
+		final int hashMoveSource = hashEntry == TranspositionTable.NO_ENTRY ? TranspositionTable.NO_MOVE :
+								   TranspositionTable.getMoveSource(hashEntry);
+		final int hashMoveDestination = TranspositionTable.getMoveDestination(hashEntry);
+		final List<Move> orderedMoves = new ArrayList<>(board.currentPlayer().getLegalMoves());
+		orderedMoves.sort(Comparator.comparingInt((Move move) ->
+				-moveOrderingScore(move, pvMove, hashMoveSource, hashMoveDestination)));
+
+		return orderedMoves;
+	}
+
+	private static int moveOrderingScore(final Move move,
+										 final Move pvMove,
+										 final int hashMoveSource,
+										 final int hashMoveDestination) {
+
+		if(move.equals(pvMove)) {
+			return INFINITY;
+		}
+		if(move.getCurrentCoordinate() == hashMoveSource && move.getDestinationCoordinate() == hashMoveDestination) {
+			return INFINITY - 1;
+		}
+		if(move.isAttack()) {
+			return 10 * move.getAttackedPiece().getPieceValue() - move.getMovedPiece().getPieceValue();
+		}
+
+		return -INFINITY;
+	}
+}
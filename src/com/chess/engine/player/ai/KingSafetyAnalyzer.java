@@ -0,0 +1,169 @@
+package com.chess.engine.player.ai;
+
+import com.chess.engine.Alliance;
+import com.chess.engine.board.BitBoards;
+import com.chess.engine.board.Board;
+import com.chess.engine.board.BoardUtils;
+import com.chess.engine.pieces.Piece.PieceType;
+
+/**
+ * Scores the safety of a king from the pawns in front of it, the open columns around it and the enemy
+ * pieces bearing on the tiles next to it. Everything comes from the bitboards of the board and the
+ * attack masks of an AttackInfo, so no moves are generated.
+ */
+public final class KingSafetyAnalyzer {
+	
+	public static final int SHIELD_PAWN_BONUS = 10;
+	public static final int ADVANCED_SHIELD_PAWN_BONUS = 5;
+	public static final int SEMI_OPEN_COLUMN_PENALTY = -15;
+	public static final int OPEN_COLUMN_PENALTY = -25;
+	
+	/** Attack units each piece type adds per attacked tile of the king zone, indexed by PieceType ordinal */
+	private static final int[] ATTACK_WEIGHTS = { 0, 2, 2, 3, 5, 0 };
+	
+	/** Penalty for the attack units on a king zone; it grows faster than the units so that combined attacks count for more */
+	private static final int[] KING_DANGER = initKingDanger();
+	private static final int MAX_KING_DANGER = 500;
+	
+	private static final KingSafetyAnalyzer INSTANCE = new KingSafetyAnalyzer();
+	
+	private KingSafetyAnalyzer() {
+	}
+	
+	public static KingSafetyAnalyzer get() {
+		
+		return INSTANCE;
+	}
+	
+	/**
+	 * Function that scores the safety of one king
+	 * @param board         the board to score
+	 * @param alliance      the color of the king
+	 * @param attackInfo    the attack masks of the board
+	 * @return    the safety score of the king, negative when it is exposed
+	 */
+	public int kingSafety(final Board board, final Alliance alliance, final AttackInfo attackInfo) {
+		
+		final long king = board.getPieceBitBoard(PieceType.KING, alliance);
+		if(king == 0) {
+			return 0;
+		}
+		final int kingCoordinate = Long.numberOfTrailingZeros(king);
+		
+		return pawnShield(board, alliance, kingCoordinate) +
+			   openColumns(board, alliance, kingCoordinate) +
+			   kingZoneAttacks(board, alliance, kingCoordinate, attackInfo);
+	}
+	
+	/**
+	 * Function that returns the pawn shield bonus of a king still on its first two ranks: own pawns on the
+	 * king's column and the columns next to it, one or two rows in front of the king
+	 * @param board             the board to score
+	 * @param alliance          the color of the king
+	 * @param kingCoordinate    the tile of the king
+	 * @return    the shield bonus
+	 */
+	public int pawnShield(final Board board, final Alliance alliance, final int kingCoordinate) {
+		
+		final int row = kingCoordinate / BoardUtils.NUM_TILES_PER_ROW;
+		final int homeRow = alliance.isWhite() ? BoardUtils.NUM_TILES_PER_ROW - 1 : 0;
+		if(Math.abs(row - homeRow) > 1) {
+			return 0;
+		}
+		final long pawns = board.getPieceBitBoard(PieceType.PAWN, alliance);
+		final long columns = shieldColumns(kingCoordinate);
+		
+		return SHIELD_PAWN_BONUS * Long.bitCount(pawns & columns & rowMask(row + alliance.getDirection())) +
+			   ADVANCED_SHIELD_PAWN_BONUS * Long.bitCount(pawns & columns & rowMask(row + 2 * alliance.getDirection()));
+	}
+	
+	/**
+	 * Function that returns the penalty for columns around a king that have no pawn of its own on them,
+	 * more so when the enemy has none on them either
+	 * @param board             the board to score
+	 * @param alliance          the color of the king
+	 * @param kingCoordinate    the tile of the king
+	 * @return    the open column penalty
+	 */
+	public int openColumns(final Board board, final Alliance alliance, final int kingCoordinate) {
+		
+		final long ownPawns = board.getPieceBitBoard(PieceType.PAWN, alliance);
+		final long enemyPawns = board.getPieceBitBoard(PieceType.PAWN, opponent(alliance));
+		final int kingColumn = BitBoards.column(kingCoordinate);
+		int penalty = 0;
+		for(int column = Math.max(0, kingColumn - 1); column <= Math.min(BoardUtils.NUM_TILES_PER_ROW - 1, kingColumn + 1); column++) {
+			if((ownPawns & BitBoards.COLUMNS[column]) == 0) {
+				penalty += (enemyPawns & BitBoards.COLUMNS[column]) == 0 ? OPEN_COLUMN_PENALTY : SEMI_OPEN_COLUMN_PENALTY;
+			}
+		}
+		
+		return penalty;
+	}
+	
+	/**
+	 * Function that adds up the attack units of the enemy pieces hitting the tiles around a king. A single
+	 * attacker is not counted as a threat
+	 * @param board             the board to score
+	 * @param alliance          the color of the king
+	 * @param kingCoordinate    the tile of the king
+	 * @param attackInfo        the attack masks of the board
+	 * @return    the king danger penalty
+	 */
+	public int kingZoneAttacks(final Board board,
+							   final Alliance alliance,
+							   final int kingCoordinate,
+							   final AttackInfo attackInfo) {
+		
+		final long kingZone = BitBoards.kingAttacks(kingCoordinate) | (1L << kingCoordinate);
+		final Alliance enemy = opponent(alliance);
+		int attackers = 0;
+		int attackUnits = 0;
+		for(final PieceType pieceType : PieceType.values()) {
+			final int weight = ATTACK_WEIGHTS[pieceType.ordinal()];
+			if(weight == 0) {
+				continue;
+			}
+			long pieces = board.getPieceBitBoard(pieceType, enemy);
+			while(pieces != 0) {
+				final long zoneAttacks = attackInfo.getAttacks(Long.numberOfTrailingZeros(pieces)) & kingZone;
+				if(zoneAttacks != 0) {
+					attackers++;
+					attackUnits += weight * Long.bitCount(zoneAttacks);
+				}
+				pieces &= pieces - 1;
+			}
+		}
+		
+		return attackers < 2 ? 0 : -KING_DANGER[Math.min(attackUnits, KING_DANGER.length - 1)];
+	}
+	
+	private static long shieldColumns(final int kingCoordinate) {
+		
+		final int column = BitBoards.column(kingCoordinate);
+		return BitBoards.COLUMNS[column] | BitBoards.ADJACENT_COLUMNS[column];
+	}
+	
+	private static long rowMask(final int row) {
+		
+		if(row < 0 || row >= BoardUtils.NUM_TILES_PER_ROW) {
+			return 0L;
+		}
+		
+		return 0xFFL << (row * BoardUtils.NUM_TILES_PER_ROW);
+	}
+	
+	private static Alliance opponent(final Alliance alliance) {
+		
+		return alliance.isWhite() ? Alliance.BLACK : Alliance.WHITE;
+	}
+	
+	private static int[] initKingDanger() {
+		
+		final int[] kingDanger = new int[64];
+		for(int units = 0; units < kingDanger.length; units++) {
+			kingDanger[units] = Math.min(MAX_KING_DANGER, units * units / 2);
+		}
+		
+		return kingDanger;
+	}
+}
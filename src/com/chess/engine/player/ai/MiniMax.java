@@ -1,13 +1,21 @@
 package com.chess.engine.player.ai;
 
+import java.util.Collections;
+
 import com.chess.engine.board.Board;
 import com.chess.engine.board.Move;
 import com.chess.engine.player.MoveTransition;
 
 public class MiniMax implements MoveStrategy {
 
+	private static final int STOP_CHECK_INTERVAL_MASK = 31;
+	
 	private final BoardEvaluator boardEvaluator;
 	private final int searchDepth;
+	private SearchListener searchListener;
+	private volatile boolean stopRequested;
+	private boolean stopped;
+	private long nodesSearched;
 	
 	public MiniMax(final int searchDepth) {
 		this.boardEvaluator = new StandardBoardEvaluator();
@@ -19,10 +27,28 @@ public class MiniMax implements MoveStrategy {
 		return "MiniMax";
 	}
 	
+	@Override
+	public void stop() {
+		this.stopRequested = true;
+	}
+	
+	@Override
+	public void setSearchListener(final SearchListener searchListener) {
+		this.searchListener = searchListener;
+	}
+	
+	@Override
+	public long getNumNodesSearched() {
+		return this.nodesSearched;
+	}
+	
 	@Override
 	public Move execute(Board board) {
 		
 		final long startTime = System.currentTimeMillis();
+		this.stopRequested = false;
+		this.stopped = false;
+		this.nodesSearched = 0;
 		
 		Move bestMove = null;
 		
@@ -30,10 +56,6 @@ public class MiniMax implements MoveStrategy {
 		int lowestSeenValue = Integer.MAX_VALUE;
 		int currentValue;
 		
-		System.out.println(board.currentPlayer() + " THINKING with depth = " + searchDepth);
-		
-		int numMoves = board.currentPlayer().getLegalMoves().size();
-		
 		for(final Move move : board.currentPlayer().getLegalMoves()) {
 			
 			final MoveTransition moveTransition = board.currentPlayer().makeMove(move);
@@ -41,6 +63,12 @@ public class MiniMax implements MoveStrategy {
 			{
 				currentValue = board.currentPlayer().getAlliance().isWhite() ? min(moveTransition.getTransitionBoard(), searchDepth - 1) :
 																				max(moveTransition.getTransitionBoard(), searchDepth - 1);
+				if(this.stopped) {
+					if(bestMove == null) {
+						bestMove = move;
+					}
+					break;
+				}
 				
 				if(board.currentPlayer().getAlliance().isWhite() && currentValue >= highestSeenValue) {
 					highestSeenValue = currentValue;
@@ -54,6 +82,11 @@ public class MiniMax implements MoveStrategy {
 		}
 		
 		final long executionTime = System.currentTimeMillis() - startTime;
+		if(this.searchListener != null && bestMove != null && !this.stopped) {
+			final int score = board.currentPlayer().getAlliance().isWhite() ? highestSeenValue : lowestSeenValue;
+			this.searchListener.iterationCompleted(new SearchInfo(this.searchDepth, 1, this.searchDepth, score,
+					this.nodesSearched, executionTime, 0, Collections.singletonList(bestMove)));
+		}
 		
 		return bestMove;
 	}
@@ -64,8 +97,26 @@ public class MiniMax implements MoveStrategy {
 				board.currentPlayer().isInStaleMate();
 	}
 	
+	/**
+	 * Helper function that polls for a stop request every few nodes, so a search can be abandoned
+	 * within a few milliseconds without paying for a volatile read at every node
+	 * @return    true once the search has been asked to stop or its thread has been interrupted
+	 */
+	private boolean isStopped() {
+		
+		if(!this.stopped && (++this.nodesSearched & STOP_CHECK_INTERVAL_MASK) == 0) {
+			this.stopped = this.stopRequested || Thread.currentThread().isInterrupted();
+		}
+		
+		return this.stopped;
+	}
+	
 	public int min(final Board board, final int depth) {
 		
+		if(isStopped()) {
+			return 0;
+		}
+		
 		if(depth == 0 || isEndGameScenario(board)) {
 			return this.boardEvaluator.evaluate(board, depth);
 		}
@@ -86,6 +137,10 @@ public class MiniMax implements MoveStrategy {
 	
 	public int max(final Board board, final int depth) {
 		
+		if(isStopped()) {
+			return 0;
+		}
+		
 		if(depth == 0 /* || game over */) {
 			return this.boardEvaluator.evaluate(board, depth);
 		}
@@ -6,4 +6,23 @@ import com.chess.engine.board.Move;
 public interface MoveStrategy {
 
 	Move execute(Board board);
+	
+	/**
+	 * Asks a running search to return as soon as possible with the best move found so far.
+	 * Interrupting the searching thread has the same effect.
+	 */
+	void stop();
+	
+	/**
+	 * Registers a listener that is told about the progress of every following search
+	 * @param searchListener    the listener, or null to stop reporting
+	 */
+	void setSearchListener(SearchListener searchListener);
+	
+	/**
+	 * Function that tells how many nodes the last search visited, including those of an iteration it
+	 * was stopped in
+	 * @return    the number of nodes, or 0 if the move was found without searching
+	 */
+	long getNumNodesSearched();
 }
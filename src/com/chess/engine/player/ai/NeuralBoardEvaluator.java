@@ -0,0 +1,220 @@
+package com.chess.engine.player.ai;
+
+import java.util.Arrays;
+
+import com.chess.engine.Alliance;
+import com.chess.engine.board.Board;
+import com.chess.engine.board.BoardUtils;
+import com.chess.engine.board.Move;
+import com.chess.engine.pieces.Piece.PieceType;
+
+/**
+ * BoardEvaluator driven by a NeuralNetwork. The feature transformer accumulators of the boards met
+ * in a search are kept in a small table; a board whose parent, reached through its transition move,
+ * is in the table gets its accumulators from the parent's by adding and taking away only the pieces
+ * that changed. Boards without a known parent are worked out from scratch.
+ * <p>
+ * The layers are plain loops over primitive arrays, written so the JIT can vectorize them; the JDK
+ * Vector API is still an incubator module and would need extra flags to run the engine. An evaluator
+ * keeps per search state and must not be shared between threads, the network can be.
+ */
+public final class NeuralBoardEvaluator implements BoardEvaluator {
+	
+	private static final int ACCUMULATOR_TABLE_SIZE = 1 << 12;
+	private static final int MAX_UPDATE_DISTANCE = 32;
+	private static final int NUM_PIECE_INDEXES = 12;
+	
+	private final NeuralNetwork network;
+	private final BoardEvaluator mateScorer;
+	private final int hiddenSize;
+	private final int tableSize;
+	private final long[] keys;
+	private final boolean[] filled;
+	private final short[] accumulators;
+	private final byte[] input;
+	private final byte[] layer1Output;
+	private final byte[] layer2Output;
+	
+	public NeuralBoardEvaluator(final NeuralNetwork network) {
+		
+		this(network, ACCUMULATOR_TABLE_SIZE);
+	}
+	
+	/**
+	 * Constructor for NeuralBoardEvaluator with an accumulator table of tableSize slots, a power of two
+	 */
+	NeuralBoardEvaluator(final NeuralNetwork network, final int tableSize) {
+		
+		this.network = network;
+		this.mateScorer = new StandardBoardEvaluator();
+		this.hiddenSize = network.hiddenSize;
+		this.tableSize = tableSize;
+		this.keys = new long[tableSize];
+		this.filled = new boolean[tableSize];
+		this.accumulators = new short[tableSize * 2 * this.hiddenSize];
+		this.input = new byte[2 * this.hiddenSize];
+		this.layer1Output = new byte[network.layer1Size];
+		this.layer2Output = new byte[network.layer2Size];
+	}
+	
+	@Override
+	public int evaluate(final Board board, final int depth) {
+		
+		final int slot = accumulatorSlot(board, 0);
+		final boolean whiteToMove = board.currentPlayer().getAlliance().isWhite();
+		final int base = slot * 2 * this.hiddenSize;
+		final int ownOffset = base + (whiteToMove ? 0 : this.hiddenSize);
+		final int otherOffset = base + (whiteToMove ? this.hiddenSize : 0);
+		clip(this.accumulators, ownOffset, this.input, 0, this.hiddenSize);
+		clip(this.accumulators, otherOffset, this.input, this.hiddenSize, this.hiddenSize);
+		
+		dense(this.network.layer1Weights, this.network.layer1Biases, this.input, this.layer1Output);
+		dense(this.network.layer2Weights, this.network.layer2Biases, this.layer1Output, this.layer2Output);
+		int output = this.network.outputBias;
+		for(int i = 0; i < this.layer2Output.length; i++) {
+			output += this.network.outputWeights[i] * this.layer2Output[i];
+		}
+		final int score = (int) ((long) output * this.network.outputScale /
+				(NeuralNetwork.ACTIVATION_MAX << NeuralNetwork.WEIGHT_SHIFT));
+		
+		return (whiteToMove ? score : -score) + depthAdjustment(board, depth);
+	}
+	
+	/**
+	 * Mates are scored the same way as by the StandardBoardEvaluator
+	 */
+	@Override
+	public int depthAdjustment(final Board board, final int depth) {
+		
+		return this.mateScorer.depthAdjustment(board, depth);
+	}
+	
+	/**
+	 * Function that makes sure the accumulators of a board are in the table, updating them from its
+	 * parent's when the parent can be found within MAX_UPDATE_DISTANCE moves
+	 * @param board       the board
+	 * @param distance    how many boards up from the evaluated one this is
+	 * @return    the slot of the table holding the board's accumulators
+	 */
+	private int accumulatorSlot(final Board board, final int distance) {
+		
+		final long key = board.getZobristHash();
+		final int slot = (int) key & (this.tableSize - 1);
+		if(this.filled[slot] && this.keys[slot] == key) {
+			return slot;
+		}
+		
+		final Move transitionMove = board.getTransitionMove();
+		if(transitionMove != null && distance < MAX_UPDATE_DISTANCE) {
+			final Board parent = transitionMove.getBoard();
+			final int parentSlot = accumulatorSlot(parent, distance + 1);
+			if(parentSlot != slot) {
+				System.arraycopy(this.accumulators, parentSlot * 2 * this.hiddenSize,
+								 this.accumulators, slot * 2 * this.hiddenSize, 2 * this.hiddenSize);
+			}
+			updateAccumulators(slot, parent, board);
+		}
+		else {
+			refreshAccumulators(slot, board);
+		}
+		this.keys[slot] = key;
+		this.filled[slot] = true;
+		
+		return slot;
+	}
+	
+	private void refreshAccumulators(final int slot, final Board board) {
+		
+		final int base = slot * 2 * this.hiddenSize;
+		System.arraycopy(this.network.featureBiases, 0, this.accumulators, base, this.hiddenSize);
+		System.arraycopy(this.network.featureBiases, 0, this.accumulators, base + this.hiddenSize, this.hiddenSize);
+		for(int pieceIndex = 0; pieceIndex < NUM_PIECE_INDEXES; pieceIndex++) {
+			long pieces = pieceBitBoard(board, pieceIndex);
+			while(pieces != 0) {
+				addFeature(base, pieceIndex, Long.numberOfTrailingZeros(pieces), 1);
+				pieces &= pieces - 1;
+			}
+		}
+	}
+	
+	private void updateAccumulators(final int slot, final Board parent, final Board board) {
+		
+		final int base = slot * 2 * this.hiddenSize;
+		for(int pieceIndex = 0; pieceIndex < NUM_PIECE_INDEXES; pieceIndex++) {
+			final long before = pieceBitBoard(parent, pieceIndex);
+			final long after = pieceBitBoard(board, pieceIndex);
+			long removed = before & ~after;
+			while(removed != 0) {
+				addFeature(base, pieceIndex, Long.numberOfTrailingZeros(removed), -1);
+				removed &= removed - 1;
+			}
+			long added = after & ~before;
+			while(added != 0) {
+				addFeature(base, pieceIndex, Long.numberOfTrailingZeros(added), 1);
+				added &= added - 1;
+			}
+		}
+	}
+	
+	/**
+	 * Helper function that adds or takes away the weights of one piece in both accumulators. From black's
+	 * side the board is mirrored and the colors swapped, so both sides see their own pieces moving up
+	 */
+	private void addFeature(final int base, final int pieceIndex, final int coordinate, final int sign) {
+		
+		final int whiteFeature = pieceIndex * BoardUtils.NUM_TILES + coordinate;
+		final int blackFeature = ((pieceIndex + 6) % NUM_PIECE_INDEXES) * BoardUtils.NUM_TILES + (coordinate ^ 56);
+		addWeights(whiteFeature * this.hiddenSize, base, sign);
+		addWeights(blackFeature * this.hiddenSize, base + this.hiddenSize, sign);
+	}
+	
+	private void addWeights(final int weightOffset, final int accumulatorOffset, final int sign) {
+		
+		final short[] weights = this.network.featureWeights;
+		final short[] accumulator = this.accumulators;
+		for(int i = 0; i < this.hiddenSize; i++) {
+			accumulator[accumulatorOffset + i] += sign * weights[weightOffset + i];
+		}
+	}
+	
+	private static long pieceBitBoard(final Board board, final int pieceIndex) {
+		
+		return board.getPieceBitBoard(PieceType.values()[pieceIndex % 6], pieceIndex < 6 ? Alliance.WHITE : Alliance.BLACK);
+	}
+	
+	private static void clip(final short[] source, final int sourceOffset, final byte[] destination, final int destinationOffset, final int length) {
+		
+		for(int i = 0; i < length; i++) {
+			destination[destinationOffset + i] = (byte) Math.min(NeuralNetwork.ACTIVATION_MAX, Math.max(0, source[sourceOffset + i]));
+		}
+	}
+	
+	private static void dense(final byte[] weights, final int[] biases, final byte[] input, final byte[] output) {
+		
+		for(int o = 0; o < output.length; o++) {
+			final int row = o * input.length;
+			int sum = 0;
+			for(int i = 0; i < input.length; i++) {
+				sum += weights[row + i] * input[i];
+			}
+			output[o] = (byte) Math.min(NeuralNetwork.ACTIVATION_MAX, Math.max(0, (sum + biases[o]) >> NeuralNetwork.WEIGHT_SHIFT));
+		}
+	}
+	
+	/**
+	 * Function that returns a copy of the accumulators of a board, white's side followed by black's
+	 */
+	short[] getAccumulators(final Board board) {
+		
+		final int base = accumulatorSlot(board, 0) * 2 * this.hiddenSize;
+		return Arrays.copyOfRange(this.accumulators, base, base + 2 * this.hiddenSize);
+	}
+	
+	/**
+	 * Function that forgets every accumulator, for instance when a new game starts
+	 */
+	public void clear() {
+		
+		Arrays.fill(this.filled, false);
+	}
+}
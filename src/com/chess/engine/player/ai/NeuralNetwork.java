@@ -0,0 +1,112 @@
+package com.chess.engine.player.ai;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * The weights of a small quantized evaluation network. The input is one feature per piece type,
+ * color and tile, seen from each side in turn, which the feature transformer sums into a hidden
+ * layer of 16 bit accumulators. Both accumulators, clipped to 0..127, feed two dense layers with
+ * 8 bit weights and a single output.
+ * <p>
+ * Weight files are little endian and hold, in order: the magic number, the hidden, first and second
+ * layer sizes and the output scale as ints; the feature weights as shorts, feature by feature, and
+ * the hidden biases as shorts; then for the first, second and output layer the byte weights, one
+ * output neuron after the other, followed by the int biases.
+ * <p>
+ * A network is never changed after loading, so one can be shared by any number of evaluators.
+ */
+public final class NeuralNetwork {
+	
+	public static final int MAGIC = 0x45554E4E;
+	public static final int NUM_FEATURES = 12 * 64;
+	
+	static final int ACTIVATION_MAX = 127;
+	static final int WEIGHT_SHIFT = 6;
+	
+	final int hiddenSize;
+	final int layer1Size;
+	final int layer2Size;
+	final int outputScale;
+	final short[] featureWeights;
+	final short[] featureBiases;
+	final byte[] layer1Weights;
+	final int[] layer1Biases;
+	final byte[] layer2Weights;
+	final int[] layer2Biases;
+	final byte[] outputWeights;
+	final int outputBias;
+	
+	private NeuralNetwork(final ByteBuffer buffer) throws IOException {
+		
+		if(buffer.remaining() < 5 * Integer.BYTES || buffer.getInt() != MAGIC) {
+			throw new IOException("Not a network file");
+		}
+		this.hiddenSize = buffer.getInt();
+		this.layer1Size = buffer.getInt();
+		this.layer2Size = buffer.getInt();
+		this.outputScale = buffer.getInt();
+		if(this.hiddenSize <= 0 || this.layer1Size <= 0 || this.layer2Size <= 0 ||
+		   buffer.remaining() != expectedSize(this.hiddenSize, this.layer1Size, this.layer2Size)) {
+			throw new IOException("Network file does not match its layer sizes");
+		}
+		this.featureWeights = readShorts(buffer, NUM_FEATURES * this.hiddenSize);
+		this.featureBiases = readShorts(buffer, this.hiddenSize);
+		this.layer1Weights = readBytes(buffer, 2 * this.hiddenSize * this.layer1Size);
+		this.layer1Biases = readInts(buffer, this.layer1Size);
+		this.layer2Weights = readBytes(buffer, this.layer1Size * this.layer2Size);
+		this.layer2Biases = readInts(buffer, this.layer2Size);
+		this.outputWeights = readBytes(buffer, this.layer2Size);
+		this.outputBias = buffer.getInt();
+	}
+	
+	/**
+	 * Function that reads a network from a weight file
+	 * @param file    the weight file
+	 * @return    the network
+	 * @throws IOException    if the file cannot be read or is not a network file
+	 */
+	public static NeuralNetwork load(final Path file) throws IOException {
+		
+		return new NeuralNetwork(ByteBuffer.wrap(Files.readAllBytes(file)).order(ByteOrder.LITTLE_ENDIAN));
+	}
+	
+	public int getHiddenSize() {
+		
+		return this.hiddenSize;
+	}
+	
+	private static long expectedSize(final int hiddenSize, final int layer1Size, final int layer2Size) {
+		
+		return (long) NUM_FEATURES * hiddenSize * Short.BYTES + (long) hiddenSize * Short.BYTES +
+			   2L * hiddenSize * layer1Size + (long) layer1Size * Integer.BYTES +
+			   (long) layer1Size * layer2Size + (long) layer2Size * Integer.BYTES +
+			   layer2Size + Integer.BYTES;
+	}
+	
+	private static short[] readShorts(final ByteBuffer buffer, final int length) {
+		
+		final short[] values = new short[length];
+		buffer.asShortBuffer().get(values);
+		buffer.position(buffer.position() + length * Short.BYTES);
+		return values;
+	}
+	
+	private static int[] readInts(final ByteBuffer buffer, final int length) {
+		
+		final int[] values = new int[length];
+		buffer.asIntBuffer().get(values);
+		buffer.position(buffer.position() + length * Integer.BYTES);
+		return values;
+	}
+	
+	private static byte[] readBytes(final ByteBuffer buffer, final int length) {
+		
+		final byte[] values = new byte[length];
+		buffer.get(values);
+		return values;
+	}
+}
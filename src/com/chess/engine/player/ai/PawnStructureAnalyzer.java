@@ -0,0 +1,253 @@
+package com.chess.engine.player.ai;
+
+import java.util.Collection;
+
+import com.chess.engine.Alliance;
+import com.chess.engine.board.BitBoards;
+import com.chess.engine.board.Board;
+import com.chess.engine.board.BoardUtils;
+import com.chess.engine.pieces.Piece;
+import com.chess.engine.pieces.Piece.PieceType;
+import com.chess.engine.player.Player;
+
+/**
+ * Scores doubled, isolated, backward and passed pawns from the pawn bitboards. Pawn structure changes
+ * far less often than the rest of the position, so whole scores are kept in a table keyed by the pawn
+ * hash of the board and most leaves of a search get theirs from there. The table is written without
+ * locking in the same way as the TranspositionTable.
+ */
+public final class PawnStructureAnalyzer {
+	
+	public static final int ISOLATED_PAWN_PENALTY = -10;
+	public static final int DOUBLED_PAWN_PENALTY = -10;
+	public static final int BACKWARD_PAWN_PENALTY = -8;
+	
+	/** Indexed by rank counted from the pawn's own side, 1 being its starting rank */
+	private static final int[] MIDDLEGAME_PASSED_PAWN_BONUS = { 0, 5, 10, 15, 25, 40, 60, 0 };
+	private static final int[] ENDGAME_PASSED_PAWN_BONUS = { 0, 10, 20, 35, 60, 100, 150, 0 };
+	
+	private static final int TABLE_SIZE = 1 << 14;
+	
+	private static final long[] WHITE_PASSED_PAWN_MASKS = initPassedPawnMasks(Alliance.WHITE);
+	private static final long[] BLACK_PASSED_PAWN_MASKS = initPassedPawnMasks(Alliance.BLACK);
+	private static final long[] WHITE_SUPPORT_MASKS = initSupportMasks(Alliance.WHITE);
+	private static final long[] BLACK_SUPPORT_MASKS = initSupportMasks(Alliance.BLACK);
+	
+	private static final PawnStructureAnalyzer INSTANCE = new PawnStructureAnalyzer();
+	
+	private final long[] keys;
+	private final long[] entries;
+	
+	private PawnStructureAnalyzer() {
+		
+		this.keys = new long[TABLE_SIZE];
+		this.entries = new long[TABLE_SIZE];
+	}
+	
+	public static PawnStructureAnalyzer get() {
+		
+		return INSTANCE;
+	}
+	
+	/**
+	 * Function that returns the pawn structure score of a board, looking it up in the pawn hash table
+	 * first. The middlegame and endgame halves are packed into one long, use getMiddlegameScore and
+	 * getEndgameScore to take them apart
+	 * @param board    the board to score
+	 * @return    the packed scores from white's point of view
+	 */
+	public long pawnStructureScore(final Board board) {
+		
+		final long key = board.getPawnZobristHash();
+		final int index = (int) key & (TABLE_SIZE - 1);
+		final long entry = this.entries[index];
+		if((this.keys[index] ^ entry) == key) {
+			return entry;
+		}
+		
+		final long whitePawns = board.getPieceBitBoard(PieceType.PAWN, Alliance.WHITE);
+		final long blackPawns = board.getPieceBitBoard(PieceType.PAWN, Alliance.BLACK);
+		final int middlegameScore = pawnScore(whitePawns, blackPawns, Alliance.WHITE, MIDDLEGAME_PASSED_PAWN_BONUS) -
+									pawnScore(blackPawns, whitePawns, Alliance.BLACK, MIDDLEGAME_PASSED_PAWN_BONUS);
+		final int endgameScore = pawnScore(whitePawns, blackPawns, Alliance.WHITE, ENDGAME_PASSED_PAWN_BONUS) -
+								 pawnScore(blackPawns, whitePawns, Alliance.BLACK, ENDGAME_PASSED_PAWN_BONUS);
+		final long newEntry = (middlegameScore & 0xFFFFFFFFL) | ((long) endgameScore << 32);
+		this.entries[index] = newEntry;
+		this.keys[index] = key ^ newEntry;
+		
+		return newEntry;
+	}
+	
+	public static int getMiddlegameScore(final long entry) {
+		
+		return (int) entry;
+	}
+	
+	public static int getEndgameScore(final long entry) {
+		
+		return (int) (entry >> 32);
+	}
+	
+	public int isolatedPawnPenalty(final Player player) {
+		
+		return ISOLATED_PAWN_PENALTY * isolatedPawns(pawns(player.getActivePieces()));
+	}
+	
+	public int doubledPawnPenalty(final Player player) {
+		
+		return DOUBLED_PAWN_PENALTY * doubledPawns(pawns(player.getActivePieces()));
+	}
+	
+	public int backwardPawnPenalty(final Player player) {
+		
+		return BACKWARD_PAWN_PENALTY * backwardPawns(pawns(player.getActivePieces()),
+				pawns(player.getOpponent().getActivePieces()), player.getAlliance());
+	}
+	
+	public int passedPawnBonus(final Player player, final boolean endgame) {
+		
+		return passedPawnBonus(pawns(player.getActivePieces()), pawns(player.getOpponent().getActivePieces()),
+				player.getAlliance(), endgame ? ENDGAME_PASSED_PAWN_BONUS : MIDDLEGAME_PASSED_PAWN_BONUS);
+	}
+	
+	private static int pawnScore(final long pawns,
+								 final long enemyPawns,
+								 final Alliance alliance,
+								 final int[] passedPawnBonus) {
+		
+		return ISOLATED_PAWN_PENALTY * isolatedPawns(pawns) +
+			   DOUBLED_PAWN_PENALTY * doubledPawns(pawns) +
+			   BACKWARD_PAWN_PENALTY * backwardPawns(pawns, enemyPawns, alliance) +
+			   passedPawnBonus(pawns, enemyPawns, alliance, passedPawnBonus);
+	}
+	
+	private static int isolatedPawns(final long pawns) {
+		
+		int isolatedPawns = 0;
+		for(int column = 0; column < BoardUtils.NUM_TILES_PER_ROW; column++) {
+			if((pawns & BitBoards.ADJACENT_COLUMNS[column]) == 0) {
+				isolatedPawns += Long.bitCount(pawns & BitBoards.COLUMNS[column]);
+			}
+		}
+		
+		return isolatedPawns;
+	}
+	
+	private static int doubledPawns(final long pawns) {
+		
+		int doubledPawns = 0;
+		for(int column = 0; column < BoardUtils.NUM_TILES_PER_ROW; column++) {
+			final int pawnsOnColumn = Long.bitCount(pawns & BitBoards.COLUMNS[column]);
+			if(pawnsOnColumn > 1) {
+				doubledPawns += pawnsOnColumn;
+			}
+		}
+		
+		return doubledPawns;
+	}
+	
+	/**
+	 * Helper function that counts backward pawns: pawns with friendly pawns on a neighbouring column, but
+	 * all of them further up the board, whose next tile is covered by an enemy pawn
+	 */
+	private static int backwardPawns(final long pawns, final long enemyPawns, final Alliance alliance) {
+		
+		final long[] supportMasks = alliance.isWhite() ? WHITE_SUPPORT_MASKS : BLACK_SUPPORT_MASKS;
+		final long enemyPawnAttacks = BitBoards.pawnAttacks(enemyPawns, alliance.isWhite() ? Alliance.BLACK : Alliance.WHITE);
+		int backwardPawns = 0;
+		long remaining = pawns;
+		while(remaining != 0) {
+			final int coordinate = Long.numberOfTrailingZeros(remaining);
+			final int stopTile = coordinate + alliance.getDirection() * BoardUtils.NUM_TILES_PER_ROW;
+			if((pawns & BitBoards.ADJACENT_COLUMNS[BitBoards.column(coordinate)]) != 0 &&
+			   (pawns & supportMasks[coordinate]) == 0 &&
+			   BoardUtils.isValidTileCoordinate(stopTile) &&
+			   (enemyPawnAttacks & (1L << stopTile)) != 0) {
+				backwardPawns++;
+			}
+			remaining &= remaining - 1;
+		}
+		
+		return backwardPawns;
+	}
+	
+	private static int passedPawnBonus(final long pawns,
+									   final long enemyPawns,
+									   final Alliance alliance,
+									   final int[] passedPawnBonus) {
+		
+		final long[] passedPawnMasks = alliance.isWhite() ? WHITE_PASSED_PAWN_MASKS : BLACK_PASSED_PAWN_MASKS;
+		int bonus = 0;
+		long remaining = pawns;
+		while(remaining != 0) {
+			final int coordinate = Long.numberOfTrailingZeros(remaining);
+			if((enemyPawns & passedPawnMasks[coordinate]) == 0) {
+				bonus += passedPawnBonus[relativeRank(coordinate, alliance)];
+			}
+			remaining &= remaining - 1;
+		}
+		
+		return bonus;
+	}
+	
+	private static int relativeRank(final int coordinate, final Alliance alliance) {
+		
+		final int row = coordinate / BoardUtils.NUM_TILES_PER_ROW;
+		return alliance.isWhite() ? BoardUtils.NUM_TILES_PER_ROW - 1 - row : row;
+	}
+	
+	private static long pawns(final Collection<Piece> pieces) {
+		
+		long pawns = 0L;
+		for(final Piece piece : pieces) {
+			if(piece.getPieceType() == PieceType.PAWN) {
+				pawns |= 1L << piece.getPiecePosition();
+			}
+		}
+		
+		return pawns;
+	}
+	
+	/**
+	 * Helper function that builds, for every tile, the tiles on its own and neighbouring columns that
+	 * lie ahead of a pawn of the given color. A pawn is passed when no enemy pawn stands on them
+	 */
+	private static long[] initPassedPawnMasks(final Alliance alliance) {
+		
+		final long[] masks = new long[BoardUtils.NUM_TILES];
+		for(int coordinate = 0; coordinate < BoardUtils.NUM_TILES; coordinate++) {
+			final long columns = BitBoards.COLUMNS[BitBoards.column(coordinate)] | BitBoards.ADJACENT_COLUMNS[BitBoards.column(coordinate)];
+			masks[coordinate] = columns & rowsAhead(coordinate, alliance);
+		}
+		
+		return masks;
+	}
+	
+	/**
+	 * Helper function that builds, for every tile, the tiles on the neighbouring columns that are level
+	 * with or behind a pawn of the given color, where a pawn would have to stand to support it
+	 */
+	private static long[] initSupportMasks(final Alliance alliance) {
+		
+		final long[] masks = new long[BoardUtils.NUM_TILES];
+		for(int coordinate = 0; coordinate < BoardUtils.NUM_TILES; coordinate++) {
+			masks[coordinate] = BitBoards.ADJACENT_COLUMNS[BitBoards.column(coordinate)] & ~rowsAhead(coordinate, alliance);
+		}
+		
+		return masks;
+	}
+	
+	private static long rowsAhead(final int coordinate, final Alliance alliance) {
+		
+		final int row = coordinate / BoardUtils.NUM_TILES_PER_ROW;
+		long rows = 0L;
+		for(int tile = 0; tile < BoardUtils.NUM_TILES; tile++) {
+			final int tileRow = tile / BoardUtils.NUM_TILES_PER_ROW;
+			if(alliance.isWhite() ? tileRow < row : tileRow > row) {
+				rows |= 1L << tile;
+			}
+		}
+		
+		return rows;
+	}
+}
@@ -0,0 +1,79 @@
+package com.chess.engine.player.ai;
+
+import com.chess.engine.Alliance;
+import com.chess.engine.board.BitBoards;
+import com.chess.engine.board.Board;
+import com.chess.engine.board.BoardUtils;
+import com.chess.engine.pieces.Piece.PieceType;
+import com.chess.engine.player.Player;
+
+/**
+ * Scores rooks on open and semi-open columns, rooks on the seventh rank and rooks that defend each
+ * other, using the column masks of BitBoards and the occupancy bitboards of the board.
+ */
+public final class RookStructureAnalyzer {
+	
+	public static final int OPEN_COLUMN_BONUS = 25;
+	public static final int SEMI_OPEN_COLUMN_BONUS = 10;
+	public static final int SEVENTH_RANK_BONUS = 20;
+	public static final int CONNECTED_ROOKS_BONUS = 15;
+	
+	private static final long WHITE_SEVENTH_RANK = BitBoards.toBitBoard(BoardUtils.SEVENTH_RANK);
+	private static final long BLACK_SEVENTH_RANK = BitBoards.toBitBoard(BoardUtils.SECOND_RANK);
+	
+	private static final RookStructureAnalyzer INSTANCE = new RookStructureAnalyzer();
+	
+	private RookStructureAnalyzer() {
+	}
+	
+	public static RookStructureAnalyzer get() {
+		
+		return INSTANCE;
+	}
+	
+	/**
+	 * Function that scores the rooks of one side
+	 * @param board     the board to score
+	 * @param player    the side whose rooks are scored
+	 * @return    the rook bonus of the side
+	 */
+	public int rookStructureScore(final Board board, final Player player) {
+		
+		return rookStructureScore(board, player.getAlliance());
+	}
+	
+	public int rookStructureScore(final Board board, final Alliance alliance) {
+		
+		final long rooks = board.getPieceBitBoard(PieceType.ROOK, alliance);
+		if(rooks == 0) {
+			return 0;
+		}
+		final long ownPawns = board.getPieceBitBoard(PieceType.PAWN, alliance);
+		final long allPawns = ownPawns | board.getPieceBitBoard(PieceType.PAWN, alliance.isWhite() ? Alliance.BLACK : Alliance.WHITE);
+		final long seventhRank = alliance.isWhite() ? WHITE_SEVENTH_RANK : BLACK_SEVENTH_RANK;
+		
+		int score = SEVENTH_RANK_BONUS * Long.bitCount(rooks & seventhRank);
+		long remaining = rooks;
+		while(remaining != 0) {
+			final long column = BitBoards.COLUMNS[BitBoards.column(Long.numberOfTrailingZeros(remaining))];
+			if((allPawns & column) == 0) {
+				score += OPEN_COLUMN_BONUS;
+			}
+			else if((ownPawns & column) == 0) {
+				score += SEMI_OPEN_COLUMN_BONUS;
+			}
+			remaining &= remaining - 1;
+		}
+		if(Long.bitCount(rooks) > 1 && connected(rooks, board.getOccupancy())) {
+			score += CONNECTED_ROOKS_BONUS;
+		}
+		
+		return score;
+	}
+	
+	private static boolean connected(final long rooks, final long occupancy) {
+		
+		final int firstRook = Long.numberOfTrailingZeros(rooks);
+		return (BitBoards.rookAttacks(firstRook, occupancy) & (rooks & (rooks - 1))) != 0;
+	}
+}
@@ -0,0 +1,106 @@
+package com.chess.engine.player.ai;
+
+import java.util.List;
+
+import com.chess.engine.board.Move;
+
+public final class SearchInfo {
+
+	private final int depth;
+	private final int multiPV;
+	private final int selectiveDepth;
+	private final int score;
+	private final long nodes;
+	private final long elapsedMillis;
+	private final int hashFull;
+	private final List<Move> principalVariation;
+	
+	public SearchInfo(final int depth,
+					  final int multiPV,
+					  final int selectiveDepth,
+					  final int score,
+					  final long nodes,
+					  final long elapsedMillis,
+					  final int hashFull,
+					  final List<Move> principalVariation) {
+		
+		this.depth = depth;
+		this.multiPV = multiPV;
+		this.selectiveDepth = selectiveDepth;
+		this.score = score;
+		this.nodes = nodes;
+		this.elapsedMillis = elapsedMillis;
+		this.hashFull = hashFull;
+		this.principalVariation = principalVariation;
+	}
+	
+	@Override
+	public String toString() {
+		
+		final StringBuilder builder = new StringBuilder();
+		builder.append("depth ").append(this.depth)
+			   .append(" seldepth ").append(this.selectiveDepth);
+		if(this.multiPV > 1) {
+			builder.append(" multipv ").append(this.multiPV);
+		}
+		builder.append(" score ").append(this.score)
+			   .append(" nodes ").append(this.nodes)
+			   .append(" nps ").append(getNodesPerSecond())
+			   .append(" hashfull ").append(this.hashFull)
+			   .append(" time ").append(this.elapsedMillis)
+			   .append(" pv");
+		for(final Move move : this.principalVariation) {
+			builder.append(' ').append(move);
+		}
+		
+		return builder.toString();
+	}
+	
+	public int getDepth() {
+		return this.depth;
+	}
+	
+	/**
+	 * A function that returns which line of a multi-PV search this information belongs to
+	 * @return    1 for the best line, 2 for the second best and so on
+	 */
+	public int getMultiPV() {
+		return this.multiPV;
+	}
+	
+	public int getSelectiveDepth() {
+		return this.selectiveDepth;
+	}
+	
+	/**
+	 * A function that returns the score of the iteration from white's point of view
+	 * @return    the score in centipawns, positive when white is better
+	 */
+	public int getScore() {
+		return this.score;
+	}
+	
+	public long getNodes() {
+		return this.nodes;
+	}
+	
+	public long getElapsedMillis() {
+		return this.elapsedMillis;
+	}
+	
+	public long getNodesPerSecond() {
+		return this.elapsedMillis == 0 ? this.nodes * 1000 : (this.nodes * 1000) / this.elapsedMillis;
+	}
+	
+	/**
+	 * A function that returns how much of the transposition table is in use
+	 * @return    the occupancy in permille, or 0 when the strategy has no table
+	 */
+	public int getHashFull() {
+		return this.hashFull;
+	}
+	
+	public List<Move> getPrincipalVariation() {
+		return this.principalVariation;
+	}
+}
@@ -0,0 +1,14 @@
+package com.chess.engine.player.ai;
+
+/**
+ * Callback for following a search while it runs. Strategies call it from the searching thread, so
+ * implementations that touch the GUI have to hand the information over to the event dispatch thread.
+ */
+public interface SearchListener {
+
+	/**
+	 * Function called every time the search completes an iteration
+	 * @param searchInfo    statistics and principal variation of the completed iteration
+	 */
+	void iterationCompleted(SearchInfo searchInfo);
+}
@@ -1,35 +1,110 @@
 package com.chess.engine.player.ai;
 
+import com.chess.engine.Alliance;
 import com.chess.engine.board.Board;
-import com.chess.engine.pieces.Piece;
+import com.chess.engine.board.PieceSquareTables;
 import com.chess.engine.player.Player;
 
 public class StandardBoardEvaluator implements BoardEvaluator {
 
-	private static final int CHECK_BONUS = 50;
+	private static final int MIDDLEGAME_CHECK_BONUS = 50;
+	private static final int ENDGAME_CHECK_BONUS = 30;
 	private static final int CHECK_MATE_BONUS = 10000;
 	private static final int DEPTH_BONUS = 100;
-	private static final int CASTLE_BONUS = 60;
+	private static final int MIDDLEGAME_CASTLE_BONUS = 60;
+	private static final int ENDGAME_CASTLE_BONUS = 0;
+	private static final int LAZY_EVALUATION_MARGIN = 300;
 	
 	@Override
 	public int evaluate(final Board board, final int depth) {
 
-		return scorePlayer(board, board.whitePlayer(), depth) - 
-				scorePlayer(board, board.blackPlayer(), depth);
+		final AttackInfo attackInfo = new AttackInfo(board);
+		final long pawnStructure = PawnStructureAnalyzer.get().pawnStructureScore(board);
+		final int middlegameScore = board.getMiddlegameScore() +
+				PawnStructureAnalyzer.getMiddlegameScore(pawnStructure) +
+				kingSafety(board, attackInfo) +
+				middlegamePlayer(board.whitePlayer()) - 
+				middlegamePlayer(board.blackPlayer());
+		final int endgameScore = board.getEndgameScore() +
+				PawnStructureAnalyzer.getEndgameScore(pawnStructure) +
+				endgamePlayer(board.whitePlayer()) - 
+				endgamePlayer(board.blackPlayer());
+		
+		return taper(middlegameScore, endgameScore, board.getPhase()) +
+				scorePlayer(board, board.whitePlayer(), depth, attackInfo) - 
+				scorePlayer(board, board.blackPlayer(), depth, attackInfo);
+	}
+
+	/**
+	 * Function that evaluates a board lazily. Material and piece-square scores come for free from the board,
+	 * so they are looked at first, and when they leave the score more than LAZY_EVALUATION_MARGIN outside
+	 * the window the attack, pawn, king and rook terms are never worked out
+	 */
+	@Override
+	public int evaluate(final Board board, final int depth, final int alpha, final int beta) {
+		
+		final int lazyScore = taper(board.getMiddlegameScore(), board.getEndgameScore(), board.getPhase()) +
+							  depthAdjustment(board, depth);
+		if(lazyScore + LAZY_EVALUATION_MARGIN <= alpha || lazyScore - LAZY_EVALUATION_MARGIN >= beta) {
+			return lazyScore;
+		}
+		
+		return evaluate(board, depth);
+	}
+
+	@Override
+	public int depthAdjustment(final Board board, final int depth) {
+		
+		return checkmate(board.whitePlayer(), depth) - checkmate(board.blackPlayer(), depth);
+	}
+
+	/**
+	 * Helper function that blends a middlegame and an endgame score by game phase
+	 * @param middlegameScore    the score that applies with all pieces on the board
+	 * @param endgameScore       the score that applies with only kings and pawns left
+	 * @param phase              the game phase, from 0 to PieceSquareTables.MAX_PHASE
+	 * @return    the interpolated score
+	 */
+	private static int taper(final int middlegameScore, final int endgameScore, final int phase) {
+		
+		return (middlegameScore * phase + endgameScore * (PieceSquareTables.MAX_PHASE - phase)) / PieceSquareTables.MAX_PHASE;
 	}
 
-	private int scorePlayer(final Board board, final Player player, int depth) {
+	/**
+	 * Helper function that scores the king safety of both sides. It only counts in the middlegame half of
+	 * the score, since with the heavy pieces gone the king is better off in the centre
+	 * @param board         the board to score
+	 * @param attackInfo    the attack masks of the board
+	 * @return    the king safety balance from white's point of view
+	 */
+	private static int kingSafety(final Board board, final AttackInfo attackInfo) {
 		
-		return pieceValue(player) + 
-			   mobility(player) + 
-			   check(player) + 
-			   checkmate(player, depth) + 
-			   castled(player);
+		return KingSafetyAnalyzer.get().kingSafety(board, Alliance.WHITE, attackInfo) -
+			   KingSafetyAnalyzer.get().kingSafety(board, Alliance.BLACK, attackInfo);
+	}
+
+	private int scorePlayer(final Board board, final Player player, final int depth, final AttackInfo attackInfo) {
+		
+		return mobility(player.getAlliance(), attackInfo) + 
+			   RookStructureAnalyzer.get().rookStructureScore(board, player) + 
+			   checkmate(player, depth);
+	}
+	
+	private static int middlegamePlayer(final Player player) {
+		
+		return check(player, MIDDLEGAME_CHECK_BONUS) + 
+			   castled(player, MIDDLEGAME_CASTLE_BONUS);
+	}
+	
+	private static int endgamePlayer(final Player player) {
+		
+		return check(player, ENDGAME_CHECK_BONUS) + 
+			   castled(player, ENDGAME_CASTLE_BONUS);
 	}
 	
-	private static int castled(final Player player) {
+	private static int castled(final Player player, final int castleBonus) {
 		
-		return player.isCastled() ? CASTLE_BONUS : 0;
+		return player.isCastled() ? castleBonus : 0;
 	}
 
 	private static int checkmate(final Player player, final int depth) {
@@ -42,24 +117,21 @@ public class StandardBoardEvaluator implements BoardEvaluator {
 		return depth == 0 ? 1 : DEPTH_BONUS * depth;
 	}
 
-	private static int check(final Player player) {
+	private static int check(final Player player, final int checkBonus) {
 		
-		return player.getOpponent().isInCheck() ? CHECK_BONUS : 0;
+		return player.getOpponent().isInCheck() ? checkBonus : 0;
 	}
 
-	private static int mobility(final Player player) {
-		
-		return player.getLegalMoves().size();
-	}
-
-	private static int pieceValue(final Player player) {
-		
-		int pieceValueScore = 0;
-		for(final Piece piece : player.getActivePieces()) {
-			pieceValueScore += piece.getPieceValue();
-		}
+	/**
+	 * Helper function that scores piece mobility from attack masks rather than from the legal move list,
+	 * so tiles covered by enemy pawns no longer count and nothing has to be generated per leaf
+	 * @param alliance      the side to score
+	 * @param attackInfo    the attack masks of the board
+	 * @return    the mobility bonus of the side
+	 */
+	private static int mobility(final Alliance alliance, final AttackInfo attackInfo) {
 		
-		return pieceValueScore;
+		return attackInfo.getMobility(alliance);
 	}
 
 }
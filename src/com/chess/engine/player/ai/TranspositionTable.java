@@ -0,0 +1,125 @@
+package com.chess.engine.player.ai;
+
+import java.util.Arrays;
+
+/**
+ * Hash table of search results keyed by Zobrist hash. Entries are packed into primitive arrays and
+ * written without locking: the key is stored xor'ed with the entry, so a torn write from another
+ * thread shows up as a key mismatch instead of a wrong result. One table can therefore be shared by
+ * several searches, for instance a ponder search and the search that follows it.
+ */
+public final class TranspositionTable {
+	
+	public static final int EXACT = 1;
+	public static final int LOWER_BOUND = 2;
+	public static final int UPPER_BOUND = 3;
+	
+	public static final long NO_ENTRY = 0L;
+	public static final int NO_MOVE = 127;
+	
+	private static final int BYTES_PER_ENTRY = 16;
+	private static final int HASH_FULL_SAMPLE = 1000;
+	
+	private final long[] keys;
+	private final long[] entries;
+	private final int mask;
+	
+	/**
+	 * Constructor for TranspositionTable
+	 * @param sizeInMegabytes    the memory to use, rounded down to a power of two number of entries
+	 */
+	public TranspositionTable(final int sizeInMegabytes) {
+		
+		final int numEntries = Integer.highestOneBit(Math.max(1, (int)(((long) sizeInMegabytes << 20) / BYTES_PER_ENTRY)));
+		this.keys = new long[numEntries];
+		this.entries = new long[numEntries];
+		this.mask = numEntries - 1;
+	}
+	
+	/**
+	 * Function that looks up a position
+	 * @param key    the Zobrist hash of the position
+	 * @return    the packed entry, or NO_ENTRY if the position is not in the table
+	 */
+	public long probe(final long key) {
+		
+		final int index = (int) key & this.mask;
+		final long entry = this.entries[index];
+		return (this.keys[index] ^ entry) == key ? entry : NO_ENTRY;
+	}
+	
+	/**
+	 * Function that stores a search result, replacing the old entry unless it belongs to another
+	 * position and was searched deeper
+	 * @param key                 the Zobrist hash of the position
+	 * @param depth               the remaining depth the position was searched to
+	 * @param score               the score of the position from white's point of view
+	 * @param flag                EXACT, LOWER_BOUND or UPPER_BOUND
+	 * @param moveSource          the source coordinate of the best move, or NO_MOVE
+	 * @param moveDestination     the destination coordinate of the best move, or NO_MOVE
+	 */
+	public void store(final long key,
+					  final int depth,
+					  final int score,
+					  final int flag,
+					  final int moveSource,
+					  final int moveDestination) {
+		
+		final int index = (int) key & this.mask;
+		final long oldEntry = this.entries[index];
+		if(oldEntry != NO_ENTRY && (this.keys[index] ^ oldEntry) != key && getDepth(oldEntry) > depth) {
+			return;
+		}
+		
+		final long entry = (score & 0xFFFFFFFFL) |
+						   ((long) (depth & 0xFF) << 32) |
+						   ((long) flag << 40) |
+						   ((long) (moveSource & 0x7F) << 42) |
+						   ((long) (moveDestination & 0x7F) << 49);
+		this.entries[index] = entry;
+		this.keys[index] = key ^ entry;
+	}
+	
+	public void clear() {
+		
+		Arrays.fill(this.keys, 0L);
+		Arrays.fill(this.entries, 0L);
+	}
+	
+	/**
+	 * Function that estimates how full the table is from a sample at the start of the table
+	 * @return    the number of used entries per thousand
+	 */
+	public int hashFull() {
+		
+		final int sampleSize = Math.min(HASH_FULL_SAMPLE, this.entries.length);
+		int used = 0;
+		for(int i = 0; i < sampleSize; i++) {
+			if(this.entries[i] != NO_ENTRY) {
+				used++;
+			}
+		}
+		
+		return used * 1000 / sampleSize;
+	}
+	
+	public static int getScore(final long entry) {
+		return (int) entry;
+	}
+	
+	public static int getDepth(final long entry) {
+		return (int) (entry >>> 32) & 0xFF;
+	}
+	
+	public static int getFlag(final long entry) {
+		return (int) (entry >>> 40) & 0x3;
+	}
+	
+	public static int getMoveSource(final long entry) {
+		return (int) (entry >>> 42) & 0x7F;
+	}
+	
+	public static int getMoveDestination(final long entry) {
+		return (int) (entry >>> 49) & 0x7F;
+	}
+}
@@ -6,6 +6,7 @@ import javax.swing.table.DefaultTableModel;
 import com.chess.engine.board.Board;
 import com.chess.engine.board.Move;
 import com.chess.gui.Table.MoveLog;
+import com.chess.pgn.SANUtilities;
 
 import java.awt.*;
 import java.util.ArrayList;
@@ -33,43 +34,27 @@ public class GameHistoryPanel extends JPanel {
 		
 		int currentRow = 0;
 		this.model.clear();
-		for(final Move move : moveHistory.getMoves()) {
-			final String moveText = move.toString();
+		final List<Move> moves = moveHistory.getMoves();
+		for(int i = 0; i < moves.size(); i++) {
+			final Move move = moves.get(i);
+			final Board boardAfter = i + 1 < moves.size() ? moves.get(i + 1).getBoard() : board;
+			final String moveText = SANUtilities.toSAN(move, boardAfter);
 			if(move.getMovedPiece().getPieceAlliance().isWhite()) {
 				this.model.setValueAt(moveText, currentRow, 0);
 			}
 			else if(move.getMovedPiece().getPieceAlliance().isBlack()) {
+				if(i == 0) {
+					this.model.setValueAt("...", currentRow, 0);
+				}
 				this.model.setValueAt(moveText, currentRow, 1);
 				currentRow++;
 			}
 		}
 		
-		if(moveHistory.getMoves().size() > 0) {
-			final Move lastMove = moveHistory.getMoves().get(moveHistory.size() - 1);
-			final String moveText = lastMove.toString();
-			
-			if(lastMove.getMovedPiece().getPieceAlliance().isWhite()) {
-				this.model.setValueAt(moveText + calculateCheckAndCheckMateHash(board), currentRow, 0);
-			}
-			else if(lastMove.getMovedPiece().getPieceAlliance().isBlack()) {
-				this.model.setValueAt(moveText + calculateCheckAndCheckMateHash(board), currentRow - 1, 1);
-			}
-		}
-		
 		final JScrollBar vertical = scrollPane.getVerticalScrollBar();
 		vertical.setValue(vertical.getMaximum());
 	}
 	
-	private String calculateCheckAndCheckMateHash(final Board board) {
-		if(board.currentPlayer().isInCheckMate()) {
-			return "#";
-		}
-		else if(board.currentPlayer().isInCheck()) {
-			return "+";
-		}
-		return "";
-	}
-	
 	private static class DataModel extends DefaultTableModel {
 		
 		private final List<Row> values;
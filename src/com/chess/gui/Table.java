@@ -9,14 +9,28 @@ import com.chess.engine.board.Move;
 import com.chess.engine.board.Tile;
 import com.chess.engine.pieces.Piece;
 import com.chess.engine.player.MoveTransition;
-import com.chess.engine.player.ai.MiniMax;
+import com.chess.engine.player.ai.BoardEvaluator;
+import com.chess.engine.player.ai.BookMoveStrategy;
+import com.chess.engine.player.ai.CachingBoardEvaluator;
+import com.chess.engine.player.ai.IterativeDeepening;
 import com.chess.engine.player.ai.MoveStrategy;
+import com.chess.engine.player.ai.NeuralBoardEvaluator;
+import com.chess.engine.player.ai.NeuralNetwork;
+import com.chess.engine.player.ai.PolyglotBook;
+import com.chess.engine.player.ai.SearchInfo;
+import com.chess.engine.player.ai.StandardBoardEvaluator;
+import com.chess.engine.player.ai.TranspositionTable;
+import com.chess.pgn.PGNGame;
+import com.chess.pgn.PGNReader;
+import com.chess.pgn.PGNUtilities;
+import com.chess.pgn.ParsePGNException;
 
 import java.awt.*;
 import java.awt.event.*;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -33,14 +47,21 @@ public class Table extends Observable {
 	private final GameHistoryPanel gameHistoryPanel;
 	private final TakenPiecesPanel takenPiecesPanel;
 	private final BoardPanel boardPanel;
+	private final JLabel searchInfoLabel;
 	private final MoveLog moveLog;
 	private final GameSetup gameSetup;
+	private final TranspositionTable transpositionTable;
+	private final CachingBoardEvaluator evaluationCache;
+	private NeuralNetwork neuralNetwork;
+	private PolyglotBook openingBook;
 	private Board chessBoard;
 	private BoardDirection boardDirection;
 	
 	private Move computerMove;
+	private AIThinkTank thinkTank;
 	
 	private boolean highlightLegalMoves;
+	private boolean ponder;
 	
 	private Tile sourceTile;
 	private Tile destinationTile;
@@ -49,6 +70,9 @@ public class Table extends Observable {
 	private static final Dimension OUTER_FRAME_DIMENSION = new Dimension(700, 600);
 	private static final Dimension BOARD_PANEL_DIMENSION = new Dimension(400, 350);
 	private static final Dimension TILE_PANEL_DIMENSION = new Dimension(10, 10);
+	private static final long SEARCH_INFO_INTERVAL_MILLIS = 100;
+	private static final int TRANSPOSITION_TABLE_SIZE_MB = 32;
+	private static final int EVALUATION_CACHE_SIZE_MB = 4;
 	
 	private static String defaultPieceImagesPath = "art/pieces/plain/";
 	
@@ -62,18 +86,30 @@ public class Table extends Observable {
 		final JMenuBar tableMenuBar = createTableMenuBar();
 		this.gameFrame.setJMenuBar(tableMenuBar);
 		this.gameFrame.setSize(OUTER_FRAME_DIMENSION);
+		this.gameFrame.setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
+		this.gameFrame.addWindowListener(new WindowAdapter() {
+			@Override
+			public void windowClosing(WindowEvent e) {
+				Table.get().stopThinking();
+			}
+		});
 		this.chessBoard = Board.createStandardBoard();
 		this.gameHistoryPanel = new GameHistoryPanel();
 		this.takenPiecesPanel = new TakenPiecesPanel();
 		this.boardPanel = new BoardPanel();
+		this.searchInfoLabel = new JLabel(" ");
 		this.moveLog = new MoveLog();
 		this.addObserver(new TableGameAIWatcher());
 		this.gameSetup = new GameSetup(this.gameFrame, true);
+		this.transpositionTable = new TranspositionTable(TRANSPOSITION_TABLE_SIZE_MB);
+		this.evaluationCache = new CachingBoardEvaluator(new StandardBoardEvaluator(), EVALUATION_CACHE_SIZE_MB);
 		this.boardDirection = BoardDirection.NORMAL;
 		this.gameFrame.add(this.takenPiecesPanel, BorderLayout.WEST);
 		this.gameFrame.add(this.boardPanel, BorderLayout.CENTER);
 		this.gameFrame.add(this.gameHistoryPanel, BorderLayout.EAST);
+		this.gameFrame.add(this.searchInfoLabel, BorderLayout.SOUTH);
 		highlightLegalMoves = true;
+		ponder = true;
 		
 		this.gameFrame.setVisible(true);
 	}
@@ -108,11 +144,32 @@ public class Table extends Observable {
 	private JMenu createFileMenu() {
 		
 		final JMenu fileMenu = new JMenu("File");
+		final JMenuItem newGameMenuItem = new JMenuItem("New Game");
+		newGameMenuItem.addActionListener(new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				Table.get().stopThinking();
+				Table.get().updateGameBoard(Board.createStandardBoard());
+				Table.get().show();
+				Table.get().setupUpdate(Table.get().getGameSetup());
+			}
+		});
+		fileMenu.add(newGameMenuItem);
+		
 		final JMenuItem openPGN = new JMenuItem("Load PGN File");
 		openPGN.addActionListener(new ActionListener() {
 			@Override
 			public void actionPerformed(ActionEvent e) {
-				System.out.println("Open up that pgn file!");
+				final JFileChooser fileChooser = new JFileChooser();
+				if(fileChooser.showOpenDialog(gameFrame) != JFileChooser.APPROVE_OPTION) {
+					return;
+				}
+				try {
+					Table.get().loadPGNGame(fileChooser.getSelectedFile().toPath());
+				}
+				catch(final IOException | ParsePGNException ex) {
+					JOptionPane.showMessageDialog(gameFrame, "Could not load game: " + ex.getMessage());
+				}
 			}
 		});
 		fileMenu.add(openPGN);
@@ -121,6 +178,7 @@ public class Table extends Observable {
 		exitMenuItem.addActionListener(new ActionListener() {
 			@Override
 			public void actionPerformed(ActionEvent e) {
+				Table.get().stopThinking();
 				System.exit(0);
 			}
 		});
@@ -156,6 +214,21 @@ public class Table extends Observable {
 		});
 		preferencesMenu.add(legalMoveHighlighterCheckbox);
 		
+		final JCheckBoxMenuItem ponderCheckbox = new JCheckBoxMenuItem("Think on Opponent's Time", true);
+		
+		ponderCheckbox.addActionListener(new ActionListener() {
+
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				ponder = ponderCheckbox.isSelected();
+				if(!ponder && thinkTank != null && thinkTank.isPondering()) {
+					stopThinking();
+				}
+			}
+			
+		});
+		preferencesMenu.add(ponderCheckbox);
+		
 		
 		return preferencesMenu;
 	}
@@ -168,16 +241,118 @@ public class Table extends Observable {
 
 			@Override
 			public void actionPerformed(ActionEvent e) {
+				Table.get().stopThinking();
 				Table.get().getGameSetup().promptUser();
 				Table.get().setupUpdate(Table.get().getGameSetup());
 			}
 		});
 		
 		optionsMenu.add(setupGameMenuItem);
+		optionsMenu.addSeparator();
+		
+		final JMenuItem loadNetworkMenuItem = new JMenuItem("Load Evaluation Network...");
+		loadNetworkMenuItem.addActionListener(new ActionListener() {
+
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				final JFileChooser fileChooser = new JFileChooser();
+				if(fileChooser.showOpenDialog(gameFrame) != JFileChooser.APPROVE_OPTION) {
+					return;
+				}
+				try {
+					final NeuralNetwork network = NeuralNetwork.load(fileChooser.getSelectedFile().toPath());
+					Table.get().stopThinking();
+					Table.get().setNeuralNetwork(network);
+					Table.get().setupUpdate(Table.get().getGameSetup());
+				}
+				catch(final IOException ex) {
+					JOptionPane.showMessageDialog(gameFrame, "Could not load network: " + ex.getMessage());
+				}
+			}
+		});
+		optionsMenu.add(loadNetworkMenuItem);
+		
+		final JMenuItem standardEvaluationMenuItem = new JMenuItem("Use Standard Evaluation");
+		standardEvaluationMenuItem.addActionListener(new ActionListener() {
+
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				Table.get().stopThinking();
+				Table.get().setNeuralNetwork(null);
+				Table.get().setupUpdate(Table.get().getGameSetup());
+			}
+		});
+		optionsMenu.add(standardEvaluationMenuItem);
+		optionsMenu.addSeparator();
+		
+		final JMenuItem loadBookMenuItem = new JMenuItem("Load Opening Book...");
+		loadBookMenuItem.addActionListener(new ActionListener() {
+
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				final JFileChooser bookChooser = new JFileChooser();
+				bookChooser.setDialogTitle("Choose a Polyglot Book");
+				if(bookChooser.showOpenDialog(gameFrame) != JFileChooser.APPROVE_OPTION) {
+					return;
+				}
+				try {
+					final PolyglotBook book = PolyglotBook.open(bookChooser.getSelectedFile().toPath());
+					Table.get().stopThinking();
+					Table.get().setOpeningBook(book);
+					Table.get().setupUpdate(Table.get().getGameSetup());
+				}
+				catch(final IOException ex) {
+					JOptionPane.showMessageDialog(gameFrame, "Could not load opening book: " + ex.getMessage());
+				}
+			}
+		});
+		optionsMenu.add(loadBookMenuItem);
+		
+		final JMenuItem disableBookMenuItem = new JMenuItem("Disable Opening Book");
+		disableBookMenuItem.addActionListener(new ActionListener() {
+
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				Table.get().stopThinking();
+				Table.get().setOpeningBook(null);
+			}
+		});
+		optionsMenu.add(disableBookMenuItem);
 		
 		return optionsMenu;
 	}
 	
+	/**
+	 * Function that replaces the game on the board with the first game of a PGN file, played through to
+	 * its last move
+	 * @param file    the PGN file
+	 * @throws IOException          if the file cannot be read
+	 * @throws ParsePGNException    if the file holds no game or the game cannot be played
+	 */
+	private void loadPGNGame(final Path file) throws IOException, ParsePGNException {
+		
+		final PGNGame game;
+		try(final PGNReader reader = PGNReader.open(file, false)) {
+			if(!reader.hasNext()) {
+				throw new ParsePGNException("No game found in " + file.getFileName());
+			}
+			game = reader.next();
+		}
+		final List<Move> moves = new ArrayList<>();
+		final Board board = PGNUtilities.replayGame(game, moves);
+		
+		stopThinking();
+		updateGameBoard(board);
+		this.moveLog.clear();
+		for(final Move move : moves) {
+			this.moveLog.addMove(move);
+		}
+		this.gameHistoryPanel.redo(board, this.moveLog);
+		this.takenPiecesPanel.redo(this.moveLog);
+		this.boardPanel.drawBoard(board);
+		setupUpdate(this.gameSetup);
+	}
+	
 	private void setupUpdate(final GameSetup gameSetup) {
 		setChanged();
 		notifyObservers(gameSetup);
@@ -189,10 +364,12 @@ public class Table extends Observable {
 		public void update(final Observable o, final Object arg) {
 			
 			if(Table.get().getGameSetup().isAIPlayer(Table.get().getGameBoard().currentPlayer()) &&
+					!Table.get().isThinking() &&
 					!Table.get().getGameBoard().currentPlayer().isInCheckMate() &&
 					!Table.get().getGameBoard().currentPlayer().isInStaleMate()) {
 				
-				final AIThinkTank thinkTank = new AIThinkTank();
+				final AIThinkTank thinkTank = new AIThinkTank(Table.get().getGameBoard(), null);
+				Table.get().thinkTank = thinkTank;
 				thinkTank.execute();
 			}
 			
@@ -214,6 +391,100 @@ public class Table extends Observable {
 		this.computerMove = move;
 	}
 	
+	/**
+	 * Function that abandons the computer's current search, if there is one. The search returns within
+	 * a few milliseconds and its move is discarded.
+	 */
+	public void stopThinking() {
+		if(this.thinkTank != null && !this.thinkTank.isDone()) {
+			this.thinkTank.stopThinking();
+		}
+		this.thinkTank = null;
+	}
+	
+	private boolean isThinking() {
+		return this.thinkTank != null && !this.thinkTank.isDone() && !this.thinkTank.isPondering();
+	}
+	
+	private TranspositionTable getTranspositionTable() {
+		return this.transpositionTable;
+	}
+	
+	/**
+	 * Function that switches the computer player between the standard evaluation and a neural network.
+	 * Scores of one evaluator mean nothing to the other, so the transposition table and the evaluation
+	 * cache are emptied
+	 * @param neuralNetwork    the network to evaluate with, or null for the standard evaluation
+	 */
+	private void setNeuralNetwork(final NeuralNetwork neuralNetwork) {
+		this.neuralNetwork = neuralNetwork;
+		this.transpositionTable.clear();
+		this.evaluationCache.clear();
+	}
+	
+	/**
+	 * Function that sets the opening book the computer plays from before it starts searching. The
+	 * book it replaces is closed
+	 * @param openingBook    the book, or null to always search
+	 */
+	private void setOpeningBook(final PolyglotBook openingBook) {
+		if(this.openingBook != null) {
+			try {
+				this.openingBook.close();
+			}
+			catch(final IOException e) {
+				e.printStackTrace();
+			}
+		}
+		this.openingBook = openingBook;
+	}
+	
+	/**
+	 * Function that makes the evaluator for a search. A stopped search may still be running when the next
+	 * one starts, so every search gets an evaluator of its own, in front of the cache all of them share
+	 * @return    the evaluator
+	 */
+	private BoardEvaluator createBoardEvaluator() {
+		return this.evaluationCache.withEvaluator(this.neuralNetwork != null ?
+				new NeuralBoardEvaluator(this.neuralNetwork) : new StandardBoardEvaluator());
+	}
+	
+	/**
+	 * Function that starts searching the reply the computer expects from the human player, so the
+	 * computer keeps thinking while it waits. The search shares the transposition table with the
+	 * search that follows it.
+	 * @param principalVariation    the line the computer expects, starting with the move it just played
+	 */
+	private void startPondering(final List<Move> principalVariation) {
+		
+		if(!this.ponder || principalVariation.size() < 2 || this.gameSetup.isAIPlayer(this.chessBoard.currentPlayer())) {
+			return;
+		}
+		
+		final Move expectedReply = principalVariation.get(1);
+		final MoveTransition transition = this.chessBoard.currentPlayer().makeMove(expectedReply);
+		if(transition.getMoveStatus().isDone() && !transition.getTransitionBoard().currentPlayer().isInCheckMate() &&
+				!transition.getTransitionBoard().currentPlayer().isInStaleMate()) {
+			this.thinkTank = new AIThinkTank(transition.getTransitionBoard(), expectedReply);
+			this.thinkTank.execute();
+		}
+	}
+	
+	/**
+	 * Function called after the human player moved. If the computer was pondering on that move its
+	 * search carries on with the normal time budget, otherwise the ponder search is thrown away.
+	 * @param move    the move the human player made
+	 */
+	private void humanMoveMade(final Move move) {
+		
+		if(this.thinkTank != null && this.thinkTank.isPonderingOn(move)) {
+			this.thinkTank.ponderHit();
+		}
+		else {
+			stopThinking();
+		}
+	}
+	
 	private MoveLog getMoveLog() {
 		return this.moveLog;
 	}
@@ -230,6 +501,10 @@ public class Table extends Observable {
 		return this.boardPanel;
 	}
 	
+	private JLabel getSearchInfoLabel() {
+		return this.searchInfoLabel;
+	}
+	
 	private void moveMadeUpdate(final PlayerType playerType) {
 		setChanged();
 		notifyObservers(playerType);
@@ -237,24 +512,93 @@ public class Table extends Observable {
 	 
 	private static class AIThinkTank extends SwingWorker<Move, String> {
 		
-		private AIThinkTank() {
+		private final Board board;
+		private final Move ponderMove;
+		private final IterativeDeepening moveStrategy;
+		private final MoveStrategy playingStrategy;
+		private long lastPublishTime;
+		private volatile String lastSearchInfo;
+		private boolean moveMade;
+		
+		/**
+		 * Constructor for AIThinkTank
+		 * @param board         the board to search
+		 * @param ponderMove    the human move expected to lead to this board when pondering, or null to search for the current player
+		 */
+		private AIThinkTank(final Board board, final Move ponderMove) {
+			this.board = board;
+			this.ponderMove = ponderMove;
+			this.moveStrategy = new IterativeDeepening(Table.get().getGameSetup().getSearchDepth(),
+					Table.get().getGameSetup().getMoveTime() * 1000L, Table.get().getTranspositionTable(),
+					Table.get().createBoardEvaluator());
+			this.moveStrategy.setPondering(ponderMove != null);
+			this.moveStrategy.setSearchListener(this::searchInfoUpdate);
+			this.playingStrategy = Table.get().openingBook != null && ponderMove == null ?
+					new BookMoveStrategy(Table.get().openingBook, this.moveStrategy) : this.moveStrategy;
+		}
+		
+		private boolean isPondering() {
+			return this.moveStrategy.isPondering();
+		}
+		
+		private boolean isPonderingOn(final Move move) {
+			return isPondering() && this.ponderMove.equals(move);
+		}
+		
+		private void ponderHit() {
+			this.moveStrategy.ponderHit();
+			if(isDone()) {
+				done();
+			}
+		}
+		
+		/**
+		 * Function called on the search thread after every iteration. Updates are published at most once
+		 * per SEARCH_INFO_INTERVAL_MILLIS so a fast search cannot flood the event dispatch thread; the last
+		 * update is always shown once the search is done.
+		 * @param searchInfo    the statistics of the completed iteration
+		 */
+		private void searchInfoUpdate(final SearchInfo searchInfo) {
 			
+			this.lastSearchInfo = (isPondering() ? "(pondering " + this.ponderMove + ") " : "") + searchInfo;
+			final long now = System.currentTimeMillis();
+			if(now - this.lastPublishTime >= SEARCH_INFO_INTERVAL_MILLIS) {
+				this.lastPublishTime = now;
+				publish(this.lastSearchInfo);
+			}
+		}
+		
+		@Override
+		protected void process(final List<String> searchInfos) {
+			
+			if(!isCancelled()) {
+				Table.get().getSearchInfoLabel().setText(searchInfos.get(searchInfos.size() - 1));
+			}
 		}
 		
 		@Override
 		protected Move doInBackground() throws Exception {
 			
-			final MoveStrategy miniMax = new MiniMax(4);
-			final Move bestMove = miniMax.execute(Table.get().getGameBoard());
+			final Move bestMove = this.playingStrategy.execute(this.board);
 			
 			return bestMove;
 		}
 		
+		private void stopThinking() {
+			this.moveStrategy.stop();
+			cancel(true);
+		}
+		
 		@Override
 		public void done() {
 			
+			if(isCancelled() || isPondering() || this.moveMade) {
+				return;
+			}
+			
 			try {
 				final Move bestMove = get();
+				Table.get().getSearchInfoLabel().setText(this.lastSearchInfo != null ? this.lastSearchInfo : "Book move " + bestMove);
 				
 				Table.get().updateComputerMove(bestMove);
 				Table.get().updateGameBoard(Table.get().getGameBoard().currentPlayer().makeMove(bestMove).getTransitionBoard());
@@ -262,7 +606,9 @@ public class Table extends Observable {
 				Table.get().getGameHistoryPanel().redo(Table.get().getGameBoard(), Table.get().getMoveLog());
 				Table.get().getTakenPiecesPanel().redo(Table.get().getMoveLog());
 				Table.get().getBoardPanel().drawBoard(Table.get().getGameBoard());
+				this.moveMade = true;
 				Table.get().moveMadeUpdate(PlayerType.COMPUTER);
+				Table.get().startPondering(this.moveStrategy.getPrincipalVariation());
 				
 			} catch (InterruptedException | ExecutionException e) {
 				e.printStackTrace();
@@ -375,6 +721,7 @@ public class Table extends Observable {
 							if(transition.getMoveStatus().isDone()) {
 								chessBoard = transition.getTransitionBoard();
 								moveLog.addMove(move);
+								humanMoveMade(move);
 							}
 							sourceTile = null;
 							destinationTile = null;
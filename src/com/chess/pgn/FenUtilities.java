@@ -0,0 +1,286 @@
+package com.chess.pgn;
+
+import com.chess.engine.Alliance;
+import com.chess.engine.board.Board;
+import com.chess.engine.board.BoardUtils;
+import com.chess.engine.board.Tile;
+import com.chess.engine.board.Zobrist;
+import com.chess.engine.pieces.Bishop;
+import com.chess.engine.pieces.King;
+import com.chess.engine.pieces.Knight;
+import com.chess.engine.pieces.Pawn;
+import com.chess.engine.pieces.Piece;
+import com.chess.engine.pieces.Queen;
+import com.chess.engine.pieces.Rook;
+
+/**
+ * Reads and writes positions in Forsyth-Edwards Notation. Parsing walks the characters of the FEN
+ * once and hands pieces straight to a Board.Builder, without splitting it into strings first, so
+ * large EPD files and test suites can be loaded quickly. Castling rights are carried by the first
+ * move flags of kings and rooks, as they are everywhere else on the board.
+ */
+public final class FenUtilities {
+	
+	private static final String PIECE_LETTERS = "PNBRQK";
+	
+	private FenUtilities() {
+		
+		throw new RuntimeException("Cannot initiate this class");
+	}
+	
+	/**
+	 * Function that builds a board from a FEN. The half move clock and full move number may be left out,
+	 * as they are in EPD, and default to 0 and 1; anything after the last field is ignored
+	 * @param fen    the FEN to parse
+	 * @return    the board the FEN describes
+	 * @throws IllegalArgumentException    if the FEN is malformed
+	 */
+	public static Board createGameFromFEN(final CharSequence fen) {
+		
+		final Piece[] pieces = new Piece[BoardUtils.NUM_TILES];
+		int index = skipSpaces(fen, 0);
+		int coordinate = 0;
+		for(; index < fen.length() && fen.charAt(index) != ' '; index++) {
+			final char c = fen.charAt(index);
+			if(c == '/') {
+				if(coordinate % BoardUtils.NUM_TILES_PER_ROW != 0) {
+					throw invalid(fen, "rank too short");
+				}
+				continue;
+			}
+			if(c >= '1' && c <= '8') {
+				coordinate += c - '0';
+			}
+			else {
+				if(coordinate >= BoardUtils.NUM_TILES || PIECE_LETTERS.indexOf(Character.toUpperCase(c)) < 0) {
+					throw invalid(fen, "bad piece placement");
+				}
+				pieces[coordinate] = createPiece(c, coordinate);
+				coordinate++;
+			}
+		}
+		if(coordinate != BoardUtils.NUM_TILES) {
+			throw invalid(fen, "piece placement does not cover the board");
+		}
+		
+		index = skipSpaces(fen, index);
+		if(index >= fen.length() || (fen.charAt(index) != 'w' && fen.charAt(index) != 'b')) {
+			throw invalid(fen, "no side to move");
+		}
+		final Alliance nextMoveMaker = fen.charAt(index++) == 'w' ? Alliance.WHITE : Alliance.BLACK;
+		
+		index = skipSpaces(fen, index);
+		boolean whiteKingSide = false;
+		boolean whiteQueenSide = false;
+		boolean blackKingSide = false;
+		boolean blackQueenSide = false;
+		for(; index < fen.length() && fen.charAt(index) != ' '; index++) {
+			switch(fen.charAt(index)) {
+				case 'K': whiteKingSide = true; break;
+				case 'Q': whiteQueenSide = true; break;
+				case 'k': blackKingSide = true; break;
+				case 'q': blackQueenSide = true; break;
+				case '-': break;
+				default: throw invalid(fen, "bad castling rights");
+			}
+		}
+		
+		index = skipSpaces(fen, index);
+		int enPassantPawnCoordinate = -1;
+		if(index < fen.length() && fen.charAt(index) != '-') {
+			if(index + 1 >= fen.length()) {
+				throw invalid(fen, "bad en passant square");
+			}
+			final int column = fen.charAt(index) - 'a';
+			final int rank = fen.charAt(index + 1) - '1';
+			if(column < 0 || column >= BoardUtils.NUM_TILES_PER_ROW || (rank != 2 && rank != 5)) {
+				throw invalid(fen, "bad en passant square");
+			}
+			final int target = (BoardUtils.NUM_TILES_PER_ROW - 1 - rank) * BoardUtils.NUM_TILES_PER_ROW + column;
+			enPassantPawnCoordinate = target + (rank == 2 ? -BoardUtils.NUM_TILES_PER_ROW : BoardUtils.NUM_TILES_PER_ROW);
+			index += 2;
+		}
+		else if(index < fen.length()) {
+			index++;
+		}
+		
+		index = skipSpaces(fen, index);
+		int halfMoveClock = 0;
+		int fullMoveNumber = 1;
+		if(index < fen.length() && Character.isDigit(fen.charAt(index))) {
+			int end = index;
+			while(end < fen.length() && Character.isDigit(fen.charAt(end))) {
+				halfMoveClock = halfMoveClock * 10 + fen.charAt(end++) - '0';
+			}
+			index = skipSpaces(fen, end);
+			if(index < fen.length() && Character.isDigit(fen.charAt(index))) {
+				fullMoveNumber = 0;
+				while(index < fen.length() && Character.isDigit(fen.charAt(index))) {
+					fullMoveNumber = fullMoveNumber * 10 + fen.charAt(index++) - '0';
+				}
+			}
+		}
+		
+		setCastlingRights(pieces, 60, 63, 56, whiteKingSide, whiteQueenSide);
+		setCastlingRights(pieces, 4, 7, 0, blackKingSide, blackQueenSide);
+		
+		final Board.Builder builder = new Board.Builder();
+		for(final Piece piece : pieces) {
+			if(piece != null) {
+				builder.setPiece(piece);
+			}
+		}
+		if(enPassantPawnCoordinate >= 0) {
+			final Piece enPassantPawn = pieces[enPassantPawnCoordinate];
+			if(enPassantPawn == null || !enPassantPawn.getPieceType().equals(Piece.PieceType.PAWN) ||
+			   enPassantPawn.getPieceAlliance() == nextMoveMaker) {
+				throw invalid(fen, "no pawn to take en passant");
+			}
+			builder.setEnPassantPawn((Pawn) enPassantPawn);
+		}
+		builder.setMoveMaker(nextMoveMaker);
+		builder.setHalfMoveClock(halfMoveClock);
+		builder.setFullMoveNumber(fullMoveNumber);
+		
+		return builder.build();
+	}
+	
+	/**
+	 * Function that writes the FEN of a board
+	 * @param board    the board to describe
+	 * @return    the FEN of the board
+	 */
+	public static String createFENFromGame(final Board board) {
+		
+		return appendFEN(board, new StringBuilder(90)).toString();
+	}
+	
+	/**
+	 * Function that appends the FEN of a board to a StringBuilder, so callers writing many positions can
+	 * reuse one builder
+	 * @param board      the board to describe
+	 * @param builder    the builder to append to
+	 * @return    the builder
+	 */
+	public static StringBuilder appendFEN(final Board board, final StringBuilder builder) {
+		
+		for(int row = 0; row < BoardUtils.NUM_TILES_PER_ROW; row++) {
+			int emptyTiles = 0;
+			for(int column = 0; column < BoardUtils.NUM_TILES_PER_ROW; column++) {
+				final Tile tile = board.getTile(row * BoardUtils.NUM_TILES_PER_ROW + column);
+				if(!tile.isTileOccupied()) {
+					emptyTiles++;
+					continue;
+				}
+				if(emptyTiles > 0) {
+					builder.append(emptyTiles);
+					emptyTiles = 0;
+				}
+				final Piece piece = tile.getPiece();
+				final char letter = PIECE_LETTERS.charAt(piece.getPieceType().ordinal());
+				builder.append(piece.getPieceAlliance().isWhite() ? letter : Character.toLowerCase(letter));
+			}
+			if(emptyTiles > 0) {
+				builder.append(emptyTiles);
+			}
+			if(row < BoardUtils.NUM_TILES_PER_ROW - 1) {
+				builder.append('/');
+			}
+		}
+		
+		builder.append(' ').append(board.currentPlayer().getAlliance().isWhite() ? 'w' : 'b').append(' ');
+		final int castlingStart = builder.length();
+		if(Zobrist.hasCastlingRight(board, 60, 63)) {
+			builder.append('K');
+		}
+		if(Zobrist.hasCastlingRight(board, 60, 56)) {
+			builder.append('Q');
+		}
+		if(Zobrist.hasCastlingRight(board, 4, 7)) {
+			builder.append('k');
+		}
+		if(Zobrist.hasCastlingRight(board, 4, 0)) {
+			builder.append('q');
+		}
+		if(builder.length() == castlingStart) {
+			builder.append('-');
+		}
+		
+		builder.append(' ');
+		final Pawn enPassantPawn = board.getEnPassantPawn();
+		if(enPassantPawn != null) {
+			final int target = enPassantPawn.getPiecePosition() - enPassantPawn.getPieceAlliance().getDirection() * BoardUtils.NUM_TILES_PER_ROW;
+			builder.append(BoardUtils.getPositionAtCoordinate(target));
+		}
+		else {
+			builder.append('-');
+		}
+		
+		return builder.append(' ').append(board.getHalfMoveClock()).append(' ').append(board.getFullMoveNumber());
+	}
+	
+	/**
+	 * Helper function that creates a piece from its FEN letter. Pawns on their starting rank may still
+	 * jump; kings and rooks start without castling rights, which setCastlingRights hands out afterwards
+	 */
+	private static Piece createPiece(final char letter, final int coordinate) {
+		
+		final Alliance alliance = Character.isUpperCase(letter) ? Alliance.WHITE : Alliance.BLACK;
+		switch(Character.toUpperCase(letter)) {
+			case 'P':
+				final boolean onStartingRank = alliance.isWhite() ? BoardUtils.SECOND_RANK[coordinate] : BoardUtils.SEVENTH_RANK[coordinate];
+				return new Pawn(coordinate, alliance, onStartingRank);
+			case 'N':
+				return new Knight(coordinate, alliance, false);
+			case 'B':
+				return new Bishop(coordinate, alliance, false);
+			case 'R':
+				return new Rook(coordinate, alliance, false);
+			case 'Q':
+				return new Queen(coordinate, alliance, false);
+			default:
+				return new King(coordinate, alliance, false);
+		}
+	}
+	
+	private static void setCastlingRights(final Piece[] pieces,
+										  final int kingCoordinate,
+										  final int kingSideRookCoordinate,
+										  final int queenSideRookCoordinate,
+										  final boolean kingSide,
+										  final boolean queenSide) {
+		
+		final Piece king = pieces[kingCoordinate];
+		if(king == null || !king.getPieceType().isKing() || !(kingSide || queenSide)) {
+			return;
+		}
+		pieces[kingCoordinate] = new King(kingCoordinate, king.getPieceAlliance(), true);
+		if(kingSide) {
+			setFirstMove(pieces, kingSideRookCoordinate, king.getPieceAlliance());
+		}
+		if(queenSide) {
+			setFirstMove(pieces, queenSideRookCoordinate, king.getPieceAlliance());
+		}
+	}
+	
+	private static void setFirstMove(final Piece[] pieces, final int rookCoordinate, final Alliance alliance) {
+		
+		final Piece rook = pieces[rookCoordinate];
+		if(rook != null && rook.getPieceType().isRook() && rook.getPieceAlliance() == alliance) {
+			pieces[rookCoordinate] = new Rook(rookCoordinate, alliance, true);
+		}
+	}
+	
+	private static int skipSpaces(final CharSequence fen, int index) {
+		
+		while(index < fen.length() && fen.charAt(index) == ' ') {
+			index++;
+		}
+		return index;
+	}
+	
+	private static IllegalArgumentException invalid(final CharSequence fen, final String reason) {
+		
+		return new IllegalArgumentException("Invalid FEN (" + reason + "): " + fen);
+	}
+}
@@ -0,0 +1,711 @@
+package com.chess.pgn;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.Move;
+
+/**
+ * A game store kept in a directory of files, with no server behind it. Games go into a binary game
+ * archive, which serves as the append-only log, and its offset index. Two more append-only files hold
+ * for every game its players, result and ECO code, and the Zobrist keys of the positions it went
+ * through. The first is read into memory when the store is opened, so lookups by player, result and
+ * opening are map lookups. The second is written as one run per batch, its keys sorted, so a lookup
+ * by position is a binary search in every run; runs are never changed once written, so these lookups
+ * do not hold up imports or each other. When MERGE_FACTOR runs of about the same size pile up at the
+ * end of the list they are merged into one run written after them, so the number of runs to search
+ * grows with the logarithm of the number of games. The runs a merge replaces are left in the file until
+ * the store is next opened, when they are cut out.
+ * <p>
+ * A batch is written to the archive first and to the two lists after it. Every record in the lists is
+ * framed by its length, so when the store is next opened after the process was killed, records cut
+ * short and records of games that never reached the archive are dropped, and games that reached the
+ * archive but not the lists are replayed from the archive to write their records again. A batch leaves
+ * the queue as soon as it is in the archive, so when writing the lists fails the next write catches them
+ * up from the archive the same way, and no game is stored twice.
+ */
+public final class FileGamePersistence implements GamePersistence {
+	
+	private static final String ARCHIVE_FILE = "games.cga";
+	private static final String INDEX_FILE = "games.cgi";
+	private static final String TAGS_FILE = "tags.dat";
+	private static final String POSITIONS_FILE = "positions.dat";
+	private static final int BATCH_SIZE = 1024;
+	private static final int BUFFER_SIZE = 1 << 16;
+	private static final int RUN_HEADER_SIZE = Integer.BYTES + Long.BYTES + Integer.BYTES;
+	private static final int POSITION_ENTRY_SIZE = Long.BYTES + Long.BYTES;
+	/** How many runs of about the same size are merged into one */
+	private static final int MERGE_FACTOR = 8;
+	
+	private final GameArchiveWriter writer;
+	private final GameArchiveReader reader;
+	private final DataOutputStream tags;
+	private final DataOutputStream positions;
+	private final FileChannel positionsChannel;
+	private final Map<String, List<Long>> gamesByPlayer;
+	private final Map<String, List<Long>> gamesByResult;
+	private final Map<String, List<Long>> gamesByOpening;
+	/** The runs of the position list in the order of their games, replaced as a whole when it changes */
+	private volatile List<PositionRun> positionRuns;
+	private final List<PendingGame> batch;
+	/** The number of games in the tag list */
+	private long taggedGames;
+	/** The number of games in the position list */
+	private long indexedGames;
+	private long positionsLength;
+	
+	/**
+	 * Constructor for FileGamePersistence. The directory is created if it does not exist and the games
+	 * already in it are kept
+	 * @param directory    the directory holding the store
+	 * @throws IOException    if the store cannot be opened
+	 */
+	public FileGamePersistence(final Path directory) throws IOException {
+		
+		Files.createDirectories(directory);
+		this.gamesByPlayer = new HashMap<>();
+		this.gamesByResult = new HashMap<>();
+		this.gamesByOpening = new HashMap<>();
+		this.positionRuns = Collections.emptyList();
+		this.batch = new ArrayList<>(BATCH_SIZE);
+		this.writer = new GameArchiveWriter(directory.resolve(ARCHIVE_FILE), directory.resolve(INDEX_FILE), true);
+		this.writer.flush();
+		this.reader = new GameArchiveReader(directory.resolve(ARCHIVE_FILE), directory.resolve(INDEX_FILE));
+		
+		final Path tagsFile = directory.resolve(TAGS_FILE);
+		final Path positionsFile = directory.resolve(POSITIONS_FILE);
+		truncate(tagsFile, loadTags(tagsFile, this.writer.getGameCount()));
+		this.positionsLength = loadPositionRuns(positionsFile, this.writer.getGameCount());
+		truncate(positionsFile, this.positionsLength);
+		compactPositionRuns(positionsFile);
+		this.tags = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tagsFile,
+				StandardOpenOption.CREATE, StandardOpenOption.APPEND), BUFFER_SIZE));
+		this.positions = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(positionsFile,
+				StandardOpenOption.CREATE, StandardOpenOption.APPEND), BUFFER_SIZE));
+		this.positionsChannel = FileChannel.open(positionsFile, StandardOpenOption.READ);
+		recoverGames();
+	}
+	
+	/**
+	 * Function that queues a game for the next batch. The game is encoded on the calling thread, and the
+	 * batch is written by whichever thread fills it
+	 * @throws IllegalArgumentException    if the game is too large for the archive format
+	 */
+	@Override
+	public void gameImported(final PGNGame game, final List<Move> moves, final Board finalBoard) {
+		
+		final PendingGame pendingGame = new PendingGame(game, moves, finalBoard);
+		synchronized(this) {
+			this.batch.add(pendingGame);
+			if(this.batch.size() >= BATCH_SIZE) {
+				try {
+					writeBatch();
+				}
+				catch(final IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+		}
+	}
+	
+	@Override
+	public synchronized long persistGame(final PGNGame game, final List<Move> moves) throws IOException {
+		
+		final Board finalBoard;
+		if(moves.isEmpty()) {
+			finalBoard = PGNUtilities.createStartingBoard(game);
+		}
+		else {
+			final Move lastMove = moves.get(moves.size() - 1);
+			finalBoard = lastMove.getBoard().currentPlayer().makeMove(lastMove).getTransitionBoard();
+		}
+		this.batch.add(new PendingGame(game, moves, finalBoard));
+		writeBatch();
+		return this.writer.getGameCount() - 1;
+	}
+	
+	@Override
+	public synchronized void flush() throws IOException {
+		
+		writeBatch();
+	}
+	
+	@Override
+	public long getGameCount() {
+		
+		return this.writer.getGameCount();
+	}
+	
+	@Override
+	public PGNGame getGame(final long gameId) throws IOException {
+		
+		return this.reader.readGame(gameId);
+	}
+	
+	@Override
+	public synchronized List<Long> findGamesByPlayer(final String player) {
+		
+		return lookup(this.gamesByPlayer, playerKey(player));
+	}
+	
+	@Override
+	public synchronized List<Long> findGamesByResult(final String result) {
+		
+		return lookup(this.gamesByResult, result);
+	}
+	
+	@Override
+	public synchronized List<Long> findGamesByOpening(final String eco) {
+		
+		return lookup(this.gamesByOpening, eco.toUpperCase(Locale.ROOT));
+	}
+	
+	/**
+	 * Function that finds the games in which a position came up with a binary search in every run of the
+	 * position list. It reads runs already written and takes no lock, so it can run alongside imports
+	 */
+	@Override
+	public List<Long> findGamesByPosition(final long zobristHash) throws IOException {
+		
+		final List<Long> games = new ArrayList<>();
+		final ByteBuffer entry = ByteBuffer.allocate(POSITION_ENTRY_SIZE);
+		for(final PositionRun run : this.positionRuns) {
+			run.findGames(this.positionsChannel, zobristHash, entry, games);
+		}
+		return games;
+	}
+	
+	@Override
+	public synchronized void close() throws IOException {
+		
+		try {
+			writeBatch();
+		}
+		finally {
+			this.writer.close();
+			this.reader.close();
+			this.tags.close();
+			this.positions.close();
+			this.positionsChannel.close();
+		}
+	}
+	
+	/**
+	 * Helper function that writes out the queued games, the archive first, so the tag and position lists
+	 * never hold a game the archive does not. Games leave the queue as they are appended to the archive,
+	 * so a write that fails part way is never repeated for them; the lists they are missing are written
+	 * by recoverGames on the next call
+	 */
+	private void writeBatch() throws IOException {
+		
+		if(this.taggedGames < this.writer.getGameCount() || this.indexedGames < this.writer.getGameCount()) {
+			this.writer.flush();
+			recoverGames();
+		}
+		if(this.batch.isEmpty()) {
+			return;
+		}
+		final long firstGameId = this.writer.getGameCount();
+		final List<PendingGame> games = new ArrayList<>(this.batch);
+		try {
+			for(final PendingGame pendingGame : games) {
+				this.writer.appendRecord(pendingGame.record);
+			}
+		}
+		finally {
+			this.batch.subList(0, (int) (this.writer.getGameCount() - firstGameId)).clear();
+		}
+		this.writer.flush();
+		
+		final List<long[]> positionKeys = new ArrayList<>(games.size());
+		long gameId = firstGameId;
+		for(final PendingGame pendingGame : games) {
+			writeTags(gameId++, pendingGame.game);
+			positionKeys.add(pendingGame.positionKeys);
+		}
+		this.tags.flush();
+		writePositionRun(firstGameId, positionKeys);
+	}
+	
+	/**
+	 * Helper function that writes the tag and position records of the games in the archive that the lists
+	 * are missing, as when the process was killed or a write failed between writing a batch to the archive
+	 * and to the lists
+	 */
+	private void recoverGames() throws IOException {
+		
+		final long gameCount = this.writer.getGameCount();
+		final List<Move> moves = new ArrayList<>();
+		final List<long[]> positionKeys = new ArrayList<>(BATCH_SIZE);
+		long firstGameId = this.indexedGames;
+		for(long gameId = Math.min(this.taggedGames, this.indexedGames); gameId < gameCount; gameId++) {
+			if(gameId >= this.taggedGames) {
+				writeTags(gameId, new PGNGame(this.reader.readTags(gameId), Collections.<String>emptyList()));
+			}
+			if(gameId >= this.indexedGames) {
+				moves.clear();
+				final Board finalBoard = this.reader.replayGame(gameId, moves);
+				positionKeys.add(positionKeys(moves, finalBoard));
+				if(positionKeys.size() == BATCH_SIZE) {
+					writePositionRun(firstGameId, positionKeys);
+					firstGameId += positionKeys.size();
+					positionKeys.clear();
+				}
+			}
+		}
+		this.tags.flush();
+		if(!positionKeys.isEmpty()) {
+			writePositionRun(firstGameId, positionKeys);
+		}
+	}
+	
+	private void writeTags(final long gameId, final PGNGame game) throws IOException {
+		
+		final String white = tag(game, "White");
+		final String black = tag(game, "Black");
+		final String result = game.getResult();
+		final String eco = tag(game, "ECO");
+		final ByteArrayOutputStream recordBytes = new ByteArrayOutputStream();
+		final DataOutputStream record = new DataOutputStream(recordBytes);
+		record.writeLong(gameId);
+		record.writeUTF(white);
+		record.writeUTF(black);
+		record.writeUTF(result);
+		record.writeUTF(eco);
+		this.tags.writeInt(recordBytes.size());
+		recordBytes.writeTo(this.tags);
+		indexTags(gameId, white, black, result, eco);
+		this.taggedGames = gameId + 1;
+	}
+	
+	/**
+	 * Helper function that appends the positions of consecutive games to the position list as one run,
+	 * sorted by key and then by game, makes the run visible to lookups once it is on disk and merges the
+	 * runs that have piled up behind it
+	 * @param firstGameId     the id of the first game
+	 * @param positionKeys    the distinct position keys of each game
+	 */
+	private void writePositionRun(final long firstGameId, final List<long[]> positionKeys) throws IOException {
+		
+		int entryCount = 0;
+		for(final long[] gameKeys : positionKeys) {
+			entryCount += gameKeys.length;
+		}
+		final long[] keys = new long[entryCount];
+		final long[] gameIds = new long[entryCount];
+		int entry = 0;
+		for(int game = 0; game < positionKeys.size(); game++) {
+			for(final long key : positionKeys.get(game)) {
+				keys[entry] = key;
+				gameIds[entry++] = firstGameId + game;
+			}
+		}
+		PositionIndexBuilder.sort(keys, gameIds, 0, entryCount);
+		
+		this.positions.writeInt(RUN_HEADER_SIZE - Integer.BYTES + entryCount * POSITION_ENTRY_SIZE);
+		this.positions.writeLong(firstGameId);
+		this.positions.writeInt(positionKeys.size());
+		for(int i = 0; i < entryCount; i++) {
+			this.positions.writeLong(keys[i]);
+			this.positions.writeLong(gameIds[i]);
+		}
+		this.positions.flush();
+		
+		final List<PositionRun> runs = new ArrayList<>(this.positionRuns);
+		runs.add(new PositionRun(this.positionsLength + RUN_HEADER_SIZE, entryCount, firstGameId, positionKeys.size()));
+		this.positionRuns = Collections.unmodifiableList(runs);
+		this.positionsLength += RUN_HEADER_SIZE + (long) entryCount * POSITION_ENTRY_SIZE;
+		this.indexedGames = firstGameId + positionKeys.size();
+		mergePositionRuns();
+	}
+	
+	/**
+	 * Helper function that merges the runs at the end of the position list while MERGE_FACTOR of them are
+	 * of the same size level. The merged run is appended, so lookups reading the runs it replaces are
+	 * never disturbed, and it takes their place in one step once it is on disk
+	 */
+	private void mergePositionRuns() throws IOException {
+		
+		while(true) {
+			final List<PositionRun> runs = this.positionRuns;
+			final int level = runs.get(runs.size() - 1).level();
+			int first = runs.size() - 1;
+			while(first > 0 && runs.get(first - 1).level() == level) {
+				first--;
+			}
+			if(runs.size() - first < MERGE_FACTOR) {
+				return;
+			}
+			final List<PositionRun> mergedRuns = runs.subList(first, runs.size());
+			long entryCount = 0;
+			long gameCount = 0;
+			for(final PositionRun run : mergedRuns) {
+				entryCount += run.entryCount;
+				gameCount += run.gameCount;
+			}
+			if(RUN_HEADER_SIZE - Integer.BYTES + entryCount * POSITION_ENTRY_SIZE > Integer.MAX_VALUE) {
+				return;
+			}
+			
+			final RunCursor[] cursors = new RunCursor[mergedRuns.size()];
+			for(int i = 0; i < cursors.length; i++) {
+				cursors[i] = new RunCursor(this.positionsChannel, mergedRuns.get(i));
+			}
+			final long firstGameId = mergedRuns.get(0).firstGameId;
+			this.positions.writeInt((int) (RUN_HEADER_SIZE - Integer.BYTES + entryCount * POSITION_ENTRY_SIZE));
+			this.positions.writeLong(firstGameId);
+			this.positions.writeInt((int) gameCount);
+			while(true) {
+				RunCursor next = null;
+				for(final RunCursor cursor : cursors) {
+					if(cursor.hasEntry() && (next == null || cursor.key < next.key)) {
+						next = cursor;
+					}
+				}
+				if(next == null) {
+					break;
+				}
+				this.positions.writeLong(next.key);
+				this.positions.writeLong(next.gameId);
+				next.advance();
+			}
+			this.positions.flush();
+			
+			final List<PositionRun> merged = new ArrayList<>(runs.subList(0, first));
+			merged.add(new PositionRun(this.positionsLength + RUN_HEADER_SIZE, entryCount, firstGameId, (int) gameCount));
+			this.positionRuns = Collections.unmodifiableList(merged);
+			this.positionsLength += RUN_HEADER_SIZE + entryCount * POSITION_ENTRY_SIZE;
+		}
+	}
+	
+	/**
+	 * Helper function that rewrites the position list without the runs that merges have replaced, while
+	 * the store is being opened and no lookup can be reading it. The list is written beside the old one
+	 * and moved over it, so a crash leaves one or the other
+	 */
+	private void compactPositionRuns(final Path positionsFile) throws IOException {
+		
+		long liveLength = 0;
+		for(final PositionRun run : this.positionRuns) {
+			liveLength += RUN_HEADER_SIZE + run.entryCount * POSITION_ENTRY_SIZE;
+		}
+		if(liveLength == this.positionsLength) {
+			return;
+		}
+		final Path compactedFile = positionsFile.resolveSibling(POSITIONS_FILE + ".tmp");
+		final List<PositionRun> runs = new ArrayList<>(this.positionRuns.size());
+		try(final FileChannel source = FileChannel.open(positionsFile, StandardOpenOption.READ);
+			final FileChannel target = FileChannel.open(compactedFile, StandardOpenOption.CREATE,
+					StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			long position = 0;
+			for(final PositionRun run : this.positionRuns) {
+				final long length = RUN_HEADER_SIZE + run.entryCount * POSITION_ENTRY_SIZE;
+				long copied = 0;
+				while(copied < length) {
+					copied += source.transferTo(run.offset - RUN_HEADER_SIZE + copied, length - copied, target);
+				}
+				runs.add(new PositionRun(position + RUN_HEADER_SIZE, run.entryCount, run.firstGameId, run.gameCount));
+				position += length;
+			}
+			target.force(false);
+		}
+		Files.move(compactedFile, positionsFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		this.positionRuns = Collections.unmodifiableList(runs);
+		this.positionsLength = liveLength;
+	}
+	
+	private void indexTags(final long gameId, final String white, final String black, final String result, final String eco) {
+		
+		this.gamesByPlayer.computeIfAbsent(playerKey(white), key -> new ArrayList<>()).add(gameId);
+		if(!playerKey(black).equals(playerKey(white))) {
+			this.gamesByPlayer.computeIfAbsent(playerKey(black), key -> new ArrayList<>()).add(gameId);
+		}
+		this.gamesByResult.computeIfAbsent(result, key -> new ArrayList<>()).add(gameId);
+		this.gamesByOpening.computeIfAbsent(eco.toUpperCase(Locale.ROOT), key -> new ArrayList<>()).add(gameId);
+	}
+	
+	/**
+	 * Helper function that reads the tag list into the lookup maps
+	 * @return    the length of the list up to the first record that is cut short or is not the record of
+	 *            the next game in the archive
+	 */
+	private long loadTags(final Path tagsFile, final long gameCount) throws IOException {
+		
+		if(!Files.exists(tagsFile)) {
+			return 0;
+		}
+		long validLength = 0;
+		try(final DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(tagsFile), BUFFER_SIZE))) {
+			while(true) {
+				final byte[] recordBytes = new byte[input.readInt()];
+				input.readFully(recordBytes);
+				final DataInputStream record = new DataInputStream(new ByteArrayInputStream(recordBytes));
+				final long gameId = record.readLong();
+				if(gameId != this.taggedGames || gameId >= gameCount) {
+					break;
+				}
+				indexTags(gameId, record.readUTF(), record.readUTF(), record.readUTF(), record.readUTF());
+				this.taggedGames = gameId + 1;
+				validLength += Integer.BYTES + recordBytes.length;
+			}
+		}
+		catch(final EOFException e) {
+			return validLength;
+		}
+		return validLength;
+	}
+	
+	/**
+	 * Helper function that walks the runs of the position list. A run that starts at an earlier game is
+	 * the merge of the runs from that game on and takes their place
+	 * @return    the length of the list up to the first run that is cut short or does not continue with
+	 *            the next game in the archive
+	 */
+	private long loadPositionRuns(final Path positionsFile, final long gameCount) throws IOException {
+		
+		if(!Files.exists(positionsFile)) {
+			return 0;
+		}
+		final List<PositionRun> runs = new ArrayList<>();
+		try(final FileChannel channel = FileChannel.open(positionsFile, StandardOpenOption.READ)) {
+			final long size = channel.size();
+			final ByteBuffer header = ByteBuffer.allocate(RUN_HEADER_SIZE);
+			long position = 0;
+			while(position + RUN_HEADER_SIZE <= size) {
+				header.clear();
+				readFully(channel, header, position);
+				final int length = header.getInt(0);
+				final long next = position + Integer.BYTES + length;
+				final long firstGameId = header.getLong(Integer.BYTES);
+				final int runGames = header.getInt(Integer.BYTES + Long.BYTES);
+				if(length < RUN_HEADER_SIZE - Integer.BYTES || next > size || runGames < 0 || firstGameId + runGames > gameCount) {
+					break;
+				}
+				if(firstGameId != this.indexedGames) {
+					int replaced = runs.size();
+					while(replaced > 0 && runs.get(replaced - 1).firstGameId > firstGameId) {
+						replaced--;
+					}
+					if(firstGameId + runGames != this.indexedGames || replaced == 0 || runs.get(replaced - 1).firstGameId != firstGameId) {
+						break;
+					}
+					runs.subList(replaced - 1, runs.size()).clear();
+				}
+				runs.add(new PositionRun(position + RUN_HEADER_SIZE, (next - position - RUN_HEADER_SIZE) / POSITION_ENTRY_SIZE, firstGameId, runGames));
+				this.indexedGames = firstGameId + runGames;
+				position = next;
+			}
+			return position;
+		}
+		finally {
+			this.positionRuns = Collections.unmodifiableList(runs);
+		}
+	}
+	
+	private static void readFully(final FileChannel channel, final ByteBuffer buffer, final long position) throws IOException {
+		
+		while(buffer.hasRemaining()) {
+			if(channel.read(buffer, position + buffer.position()) < 0) {
+				throw new EOFException();
+			}
+		}
+	}
+	
+	private static void truncate(final Path file, final long length) throws IOException {
+		
+		if(Files.exists(file) && Files.size(file) > length) {
+			try(final FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+				channel.truncate(length);
+			}
+		}
+	}
+	
+	private static List<Long> lookup(final Map<String, List<Long>> games, final String key) {
+		
+		final List<Long> gameIds = games.get(key);
+		return gameIds != null ? Collections.unmodifiableList(new ArrayList<>(gameIds)) : Collections.emptyList();
+	}
+	
+	private static String playerKey(final String player) {
+		
+		return player.trim().toLowerCase(Locale.ROOT);
+	}
+	
+	private static String tag(final PGNGame game, final String name) {
+		
+		final String value = game.getTag(name);
+		return value != null ? value : "";
+	}
+	
+	/**
+	 * Helper function that collects the distinct Zobrist keys of the positions of a game, sorted
+	 */
+	private static long[] positionKeys(final List<Move> moves, final Board finalBoard) {
+		
+		final long[] keys = new long[moves.size() + 1];
+		for(int i = 0; i < moves.size(); i++) {
+			keys[i] = moves.get(i).getBoard().getZobristHash();
+		}
+		keys[moves.size()] = finalBoard.getZobristHash();
+		Arrays.sort(keys);
+		int numKeys = 0;
+		for(int i = 0; i < keys.length; i++) {
+			if(i == 0 || keys[i] != keys[i - 1]) {
+				keys[numKeys++] = keys[i];
+			}
+		}
+		return Arrays.copyOf(keys, numKeys);
+	}
+	
+	/**
+	 * A game encoded for storage, waiting for its batch to be written
+	 */
+	private static final class PendingGame {
+		
+		private final byte[] record;
+		private final PGNGame game;
+		private final long[] positionKeys;
+		
+		PendingGame(final PGNGame game, final List<Move> moves, final Board finalBoard) {
+			
+			this.record = GameArchiveWriter.encodeRecord(game, moves);
+			this.game = game;
+			this.positionKeys = positionKeys(moves, finalBoard);
+		}
+	}
+	
+	/**
+	 * A run of the position list: entries of a key and a game id, sorted by key and then by game
+	 */
+	private static final class PositionRun {
+		
+		private final long offset;
+		private final long entryCount;
+		private final long firstGameId;
+		private final int gameCount;
+		
+		PositionRun(final long offset, final long entryCount, final long firstGameId, final int gameCount) {
+			
+			this.offset = offset;
+			this.entryCount = entryCount;
+			this.firstGameId = firstGameId;
+			this.gameCount = gameCount;
+		}
+		
+		/**
+		 * Function that gives the size level of the run, the logarithm of its entry count to the base
+		 * MERGE_FACTOR, so that merging MERGE_FACTOR runs of a level makes a run of the next
+		 */
+		int level() {
+			
+			int level = 0;
+			for(long size = this.entryCount; size >= MERGE_FACTOR; size /= MERGE_FACTOR) {
+				level++;
+			}
+			return level;
+		}
+		
+		/**
+		 * Function that adds the games of the run in which a position came up, in the order they were stored
+		 * @param channel    the position list
+		 * @param key        the Zobrist key of the position
+		 * @param entry      a buffer for one entry
+		 * @param games      the list to add the game ids to
+		 */
+		void findGames(final FileChannel channel, final long key, final ByteBuffer entry, final List<Long> games) throws IOException {
+			
+			long low = 0;
+			long high = this.entryCount;
+			while(low < high) {
+				final long middle = (low + high) >>> 1;
+				if(readEntry(channel, middle, entry) < key) {
+					low = middle + 1;
+				}
+				else {
+					high = middle;
+				}
+			}
+			for(long index = low; index < this.entryCount && readEntry(channel, index, entry) == key; index++) {
+				games.add(entry.getLong(Long.BYTES));
+			}
+		}
+		
+		private long readEntry(final FileChannel channel, final long index, final ByteBuffer entry) throws IOException {
+			
+			entry.clear();
+			readFully(channel, entry, this.offset + index * POSITION_ENTRY_SIZE);
+			return entry.getLong(0);
+		}
+	}
+	
+	/**
+	 * Reads the entries of a run in order, a buffer at a time, for merging
+	 */
+	private static final class RunCursor {
+		
+		private final FileChannel channel;
+		private final ByteBuffer buffer;
+		private final long end;
+		private long position;
+		private boolean hasEntry;
+		private long key;
+		private long gameId;
+		
+		RunCursor(final FileChannel channel, final PositionRun run) throws IOException {
+			
+			this.channel = channel;
+			this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+			this.buffer.flip();
+			this.position = run.offset;
+			this.end = run.offset + run.entryCount * POSITION_ENTRY_SIZE;
+			advance();
+		}
+		
+		boolean hasEntry() {
+			
+			return this.hasEntry;
+		}
+		
+		/**
+		 * Function that moves on to the next entry of the run
+		 */
+		void advance() throws IOException {
+			
+			if(!this.buffer.hasRemaining()) {
+				if(this.position == this.end) {
+					this.hasEntry = false;
+					return;
+				}
+				this.buffer.clear();
+				this.buffer.limit((int) Math.min(this.buffer.capacity(), this.end - this.position));
+				readFully(this.channel, this.buffer, this.position);
+				this.position += this.buffer.limit();
+				this.buffer.flip();
+			}
+			this.key = this.buffer.getLong();
+			this.gameId = this.buffer.getLong();
+			this.hasEntry = true;
+		}
+	}
+}
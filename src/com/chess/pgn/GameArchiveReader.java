@@ -0,0 +1,205 @@
+package com.chess.pgn;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.Move;
+import com.chess.engine.player.MoveTransition;
+
+/**
+ * Reads games from a binary archive written by GameArchiveWriter. Finding game n takes one read of the
+ * index and one of the archive, however large the archive is; its moves are then replayed on the
+ * board from their indices among the moves of each position. Reads are positional, so one reader can
+ * be shared between threads.
+ */
+public final class GameArchiveReader implements Closeable {
+	
+	private final FileChannel archive;
+	private final FileChannel index;
+	
+	/**
+	 * Constructor for GameArchiveReader
+	 * @param archiveFile    the archive
+	 * @param indexFile      its index
+	 * @throws IOException    if the files cannot be opened or are not a game archive
+	 */
+	public GameArchiveReader(final Path archiveFile, final Path indexFile) throws IOException {
+		
+		this.archive = FileChannel.open(archiveFile, StandardOpenOption.READ);
+		this.index = FileChannel.open(indexFile, StandardOpenOption.READ);
+		try {
+			if(read(this.archive, 0, GameArchiveWriter.HEADER_SIZE).getInt() != GameArchiveWriter.ARCHIVE_MAGIC ||
+			   read(this.index, 0, GameArchiveWriter.HEADER_SIZE).getInt() != GameArchiveWriter.INDEX_MAGIC) {
+				throw new IOException("Not a game archive: " + archiveFile);
+			}
+		}
+		catch(final IOException e) {
+			close();
+			throw e;
+		}
+	}
+	
+	/**
+	 * Function that returns the number of games in the archive, including games a writer has appended and
+	 * flushed since this reader was opened
+	 * @return    the number of games
+	 * @throws IOException    if the index cannot be read
+	 */
+	public long getGameCount() throws IOException {
+		
+		return (this.index.size() - GameArchiveWriter.HEADER_SIZE) / Long.BYTES;
+	}
+	
+	/**
+	 * Function that reads the tags of a game without replaying its moves
+	 * @param gameNumber    the number of the game, counting from 0
+	 * @return    the tags of the game
+	 * @throws IOException    if the game cannot be read
+	 */
+	public Map<String, String> readTags(final long gameNumber) throws IOException {
+		
+		return readTags(readRecord(gameNumber));
+	}
+	
+	/**
+	 * Function that reads a game and replays its moves on the board
+	 * @param gameNumber    the number of the game, counting from 0
+	 * @param moves         the list the moves are added to as they are played
+	 * @return    the position after the last move
+	 * @throws IOException    if the game cannot be read or its moves do not fit the position
+	 */
+	public Board replayGame(final long gameNumber, final List<Move> moves) throws IOException {
+		
+		final ByteBuffer record = readRecord(gameNumber);
+		return replay(gameNumber, record, readTags(record), moves);
+	}
+	
+	/**
+	 * Function that reads a game back as a PGNGame, its moves written in SAN
+	 * @param gameNumber    the number of the game, counting from 0
+	 * @return    the game
+	 * @throws IOException    if the game cannot be read
+	 */
+	public PGNGame readGame(final long gameNumber) throws IOException {
+		
+		final ByteBuffer record = readRecord(gameNumber);
+		final Map<String, String> tags = readTags(record);
+		final List<Move> moves = new ArrayList<>();
+		final Board finalBoard = replay(gameNumber, record, tags, moves);
+		final List<String> sanMoves = new ArrayList<>(moves.size());
+		for(int i = 0; i < moves.size(); i++) {
+			final Board boardAfter = i + 1 < moves.size() ? moves.get(i + 1).getBoard() : finalBoard;
+			sanMoves.add(SANUtilities.toSAN(moves.get(i), boardAfter));
+		}
+		
+		return new PGNGame(tags, sanMoves);
+	}
+	
+	@Override
+	public void close() throws IOException {
+		
+		try {
+			this.archive.close();
+		}
+		finally {
+			this.index.close();
+		}
+	}
+	
+	private static Board replay(final long gameNumber, final ByteBuffer record, final Map<String, String> tags,
+								final List<Move> moves) throws IOException {
+		
+		final int plies = record.getShort() & 0xFFFF;
+		final String fen = tags.get("FEN");
+		Board board;
+		try {
+			board = fen != null ? FenUtilities.createGameFromFEN(fen) : Board.createStandardBoard();
+		}
+		catch(final IllegalArgumentException e) {
+			throw new IOException("Game " + gameNumber + " has a malformed FEN tag", e);
+		}
+		for(int ply = 0; ply < plies; ply++) {
+			final Move move = moveAt(board, record.get() & 0xFF);
+			if(move == null) {
+				throw new IOException("Game " + gameNumber + " has no move " + ply + " in its position");
+			}
+			final MoveTransition transition = board.currentPlayer().makeMove(move);
+			if(!transition.getMoveStatus().isDone()) {
+				throw new IOException("Game " + gameNumber + " has an illegal move at ply " + ply);
+			}
+			moves.add(move);
+			board = transition.getTransitionBoard();
+		}
+		
+		return board;
+	}
+	
+	private ByteBuffer readRecord(final long gameNumber) throws IOException {
+		
+		final long gameCount = getGameCount();
+		if(gameNumber < 0 || gameNumber >= gameCount) {
+			throw new IndexOutOfBoundsException("No game " + gameNumber + " in an archive of " + gameCount);
+		}
+		final long indexPosition = GameArchiveWriter.HEADER_SIZE + gameNumber * Long.BYTES;
+		final ByteBuffer offsets = read(this.index, indexPosition, gameNumber + 1 < gameCount ? 2 * Long.BYTES : Long.BYTES);
+		final long start = offsets.getLong();
+		final long end = offsets.hasRemaining() ? offsets.getLong() : this.archive.size();
+		
+		return read(this.archive, start, (int) (end - start));
+	}
+	
+	/**
+	 * Function that reads the tags at the start of a record and leaves the record positioned at the plies.
+	 * Tags are written by DataOutput.writeUTF in modified UTF-8, so they are read back by DataInput.readUTF
+	 * @param record    the record
+	 * @return    the tags, in the order they were written
+	 * @throws IOException    if the tags run past the end of the record
+	 */
+	private static Map<String, String> readTags(final ByteBuffer record) throws IOException {
+		
+		final DataInputStream input = new DataInputStream(new ByteArrayInputStream(record.array(),
+				record.arrayOffset() + record.position(), record.remaining()));
+		final Map<String, String> tags = new LinkedHashMap<>();
+		final int tagCount = input.readUnsignedByte();
+		for(int i = 0; i < tagCount; i++) {
+			final String name = input.readUTF();
+			tags.put(name, input.readUTF());
+		}
+		record.position(record.limit() - input.available());
+		return tags;
+	}
+	
+	private static Move moveAt(final Board board, final int moveIndex) {
+		
+		final Iterator<Move> moves = board.currentPlayer().getLegalMoves().iterator();
+		for(int i = 0; i < moveIndex && moves.hasNext(); i++) {
+			moves.next();
+		}
+		return moves.hasNext() ? moves.next() : null;
+	}
+	
+	private static ByteBuffer read(final FileChannel channel, final long position, final int length) throws IOException {
+		
+		final ByteBuffer buffer = ByteBuffer.allocate(length);
+		while(buffer.hasRemaining()) {
+			if(channel.read(buffer, position + buffer.position()) < 0) {
+				throw new EOFException("Game archive is truncated");
+			}
+		}
+		buffer.flip();
+		return buffer;
+	}
+}
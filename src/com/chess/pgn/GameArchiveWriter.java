@@ -0,0 +1,217 @@
+package com.chess.pgn;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+
+import com.chess.engine.board.Move;
+
+/**
+ * Writes games to a binary archive and its offset index, as read by GameArchiveReader.
+ * <p>
+ * The archive starts with ARCHIVE_MAGIC and holds one record per game: the number of tags as a byte,
+ * each tag's name and value as modified UTF-8, the number of plies as an unsigned short, and then one
+ * byte per ply giving the position of the move among the moves the player to move could choose from.
+ * Move generation lists those moves in an order that depends only on the position, so the byte is all
+ * a reader replaying the game needs. The index starts with INDEX_MAGIC and holds the archive offset of
+ * every game as a long, which lets a reader find game n with a single read.
+ */
+public final class GameArchiveWriter implements Closeable {
+	
+	static final int ARCHIVE_MAGIC = 0x43474131;
+	static final int INDEX_MAGIC = 0x43474931;
+	static final int HEADER_SIZE = Integer.BYTES;
+	static final int MAX_TAGS = 255;
+	static final int MAX_PLIES = 65535;
+	
+	private static final int BUFFER_SIZE = 1 << 16;
+	
+	private final DataOutputStream archive;
+	private final DataOutputStream index;
+	private long archiveSize;
+	private long gameCount;
+	
+	/**
+	 * Constructor for GameArchiveWriter. Existing files are overwritten
+	 * @param archiveFile    the archive to create
+	 * @param indexFile      the index to create
+	 * @throws IOException    if the files cannot be created
+	 */
+	public GameArchiveWriter(final Path archiveFile, final Path indexFile) throws IOException {
+		
+		this(archiveFile, indexFile, false);
+	}
+	
+	/**
+	 * Constructor for GameArchiveWriter
+	 * @param archiveFile    the archive
+	 * @param indexFile      its index
+	 * @param append         whether to add games to an existing archive instead of starting a new one
+	 * @throws IOException    if the files cannot be opened, or are not a game archive when appending
+	 */
+	public GameArchiveWriter(final Path archiveFile, final Path indexFile, final boolean append) throws IOException {
+		
+		if(append && Files.exists(archiveFile) && Files.size(archiveFile) > 0) {
+			this.archiveSize = Files.size(archiveFile);
+			this.gameCount = recoverIndex(archiveFile, indexFile, this.archiveSize);
+			this.archive = new DataOutputStream(new BufferedOutputStream(
+					Files.newOutputStream(archiveFile, StandardOpenOption.APPEND), BUFFER_SIZE));
+			this.index = new DataOutputStream(new BufferedOutputStream(
+					Files.newOutputStream(indexFile, StandardOpenOption.APPEND), BUFFER_SIZE));
+		}
+		else {
+			this.archive = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(archiveFile), BUFFER_SIZE));
+			this.index = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(indexFile), BUFFER_SIZE));
+			this.archive.writeInt(ARCHIVE_MAGIC);
+			this.index.writeInt(INDEX_MAGIC);
+			this.archiveSize = HEADER_SIZE;
+		}
+	}
+	
+	/**
+	 * Function that adds a game to the end of the archive. It is safe to call from several threads
+	 * @param game     the tags of the game
+	 * @param moves    the moves of the game as played on the board, as produced by PGNUtilities.replayGame
+	 * @return    the number of the game in the archive, counting from 0
+	 * @throws IOException    if the game cannot be written
+	 * @throws IllegalArgumentException    if the game has too many tags or plies for the format
+	 */
+	public long append(final PGNGame game, final List<Move> moves) throws IOException {
+		
+		return appendRecord(encodeRecord(game, moves));
+	}
+	
+	/**
+	 * Function that adds a record made by encodeRecord to the end of the archive
+	 * @param record    the encoded game
+	 * @return    the number of the game in the archive, counting from 0
+	 * @throws IOException    if the record cannot be written
+	 */
+	synchronized long appendRecord(final byte[] record) throws IOException {
+		
+		this.index.writeLong(this.archiveSize);
+		this.archive.write(record);
+		this.archiveSize += record.length;
+		return this.gameCount++;
+	}
+	
+	/**
+	 * Function that encodes a game as an archive record. It does not touch the archive, so games can be
+	 * encoded on many threads and appended on one
+	 * @param game     the tags of the game
+	 * @param moves    the moves of the game as played on the board
+	 * @return    the record
+	 * @throws IllegalArgumentException    if the game has too many tags or plies for the format
+	 */
+	static byte[] encodeRecord(final PGNGame game, final List<Move> moves) {
+		
+		final Map<String, String> tags = game.getTags();
+		if(tags.size() > MAX_TAGS || moves.size() > MAX_PLIES) {
+			throw new IllegalArgumentException("Game too large for the archive: " + game);
+		}
+		final ByteArrayOutputStream recordBytes = new ByteArrayOutputStream(64 * tags.size() + moves.size() + 3);
+		final DataOutputStream record = new DataOutputStream(recordBytes);
+		try {
+			record.writeByte(tags.size());
+			for(final Map.Entry<String, String> tag : tags.entrySet()) {
+				record.writeUTF(tag.getKey());
+				record.writeUTF(tag.getValue());
+			}
+			record.writeShort(moves.size());
+			for(final Move move : moves) {
+				record.writeByte(moveIndex(move));
+			}
+		}
+		catch(final IOException e) {
+			throw new IllegalArgumentException("Tag too long for the archive: " + game, e);
+		}
+		return recordBytes.toByteArray();
+	}
+	
+	public synchronized long getGameCount() {
+		
+		return this.gameCount;
+	}
+	
+	/**
+	 * Function that writes out the games appended so far, the archive before the index so that the index
+	 * never points past the end of the archive
+	 * @throws IOException    if the games cannot be written
+	 */
+	public synchronized void flush() throws IOException {
+		
+		this.archive.flush();
+		this.index.flush();
+	}
+	
+	@Override
+	public synchronized void close() throws IOException {
+		
+		try {
+			this.archive.close();
+		}
+		finally {
+			this.index.close();
+		}
+	}
+	
+	/**
+	 * Helper function that checks an archive about to be appended to and drops index entries for records
+	 * that never reached the archive, as can happen when a writer is killed mid-flush
+	 * @return    the number of games in the archive
+	 */
+	private static long recoverIndex(final Path archiveFile, final Path indexFile, final long archiveSize) throws IOException {
+		
+		try(final FileChannel archive = FileChannel.open(archiveFile, StandardOpenOption.READ);
+			final FileChannel index = FileChannel.open(indexFile, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			final ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+			buffer.limit(HEADER_SIZE);
+			archive.read(buffer, 0);
+			final int archiveMagic = buffer.getInt(0);
+			buffer.clear().limit(HEADER_SIZE);
+			index.read(buffer, 0);
+			if(archiveMagic != ARCHIVE_MAGIC || buffer.getInt(0) != INDEX_MAGIC) {
+				throw new IOException("Not a game archive: " + archiveFile);
+			}
+			
+			long gameCount = (index.size() - HEADER_SIZE) / Long.BYTES;
+			while(gameCount > 0) {
+				buffer.clear();
+				index.read(buffer, HEADER_SIZE + (gameCount - 1) * Long.BYTES);
+				if(buffer.getLong(0) < archiveSize) {
+					break;
+				}
+				gameCount--;
+			}
+			index.truncate(HEADER_SIZE + gameCount * Long.BYTES);
+			return gameCount;
+		}
+	}
+	
+	/**
+	 * Helper function that returns where a move stands among the moves of the player making it
+	 */
+	private static int moveIndex(final Move move) {
+		
+		int moveIndex = 0;
+		for(final Move candidate : move.getBoard().currentPlayer().getLegalMoves()) {
+			if(candidate == move || candidate.equals(move) && candidate.getClass() == move.getClass()) {
+				if(moveIndex > 255) {
+					throw new IllegalArgumentException("Move index does not fit in a byte: " + move);
+				}
+				return moveIndex;
+			}
+			moveIndex++;
+		}
+		throw new IllegalArgumentException("Move is not one of the moves of its board: " + move);
+	}
+}
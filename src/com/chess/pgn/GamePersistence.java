@@ -0,0 +1,69 @@
+package com.chess.pgn;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+import com.chess.engine.board.Move;
+
+/**
+ * Stores games and finds them again by player, result, opening or position. As a PGNGameSink a store
+ * can be handed straight to PGNImporter; games arriving that way are written in batches, and flush
+ * writes the last partial batch.
+ */
+public interface GamePersistence extends PGNGameSink, Closeable {
+	
+	/**
+	 * Function that stores a single game and writes it out at once
+	 * @param game     the tags and SAN moves of the game
+	 * @param moves    the moves as played on the board
+	 * @return    the id of the stored game
+	 * @throws IOException    if the game cannot be stored
+	 */
+	long persistGame(PGNGame game, List<Move> moves) throws IOException;
+	
+	/**
+	 * Function that writes out games that are waiting for their batch to fill
+	 * @throws IOException    if the games cannot be stored
+	 */
+	void flush() throws IOException;
+	
+	long getGameCount();
+	
+	/**
+	 * Function that loads a stored game
+	 * @param gameId    the id of the game
+	 * @return    the game, its moves in SAN
+	 * @throws IOException    if the game cannot be read
+	 */
+	PGNGame getGame(long gameId) throws IOException;
+	
+	/**
+	 * Function that finds the games a player played with either color
+	 * @param player    the name as given in the White and Black tags, in any case
+	 * @return    the ids of the games, in the order they were stored
+	 */
+	List<Long> findGamesByPlayer(String player);
+	
+	/**
+	 * Function that finds the games with a result
+	 * @param result    1-0, 0-1, 1/2-1/2 or *
+	 * @return    the ids of the games, in the order they were stored
+	 */
+	List<Long> findGamesByResult(String result);
+	
+	/**
+	 * Function that finds the games played in an opening
+	 * @param eco    the ECO code of the opening, such as C65
+	 * @return    the ids of the games, in the order they were stored
+	 */
+	List<Long> findGamesByOpening(String eco);
+	
+	/**
+	 * Function that finds the games in which a position came up
+	 * @param zobristHash    the Zobrist key of the position
+	 * @return    the ids of the games, in the order they were stored
+	 * @throws IOException    if the stored positions cannot be read
+	 */
+	List<Long> findGamesByPosition(long zobristHash) throws IOException;
+}
@@ -0,0 +1,219 @@
+package com.chess.pgn;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.Move;
+
+/**
+ * An opening tree built by OpeningTreeBuilder: for every position that came up in the opening of a game
+ * collection, the moves played from it, how the games went on to end, and the average rating of the
+ * players who chose each move.
+ * <p>
+ * The file is HEADER_SIZE bytes of MAGIC and record count followed by fixed size records sorted by
+ * position key and move: the key as a long, the move as a short holding its start and destination
+ * tiles, the number of games and the number white won and drew as ints, and the average rating as a
+ * short. A query maps the file and binary searches it for the position, with no search of the board.
+ */
+public final class OpeningTree implements Closeable {
+	
+	static final int MAGIC = 0x4F54524E;
+	static final int HEADER_SIZE = Integer.BYTES + Long.BYTES;
+	static final int RECORD_SIZE = Long.BYTES + Short.BYTES + 3 * Integer.BYTES + Short.BYTES;
+	
+	private static final int RECORDS_PER_SEGMENT = (1 << 30) / RECORD_SIZE;
+	
+	private final FileChannel channel;
+	private final MappedByteBuffer[] segments;
+	private final long recordCount;
+	
+	private OpeningTree(final FileChannel channel) throws IOException {
+		
+		this.channel = channel;
+		final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		if(channel.read(header, 0) != HEADER_SIZE || header.getInt(0) != MAGIC) {
+			throw new IOException("Not an opening tree");
+		}
+		this.recordCount = header.getLong(Integer.BYTES);
+		if(channel.size() < HEADER_SIZE + this.recordCount * RECORD_SIZE) {
+			throw new IOException("Opening tree is truncated");
+		}
+		this.segments = new MappedByteBuffer[(int) ((this.recordCount + RECORDS_PER_SEGMENT - 1) / RECORDS_PER_SEGMENT)];
+		for(int i = 0; i < this.segments.length; i++) {
+			final long firstRecord = (long) i * RECORDS_PER_SEGMENT;
+			final long records = Math.min(RECORDS_PER_SEGMENT, this.recordCount - firstRecord);
+			this.segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + firstRecord * RECORD_SIZE, records * RECORD_SIZE);
+		}
+	}
+	
+	/**
+	 * Function that opens an opening tree
+	 * @param treeFile    the file written by OpeningTreeBuilder
+	 * @return    the tree, to be closed by the caller
+	 * @throws IOException    if the file cannot be read or is not an opening tree
+	 */
+	public static OpeningTree open(final Path treeFile) throws IOException {
+		
+		final FileChannel channel = FileChannel.open(treeFile, StandardOpenOption.READ);
+		try {
+			return new OpeningTree(channel);
+		}
+		catch(final IOException e) {
+			channel.close();
+			throw e;
+		}
+	}
+	
+	public long getRecordCount() {
+		
+		return this.recordCount;
+	}
+	
+	/**
+	 * Function that looks up the moves played from a position. It is safe to call from several threads
+	 * @param board    the position
+	 * @return    the moves, most played first, left out if they are not legal on the board, as when two
+	 *            positions share a Zobrist key
+	 */
+	public List<OpeningMove> getMoves(final Board board) {
+		
+		final long key = board.getZobristHash();
+		long low = 0;
+		long high = this.recordCount;
+		while(low < high) {
+			final long middle = (low + high) >>> 1;
+			if(key(middle) < key) {
+				low = middle + 1;
+			}
+			else {
+				high = middle;
+			}
+		}
+		
+		final List<OpeningMove> moves = new ArrayList<>();
+		for(long record = low; record < this.recordCount && key(record) == key; record++) {
+			final ByteBuffer segment = segment(record);
+			final int offset = offset(record) + Long.BYTES;
+			final int encodedMove = segment.getShort(offset);
+			final Move move = Move.MoveFactory.createMove(board, encodedMove >>> 6 & 63, encodedMove & 63);
+			if(move == Move.NULL_MOVE || move.getMovedPiece().getPieceAlliance() != board.currentPlayer().getAlliance()) {
+				continue;
+			}
+			final int games = segment.getInt(offset + Short.BYTES);
+			final int whiteWins = segment.getInt(offset + Short.BYTES + Integer.BYTES);
+			final int draws = segment.getInt(offset + Short.BYTES + 2 * Integer.BYTES);
+			final int averageRating = segment.getShort(offset + Short.BYTES + 3 * Integer.BYTES) & 0xFFFF;
+			moves.add(new OpeningMove(move, games, whiteWins, draws, games - whiteWins - draws, averageRating));
+		}
+		Collections.sort(moves, (first, second) -> Integer.compare(second.getGames(), first.getGames()));
+		return moves;
+	}
+	
+	@Override
+	public void close() throws IOException {
+		
+		this.channel.close();
+	}
+	
+	static short encodeMove(final Move move) {
+		
+		return (short) (move.getCurrentCoordinate() << 6 | move.getDestinationCoordinate());
+	}
+	
+	private long key(final long record) {
+		
+		return segment(record).getLong(offset(record));
+	}
+	
+	private ByteBuffer segment(final long record) {
+		
+		return this.segments[(int) (record / RECORDS_PER_SEGMENT)];
+	}
+	
+	private static int offset(final long record) {
+		
+		return (int) (record % RECORDS_PER_SEGMENT) * RECORD_SIZE;
+	}
+	
+	/**
+	 * A move of the opening tree with the statistics of the games it was played in
+	 */
+	public static final class OpeningMove {
+		
+		private final Move move;
+		private final int games;
+		private final int whiteWins;
+		private final int draws;
+		private final int blackWins;
+		private final int averageRating;
+		
+		OpeningMove(final Move move, final int games, final int whiteWins, final int draws, final int blackWins, final int averageRating) {
+			
+			this.move = move;
+			this.games = games;
+			this.whiteWins = whiteWins;
+			this.draws = draws;
+			this.blackWins = blackWins;
+			this.averageRating = averageRating;
+		}
+		
+		public Move getMove() {
+			
+			return this.move;
+		}
+		
+		public int getGames() {
+			
+			return this.games;
+		}
+		
+		public int getWhiteWins() {
+			
+			return this.whiteWins;
+		}
+		
+		public int getDraws() {
+			
+			return this.draws;
+		}
+		
+		public int getBlackWins() {
+			
+			return this.blackWins;
+		}
+		
+		/**
+		 * Function that returns the average rating of the players who played the move
+		 * @return    the rating, or 0 if none of the games had one
+		 */
+		public int getAverageRating() {
+			
+			return this.averageRating;
+		}
+		
+		/**
+		 * Function that returns the score of the move for the player who played it
+		 * @return    the points scored per game, from 0 to 1
+		 */
+		public double getScore() {
+			
+			final int wins = this.move.getMovedPiece().getPieceAlliance().isWhite() ? this.whiteWins : this.blackWins;
+			return (wins + this.draws / 2.0) / this.games;
+		}
+		
+		@Override
+		public String toString() {
+			
+			return this.move + " " + this.games + " games +" + this.whiteWins + " =" + this.draws + " -" + this.blackWins + " rating " + this.averageRating;
+		}
+	}
+}
@@ -0,0 +1,344 @@
+package com.chess.pgn;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.Move;
+
+/**
+ * Builds an OpeningTree from a PGN file. The games are imported in parallel by PGNImporter, and each
+ * importer thread counts the opening moves of the games it replays in a map of its own. When a map holds
+ * RUN_SIZE moves it is sorted and written to a temporary file next to the tree, and emptied; once the
+ * import is done the remaining maps are written the same way, and the files are merged in a single pass
+ * that adds up the counts of each move, drops those played in too few games and writes the rest, so
+ * memory use depends on the number of threads rather than on the number of games. Games without a
+ * result are left out, since they say nothing about how a move scores.
+ */
+public final class OpeningTreeBuilder implements PGNGameSink {
+	
+	private static final int RUN_SIZE = 1 << 18;
+	private static final int BUFFER_SIZE = 1 << 16;
+	
+	private final int maxPly;
+	private final int runSize;
+	private final Path runDirectory;
+	private final List<Path> runs;
+	private final List<Map<TreeKey, MoveStatistics>> threadStatistics;
+	private final ThreadLocal<Map<TreeKey, MoveStatistics>> statistics;
+	
+	private OpeningTreeBuilder(final int maxPly, final int runSize, final Path runDirectory) {
+		
+		this.maxPly = maxPly;
+		this.runSize = runSize;
+		this.runDirectory = runDirectory;
+		this.runs = Collections.synchronizedList(new ArrayList<>());
+		this.threadStatistics = Collections.synchronizedList(new ArrayList<>());
+		this.statistics = ThreadLocal.withInitial(() -> {
+			final Map<TreeKey, MoveStatistics> map = new HashMap<>();
+			this.threadStatistics.add(map);
+			return map;
+		});
+	}
+	
+	/**
+	 * Function that builds an opening tree
+	 * @param pgnFile       the games
+	 * @param treeFile      the tree to write
+	 * @param numThreads    the number of threads importing games
+	 * @param maxPly        how many plies of each game to count
+	 * @param minGames      how many games a move needs to be played in to make it into the tree
+	 * @return    the number of moves in the tree
+	 * @throws IOException    if the games cannot be read or the tree cannot be written
+	 */
+	public static long build(final Path pgnFile, final Path treeFile, final int numThreads, final int maxPly,
+							 final int minGames) throws IOException {
+		
+		return build(pgnFile, treeFile, numThreads, maxPly, minGames, RUN_SIZE);
+	}
+	
+	/**
+	 * Function that builds an opening tree, writing the moves counted by a thread to a temporary file
+	 * every runSize moves
+	 */
+	static long build(final Path pgnFile, final Path treeFile, final int numThreads, final int maxPly,
+					  final int minGames, final int runSize) throws IOException {
+		
+		final Path runDirectory = Files.createTempDirectory(treeFile.toAbsolutePath().getParent(), "tree-runs");
+		final OpeningTreeBuilder builder = new OpeningTreeBuilder(maxPly, runSize, runDirectory);
+		try {
+			new PGNImporter(numThreads).importFile(pgnFile, builder);
+			for(final Map<TreeKey, MoveStatistics> map : builder.threadStatistics) {
+				builder.writeRun(map);
+			}
+			return merge(builder.runs, treeFile, minGames);
+		}
+		finally {
+			for(final Path run : builder.runs) {
+				Files.deleteIfExists(run);
+			}
+			Files.deleteIfExists(runDirectory);
+		}
+	}
+	
+	@Override
+	public void gameImported(final PGNGame game, final List<Move> moves, final Board finalBoard) {
+		
+		final String result = game.getResult();
+		final int whiteWin = result.equals("1-0") ? 1 : 0;
+		final int draw = result.equals("1/2-1/2") ? 1 : 0;
+		if(whiteWin == 0 && draw == 0 && !result.equals("0-1")) {
+			return;
+		}
+		final int whiteRating = rating(game, "WhiteElo");
+		final int blackRating = rating(game, "BlackElo");
+		
+		final Map<TreeKey, MoveStatistics> map = this.statistics.get();
+		for(int ply = 0; ply < Math.min(this.maxPly, moves.size()); ply++) {
+			final Move move = moves.get(ply);
+			final TreeKey key = new TreeKey(move.getBoard().getZobristHash(), OpeningTree.encodeMove(move));
+			MoveStatistics moveStatistics = map.get(key);
+			if(moveStatistics == null) {
+				moveStatistics = new MoveStatistics();
+				map.put(key, moveStatistics);
+			}
+			moveStatistics.games++;
+			moveStatistics.whiteWins += whiteWin;
+			moveStatistics.draws += draw;
+			final int rating = move.getMovedPiece().getPieceAlliance().isWhite() ? whiteRating : blackRating;
+			if(rating > 0) {
+				moveStatistics.ratingSum += rating;
+				moveStatistics.ratedGames++;
+			}
+		}
+		if(map.size() >= this.runSize) {
+			try {
+				writeRun(map);
+			}
+			catch(final IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+	
+	/**
+	 * Helper function that writes the moves of a map to a temporary file, sorted by position and move,
+	 * and empties the map
+	 */
+	private void writeRun(final Map<TreeKey, MoveStatistics> map) throws IOException {
+		
+		if(map.isEmpty()) {
+			return;
+		}
+		final List<Map.Entry<TreeKey, MoveStatistics>> entries = new ArrayList<>(map.entrySet());
+		entries.sort((first, second) -> first.getKey().compareTo(second.getKey()));
+		final Path run = Files.createTempFile(this.runDirectory, "run", ".bin");
+		this.runs.add(run);
+		try(final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run), BUFFER_SIZE))) {
+			output.writeInt(entries.size());
+			for(final Map.Entry<TreeKey, MoveStatistics> entry : entries) {
+				final MoveStatistics moveStatistics = entry.getValue();
+				output.writeLong(entry.getKey().positionKey);
+				output.writeShort(entry.getKey().move);
+				output.writeInt(moveStatistics.games);
+				output.writeInt(moveStatistics.whiteWins);
+				output.writeInt(moveStatistics.draws);
+				output.writeLong(moveStatistics.ratingSum);
+				output.writeInt(moveStatistics.ratedGames);
+			}
+		}
+		map.clear();
+	}
+	
+	/**
+	 * Helper function that merges the sorted runs into the tree, adding up the counts a move has in
+	 * different runs
+	 * @return    the number of moves written
+	 */
+	private static long merge(final List<Path> runs, final Path treeFile, final int minGames) throws IOException {
+		
+		final PriorityQueue<RunReader> queue = new PriorityQueue<>(Math.max(1, runs.size()),
+				(first, second) -> first.key.compareTo(second.key));
+		long recordCount = 0;
+		try(final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(treeFile), BUFFER_SIZE))) {
+			output.writeInt(OpeningTree.MAGIC);
+			output.writeLong(0);
+			try {
+				for(final Path run : runs) {
+					final RunReader reader = new RunReader(run);
+					if(reader.next()) {
+						queue.add(reader);
+					}
+					else {
+						reader.close();
+					}
+				}
+				while(!queue.isEmpty()) {
+					final TreeKey key = queue.peek().key;
+					final MoveStatistics moveStatistics = new MoveStatistics();
+					while(!queue.isEmpty() && queue.peek().key.equals(key)) {
+						final RunReader reader = queue.poll();
+						moveStatistics.add(reader.statistics);
+						if(reader.next()) {
+							queue.add(reader);
+						}
+						else {
+							reader.close();
+						}
+					}
+					if(moveStatistics.games >= minGames) {
+						writeRecord(output, key, moveStatistics);
+						recordCount++;
+					}
+				}
+			}
+			finally {
+				for(final RunReader reader : queue) {
+					reader.close();
+				}
+			}
+		}
+		try(final FileChannel channel = FileChannel.open(treeFile, StandardOpenOption.WRITE)) {
+			final ByteBuffer count = ByteBuffer.allocate(Long.BYTES).putLong(0, recordCount);
+			while(count.hasRemaining()) {
+				channel.write(count, Integer.BYTES + count.position());
+			}
+		}
+		return recordCount;
+	}
+	
+	private static void writeRecord(final DataOutputStream output, final TreeKey key, final MoveStatistics moveStatistics) throws IOException {
+		
+		output.writeLong(key.positionKey);
+		output.writeShort(key.move);
+		output.writeInt(moveStatistics.games);
+		output.writeInt(moveStatistics.whiteWins);
+		output.writeInt(moveStatistics.draws);
+		output.writeShort(moveStatistics.ratedGames > 0 ? (int) (moveStatistics.ratingSum / moveStatistics.ratedGames) : 0);
+	}
+	
+	private static int rating(final PGNGame game, final String tag) {
+		
+		final String value = game.getTag(tag);
+		if(value == null) {
+			return 0;
+		}
+		try {
+			final int rating = Integer.parseInt(value.trim());
+			return rating > 0 && rating < 65536 ? rating : 0;
+		}
+		catch(final NumberFormatException e) {
+			return 0;
+		}
+	}
+	
+	private static final class TreeKey implements Comparable<TreeKey> {
+		
+		private final long positionKey;
+		private final short move;
+		
+		TreeKey(final long positionKey, final short move) {
+			
+			this.positionKey = positionKey;
+			this.move = move;
+		}
+		
+		@Override
+		public int hashCode() {
+			
+			return Long.hashCode(this.positionKey) * 31 + this.move;
+		}
+		
+		@Override
+		public boolean equals(final Object other) {
+			
+			if(this == other) {
+				return true;
+			}
+			if(!(other instanceof TreeKey)) {
+				return false;
+			}
+			final TreeKey otherKey = (TreeKey) other;
+			return this.positionKey == otherKey.positionKey && this.move == otherKey.move;
+		}
+		
+		@Override
+		public int compareTo(final TreeKey other) {
+			
+			final int keyOrder = Long.compare(this.positionKey, other.positionKey);
+			return keyOrder != 0 ? keyOrder : Short.compare(this.move, other.move);
+		}
+	}
+	
+	private static final class MoveStatistics {
+		
+		private int games;
+		private int whiteWins;
+		private int draws;
+		private long ratingSum;
+		private int ratedGames;
+		
+		MoveStatistics add(final MoveStatistics other) {
+			
+			this.games += other.games;
+			this.whiteWins += other.whiteWins;
+			this.draws += other.draws;
+			this.ratingSum += other.ratingSum;
+			this.ratedGames += other.ratedGames;
+			return this;
+		}
+	}
+	
+	/**
+	 * Reads a sorted run back one move at a time
+	 */
+	private static final class RunReader {
+		
+		private final DataInputStream input;
+		private final MoveStatistics statistics;
+		private int remaining;
+		private TreeKey key;
+		
+		RunReader(final Path run) throws IOException {
+			
+			this.input = new DataInputStream(new BufferedInputStream(Files.newInputStream(run), BUFFER_SIZE));
+			this.statistics = new MoveStatistics();
+			this.remaining = this.input.readInt();
+		}
+		
+		boolean next() throws IOException {
+			
+			if(this.remaining == 0) {
+				return false;
+			}
+			this.key = new TreeKey(this.input.readLong(), this.input.readShort());
+			this.statistics.games = this.input.readInt();
+			this.statistics.whiteWins = this.input.readInt();
+			this.statistics.draws = this.input.readInt();
+			this.statistics.ratingSum = this.input.readLong();
+			this.statistics.ratedGames = this.input.readInt();
+			this.remaining--;
+			return true;
+		}
+		
+		void close() throws IOException {
+			
+			this.input.close();
+		}
+	}
+}
@@ -0,0 +1,57 @@
+package com.chess.pgn;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A game read from a PGN file: its tag pairs in the order they appeared and its moves in SAN, without
+ * comments, variations or move numbers. Games read in skim mode have tags only.
+ */
+public final class PGNGame {
+	
+	private final Map<String, String> tags;
+	private final List<String> moves;
+	
+	public PGNGame(final Map<String, String> tags, final List<String> moves) {
+		
+		this.tags = Collections.unmodifiableMap(tags);
+		this.moves = Collections.unmodifiableList(moves);
+	}
+	
+	public Map<String, String> getTags() {
+		
+		return this.tags;
+	}
+	
+	/**
+	 * Function that returns the value of a tag
+	 * @param name    the tag name, such as White or ECO
+	 * @return    the value, or null if the game has no such tag
+	 */
+	public String getTag(final String name) {
+		
+		return this.tags.get(name);
+	}
+	
+	public List<String> getMoves() {
+		
+		return this.moves;
+	}
+	
+	/**
+	 * Function that returns the result of the game
+	 * @return    1-0, 0-1, 1/2-1/2, or * when the result is unknown
+	 */
+	public String getResult() {
+		
+		final String result = this.tags.get("Result");
+		return result != null ? result : "*";
+	}
+	
+	@Override
+	public String toString() {
+		
+		return this.tags.get("White") + " - " + this.tags.get("Black") + " " + getResult() + " (" + this.moves.size() + " plies)";
+	}
+}
@@ -0,0 +1,23 @@
+package com.chess.pgn;
+
+import java.util.List;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.Move;
+
+/**
+ * Receives the games of a bulk import once they have been replayed. The importer calls it from all of
+ * its worker threads at once, so implementations must be thread safe.
+ */
+public interface PGNGameSink {
+	
+	/**
+	 * Function called for every game that was replayed to the end
+	 * @param game          the tags and SAN moves of the game
+	 * @param moves         the moves as played on the board, in order
+	 * @param finalBoard    the position after the last move
+	 * @throws IllegalArgumentException    if the sink cannot take the game, which the importer then
+	 *                                     counts as rejected
+	 */
+	void gameImported(PGNGame game, List<Move> moves, Board finalBoard);
+}
@@ -0,0 +1,341 @@
+package com.chess.pgn;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.Move;
+
+/**
+ * Imports large PGN files on several threads. The file is cut into segments which are memory-mapped
+ * one at a time, so files over 2 GB, the most a single mapping can hold, are no problem. Each worker
+ * takes a segment, finds the first game starting inside it and reads games from there until the next
+ * game would start past the segment's end, mapping a little past the end to finish the last one. Every
+ * game is decoded, parsed and replayed move by move on the worker and handed to a sink, and the
+ * workers' counts are merged at the end.
+ * <p>
+ * A game starts at a tag pair line that follows move text. A comment running over several lines with
+ * one of them starting with [ can therefore be taken for the start of a game; the two halves are then
+ * counted as skipped or rejected rather than imported.
+ */
+public final class PGNImporter {
+	
+	/** The amount of the file given to one task */
+	private static final int DEFAULT_SEGMENT_SIZE = 1 << 25;
+	/** How far past the end of its segment a task maps, which bounds the size of a single game */
+	private static final int MAX_GAME_SIZE = 1 << 22;
+	/** How far before its segment a task maps to see whether the segment starts inside a tag section */
+	private static final int LOOK_BEHIND = 1 << 16;
+	
+	private final int numThreads;
+	private final int segmentSize;
+	
+	/**
+	 * Constructor for PGNImporter
+	 * @param numThreads    the number of worker threads
+	 */
+	public PGNImporter(final int numThreads) {
+		
+		this(numThreads, DEFAULT_SEGMENT_SIZE);
+	}
+	
+	/**
+	 * Constructor for PGNImporter
+	 * @param numThreads     the number of worker threads
+	 * @param segmentSize    the amount of the file given to one task, which may be smaller than a game
+	 */
+	PGNImporter(final int numThreads, final int segmentSize) {
+		
+		if(numThreads < 1) {
+			throw new IllegalArgumentException("An importer needs at least one thread");
+		}
+		if(segmentSize < 1) {
+			throw new IllegalArgumentException("Segments must hold at least one byte");
+		}
+		this.numThreads = numThreads;
+		this.segmentSize = segmentSize;
+	}
+	
+	/**
+	 * Function that imports every game of a PGN file
+	 * @param file    the PGN file
+	 * @param sink    where replayed games are sent
+	 * @return    counts of the games imported, rejected and skipped
+	 * @throws IOException    if the file cannot be read
+	 */
+	public ImportResult importFile(final Path file, final PGNGameSink sink) throws IOException {
+		
+		try(final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			final long size = channel.size();
+			final ExecutorService executor = Executors.newFixedThreadPool(this.numThreads);
+			try {
+				final List<Future<ImportResult>> results = new ArrayList<>();
+				for(long start = 0; start < size; start += this.segmentSize) {
+					results.add(executor.submit(new SegmentTask(channel, size, start, Math.min(size, start + this.segmentSize), sink)));
+				}
+				final ImportResult total = new ImportResult();
+				for(final Future<ImportResult> result : results) {
+					total.merge(result.get());
+				}
+				return total;
+			}
+			catch(final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Import interrupted");
+			}
+			catch(final ExecutionException e) {
+				if(e.getCause() instanceof IOException) {
+					throw (IOException) e.getCause();
+				}
+				throw new RuntimeException(e.getCause());
+			}
+			finally {
+				executor.shutdownNow();
+			}
+		}
+	}
+	
+	/**
+	 * Counts of what an import did with the games it found
+	 */
+	public static final class ImportResult {
+		
+		private long gamesImported;
+		private long gamesRejected;
+		private long gamesSkipped;
+		private long pliesImported;
+		
+		/** Games replayed to the end and sent to the sink */
+		public long getGamesImported() {
+			
+			return this.gamesImported;
+		}
+		
+		/** Games with a move that could not be played on the board, or that the sink could not take */
+		public long getGamesRejected() {
+			
+			return this.gamesRejected;
+		}
+		
+		/** Games whose text could not be parsed */
+		public long getGamesSkipped() {
+			
+			return this.gamesSkipped;
+		}
+		
+		public long getPliesImported() {
+			
+			return this.pliesImported;
+		}
+		
+		private void merge(final ImportResult other) {
+			
+			this.gamesImported += other.gamesImported;
+			this.gamesRejected += other.gamesRejected;
+			this.gamesSkipped += other.gamesSkipped;
+			this.pliesImported += other.pliesImported;
+		}
+		
+		@Override
+		public String toString() {
+			
+			return this.gamesImported + " games (" + this.pliesImported + " plies) imported, " +
+				   this.gamesRejected + " rejected, " + this.gamesSkipped + " skipped";
+		}
+	}
+	
+	private static final class SegmentTask implements Callable<ImportResult> {
+		
+		private final FileChannel channel;
+		private final long fileSize;
+		private final long start;
+		private final long end;
+		private final PGNGameSink sink;
+		private final ImportResult result;
+		private ByteBuffer buffer;
+		
+		SegmentTask(final FileChannel channel, final long fileSize, final long start, final long end, final PGNGameSink sink) {
+			
+			this.channel = channel;
+			this.fileSize = fileSize;
+			this.start = start;
+			this.end = end;
+			this.sink = sink;
+			this.result = new ImportResult();
+		}
+		
+		@Override
+		public ImportResult call() throws IOException {
+			
+			final long mapStart = Math.max(0, this.start - LOOK_BEHIND);
+			final long mapEnd = Math.min(this.fileSize, this.end + MAX_GAME_SIZE);
+			final MappedByteBuffer mapped = this.channel.map(FileChannel.MapMode.READ_ONLY, mapStart, mapEnd - mapStart);
+			this.buffer = mapped;
+			final int limit = (int) (mapEnd - mapStart);
+			final int segmentEnd = (int) (this.end - mapStart);
+			int position = firstGameStart((int) (this.start - mapStart), mapStart == 0);
+			
+			while(position < segmentEnd) {
+				final int gameEnd = gameEnd(position, limit);
+				if(gameEnd == limit && mapEnd < this.fileSize) {
+					this.result.gamesSkipped++;
+					break;
+				}
+				importGame(position, gameEnd);
+				position = gameEnd;
+			}
+			
+			return this.result;
+		}
+		
+		/**
+		 * Helper function that finds the first game starting at or after an index
+		 */
+		private int firstGameStart(final int from, final boolean mappedFromFileStart) {
+			
+			if(from == 0 && mappedFromFileStart) {
+				return 0;
+			}
+			int lineStart = from;
+			if(this.buffer.get(lineStart - 1) != '\n') {
+				lineStart = nextLine(lineStart, this.buffer.limit());
+			}
+			for(; lineStart < this.buffer.limit(); lineStart = nextLine(lineStart, this.buffer.limit())) {
+				if(firstCharacter(lineStart) == '[') {
+					final int previous = previousLineStart(lineStart);
+					if(previous < 0 ? mappedFromFileStart : firstCharacter(previous) != '[') {
+						return lineStart;
+					}
+				}
+			}
+			return this.buffer.limit();
+		}
+		
+		/**
+		 * Helper function that finds where the game starting at an index ends, which is where the next
+		 * one starts, or the limit
+		 */
+		private int gameEnd(final int gameStart, final int limit) {
+			
+			boolean inMoveText = false;
+			boolean inComment = false;
+			for(int lineStart = gameStart; lineStart < limit; lineStart = nextLine(lineStart, limit)) {
+				final byte first = firstCharacter(lineStart);
+				if(first == '[' && !inComment) {
+					if(inMoveText) {
+						return lineStart;
+					}
+				}
+				else if(first != '\n' && first != '%') {
+					inMoveText = true;
+					for(int i = lineStart; i < limit && this.buffer.get(i) != '\n'; i++) {
+						final byte b = this.buffer.get(i);
+						if(b == '{') {
+							inComment = true;
+						}
+						else if(b == '}') {
+							inComment = false;
+						}
+					}
+				}
+			}
+			return limit;
+		}
+		
+		private void importGame(final int gameStart, final int gameEnd) {
+			
+			final byte[] bytes = new byte[gameEnd - gameStart];
+			this.buffer.position(gameStart);
+			this.buffer.get(bytes);
+			final PGNGame game;
+			try {
+				game = PGNUtilities.parseGame(new String(bytes, StandardCharsets.UTF_8));
+			}
+			catch(final ParsePGNException e) {
+				this.result.gamesSkipped++;
+				return;
+			}
+			if(game.getTags().isEmpty() && game.getMoves().isEmpty()) {
+				return;
+			}
+			
+			final List<Move> moves = new ArrayList<>(game.getMoves().size());
+			final Board board;
+			try {
+				board = PGNUtilities.replayGame(game, moves);
+			}
+			catch(final ParsePGNException e) {
+				this.result.gamesRejected++;
+				return;
+			}
+			try {
+				this.sink.gameImported(game, moves, board);
+			}
+			catch(final IllegalArgumentException e) {
+				this.result.gamesRejected++;
+				return;
+			}
+			this.result.gamesImported++;
+			this.result.pliesImported += moves.size();
+		}
+		
+		private int nextLine(final int from, final int limit) {
+			
+			int index = from;
+			while(index < limit && this.buffer.get(index) != '\n') {
+				index++;
+			}
+			return index + 1;
+		}
+		
+		/**
+		 * Helper function that returns the start of the last non blank line before a line, or -1 if there is
+		 * none in the mapped part of the file
+		 */
+		private int previousLineStart(final int lineStart) {
+			
+			int index = lineStart - 1;
+			while(index >= 0 && isSpace(this.buffer.get(index))) {
+				index--;
+			}
+			if(index < 0) {
+				return -1;
+			}
+			while(index > 0 && this.buffer.get(index - 1) != '\n') {
+				index--;
+			}
+			return index;
+		}
+		
+		/**
+		 * Helper function that returns the first character of a line that is not a space, or a line feed for
+		 * a blank line
+		 */
+		private byte firstCharacter(final int lineStart) {
+			
+			int index = lineStart;
+			while(index < this.buffer.limit() && this.buffer.get(index) != '\n' && isSpace(this.buffer.get(index))) {
+				index++;
+			}
+			return index < this.buffer.limit() ? this.buffer.get(index) : (byte) '\n';
+		}
+		
+		private static boolean isSpace(final byte b) {
+			
+			return b == ' ' || b == '\t' || b == '\r' || b == '\n';
+		}
+	}
+}
@@ -0,0 +1,194 @@
+package com.chess.pgn;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads the games of a PGN file one at a time, so files of any size can be walked with only the
+ * game being read in memory. In skim mode the move text is stepped over without being parsed, which
+ * makes filtering games by their tags much faster. Games whose move text cannot be parsed are
+ * skipped and counted.
+ */
+public final class PGNReader implements Iterator<PGNGame>, Closeable {
+	
+	private static final int BUFFER_SIZE = 1 << 16;
+	
+	private final BufferedReader reader;
+	private final boolean skimMoves;
+	private final StringBuilder moveText;
+	private String pendingLine;
+	private PGNGame nextGame;
+	private boolean finished;
+	private long gamesRead;
+	private long gamesSkipped;
+	
+	/**
+	 * Constructor for PGNReader
+	 * @param reader       the PGN text
+	 * @param skimMoves    whether to read tags only and leave the moves of every game empty
+	 */
+	public PGNReader(final Reader reader, final boolean skimMoves) {
+		
+		this.reader = new BufferedReader(reader, BUFFER_SIZE);
+		this.skimMoves = skimMoves;
+		this.moveText = new StringBuilder();
+	}
+	
+	/**
+	 * Function that opens a PGN file. The file is read as UTF-8, with bytes that are not valid UTF-8
+	 * replaced rather than failing the whole file
+	 * @param file         the PGN file
+	 * @param skimMoves    whether to read tags only
+	 * @return    a reader over the games of the file, to be closed by the caller
+	 * @throws IOException    if the file cannot be opened
+	 */
+	public static PGNReader open(final Path file, final boolean skimMoves) throws IOException {
+		
+		return new PGNReader(new InputStreamReader(Files.newInputStream(file), StandardCharsets.UTF_8), skimMoves);
+	}
+	
+	@Override
+	public boolean hasNext() {
+		
+		if(this.nextGame == null && !this.finished) {
+			try {
+				this.nextGame = readGame();
+			}
+			catch(final IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+		
+		return this.nextGame != null;
+	}
+	
+	@Override
+	public PGNGame next() {
+		
+		if(!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		final PGNGame game = this.nextGame;
+		this.nextGame = null;
+		this.gamesRead++;
+		
+		return game;
+	}
+	
+	public long getGamesRead() {
+		
+		return this.gamesRead;
+	}
+	
+	public long getGamesSkipped() {
+		
+		return this.gamesSkipped;
+	}
+	
+	@Override
+	public void close() throws IOException {
+		
+		this.reader.close();
+	}
+	
+	private PGNGame readGame() throws IOException {
+		
+		while(true) {
+			final Map<String, String> tags = new LinkedHashMap<>();
+			this.moveText.setLength(0);
+			boolean inMoveText = false;
+			boolean foundGame = false;
+			int commentDepth = 0;
+			String line;
+			while((line = nextLine()) != null) {
+				final int start = firstNonSpace(line);
+				if(start == line.length() || (line.charAt(start) == '%' && commentDepth == 0)) {
+					continue;
+				}
+				if(line.charAt(start) == '[' && commentDepth == 0) {
+					if(inMoveText) {
+						this.pendingLine = line;
+						break;
+					}
+					PGNUtilities.parseTag(line, start, tags);
+					foundGame = true;
+					continue;
+				}
+				inMoveText = true;
+				foundGame = true;
+				commentDepth = commentDepth(line, commentDepth);
+				if(!this.skimMoves) {
+					this.moveText.append(line).append('\n');
+				}
+			}
+			
+			if(!foundGame) {
+				this.finished = true;
+				return null;
+			}
+			if(this.skimMoves) {
+				return new PGNGame(tags, Collections.emptyList());
+			}
+			try {
+				return new PGNGame(tags, PGNUtilities.processMoveText(this.moveText));
+			}
+			catch(final ParsePGNException e) {
+				this.gamesSkipped++;
+			}
+		}
+	}
+	
+	private String nextLine() throws IOException {
+		
+		if(this.pendingLine != null) {
+			final String line = this.pendingLine;
+			this.pendingLine = null;
+			return line;
+		}
+		
+		return this.reader.readLine();
+	}
+	
+	private static int firstNonSpace(final String line) {
+		
+		int index = 0;
+		while(index < line.length() && Character.isWhitespace(line.charAt(index))) {
+			index++;
+		}
+		return index;
+	}
+	
+	/**
+	 * Helper function that keeps track of brace comments running over several lines, so that a line of a
+	 * comment starting with [ is not taken for the tags of the next game
+	 */
+	private static int commentDepth(final String line, final int depth) {
+		
+		int commentDepth = depth;
+		for(int i = 0; i < line.length(); i++) {
+			final char c = line.charAt(i);
+			if(c == '{') {
+				commentDepth = 1;
+			}
+			else if(c == '}') {
+				commentDepth = 0;
+			}
+			else if(c == ';' && commentDepth == 0) {
+				break;
+			}
+		}
+		return commentDepth;
+	}
+}
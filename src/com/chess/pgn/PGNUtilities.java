@@ -0,0 +1,255 @@
+package com.chess.pgn;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.Move;
+import com.chess.engine.player.MoveTransition;
+
+/**
+ * Helpers for reading games in Portable Game Notation.
+ */
+public final class PGNUtilities {
+	
+	private PGNUtilities() {
+		
+		throw new RuntimeException("Cannot initiate this class");
+	}
+	
+	/**
+	 * Function that hands every game of a PGN file to a callback, reading one game at a time
+	 * @param file          the PGN file
+	 * @param skimMoves     whether to read tags only
+	 * @param gameHandler   the callback
+	 * @return    the number of games that could not be parsed and were skipped
+	 * @throws IOException    if the file cannot be read
+	 */
+	public static long readGames(final Path file, final boolean skimMoves, final Consumer<PGNGame> gameHandler) throws IOException {
+		
+		try(final PGNReader reader = PGNReader.open(file, skimMoves)) {
+			while(reader.hasNext()) {
+				gameHandler.accept(reader.next());
+			}
+			return reader.getGamesSkipped();
+		}
+	}
+	
+	/**
+	 * Function that takes the moves out of the move text of a game. Comments, variations, move numbers,
+	 * numeric annotation glyphs, ! and ? suffixes and the result are left out, castling written with
+	 * zeros is turned into O-O, and anything else that cannot start a move is ignored
+	 * @param moveText    the move text of one game
+	 * @return    the moves in SAN
+	 * @throws ParsePGNException    if a comment or variation is left open or closed without being opened
+	 */
+	public static List<String> processMoveText(final CharSequence moveText) throws ParsePGNException {
+		
+		final List<String> moves = new ArrayList<>();
+		int variationDepth = 0;
+		int tokenStart = -1;
+		for(int i = 0; i <= moveText.length(); i++) {
+			final char c = i < moveText.length() ? moveText.charAt(i) : ' ';
+			final boolean separator = Character.isWhitespace(c) || c == '{' || c == '}' || c == '(' || c == ')' || c == ';';
+			if(!separator) {
+				if(tokenStart < 0) {
+					tokenStart = i;
+				}
+				continue;
+			}
+			if(tokenStart >= 0) {
+				if(variationDepth == 0) {
+					addMove(moveText, tokenStart, i, moves);
+				}
+				tokenStart = -1;
+			}
+			if(c == '{') {
+				while(++i < moveText.length() && moveText.charAt(i) != '}') {
+				}
+				if(i == moveText.length()) {
+					throw new ParsePGNException("Comment is not closed");
+				}
+			}
+			else if(c == ';') {
+				while(i + 1 < moveText.length() && moveText.charAt(i + 1) != '\n') {
+					i++;
+				}
+			}
+			else if(c == '(') {
+				variationDepth++;
+			}
+			else if(c == ')') {
+				if(variationDepth == 0) {
+					throw new ParsePGNException("Variation closed without being opened");
+				}
+				variationDepth--;
+			}
+			else if(c == '}') {
+				throw new ParsePGNException("Comment closed without being opened");
+			}
+		}
+		if(variationDepth > 0) {
+			throw new ParsePGNException("Variation is not closed");
+		}
+		
+		return moves;
+	}
+	
+	/**
+	 * Function that returns the position a game starts from: the FEN tag when the game has one and the
+	 * standard starting position otherwise
+	 * @param game    the game
+	 * @return    the starting board
+	 * @throws IllegalArgumentException    if the FEN tag is malformed
+	 */
+	public static Board createStartingBoard(final PGNGame game) {
+		
+		final String fen = game.getTag("FEN");
+		return fen != null ? FenUtilities.createGameFromFEN(fen) : Board.createStandardBoard();
+	}
+	
+	/**
+	 * Function that plays the moves of a game on the board, from its starting position
+	 * @param game     the game
+	 * @param moves    the list the moves are added to as they are played
+	 * @return    the position after the last move
+	 * @throws ParsePGNException    if the FEN tag is malformed or a move cannot be played
+	 */
+	public static Board replayGame(final PGNGame game, final List<Move> moves) throws ParsePGNException {
+		
+		Board board;
+		try {
+			board = createStartingBoard(game);
+		}
+		catch(final IllegalArgumentException e) {
+			throw new ParsePGNException(e.getMessage());
+		}
+		for(final String san : game.getMoves()) {
+			final Move move = SANUtilities.createMove(board, san);
+			final MoveTransition transition = board.currentPlayer().makeMove(move);
+			if(!transition.getMoveStatus().isDone()) {
+				throw new ParsePGNException("Cannot play " + san + " after " + moves.size() + " plies");
+			}
+			moves.add(move);
+			board = transition.getTransitionBoard();
+		}
+		
+		return board;
+	}
+	
+	/**
+	 * Function that parses the complete text of a single game, tag pairs and move text
+	 * @param gameText    the text of one game
+	 * @return    the game
+	 * @throws ParsePGNException    if the move text is malformed
+	 */
+	static PGNGame parseGame(final String gameText) throws ParsePGNException {
+		
+		final Map<String, String> tags = new LinkedHashMap<>();
+		final StringBuilder moveText = new StringBuilder(gameText.length());
+		int lineStart = 0;
+		while(lineStart < gameText.length()) {
+			int lineEnd = gameText.indexOf('\n', lineStart);
+			if(lineEnd < 0) {
+				lineEnd = gameText.length();
+			}
+			int index = lineStart;
+			while(index < lineEnd && Character.isWhitespace(gameText.charAt(index))) {
+				index++;
+			}
+			if(index < lineEnd && gameText.charAt(index) == '[' && moveText.length() == 0) {
+				parseTag(gameText.substring(lineStart, lineEnd), index - lineStart, tags);
+			}
+			else if(index < lineEnd && gameText.charAt(index) != '%') {
+				moveText.append(gameText, index, lineEnd).append('\n');
+			}
+			lineStart = lineEnd + 1;
+		}
+		
+		return new PGNGame(tags, processMoveText(moveText));
+	}
+	
+	/**
+	 * Function that reads a tag pair line such as [White "Carlsen, Magnus"] into a map. Lines that are not
+	 * well formed tag pairs are ignored
+	 * @param line     the line
+	 * @param start    the index of the opening bracket
+	 * @param tags     the map to put the tag in
+	 */
+	static void parseTag(final String line, final int start, final Map<String, String> tags) {
+		
+		int index = start + 1;
+		final int nameStart = index;
+		while(index < line.length() && !Character.isWhitespace(line.charAt(index)) && line.charAt(index) != '"') {
+			index++;
+		}
+		final String name = line.substring(nameStart, index);
+		while(index < line.length() && line.charAt(index) != '"') {
+			index++;
+		}
+		if(name.isEmpty() || index >= line.length()) {
+			return;
+		}
+		final StringBuilder value = new StringBuilder();
+		for(index++; index < line.length(); index++) {
+			final char c = line.charAt(index);
+			if(c == '\\' && index + 1 < line.length()) {
+				value.append(line.charAt(++index));
+			}
+			else if(c == '"') {
+				tags.put(name, value.toString());
+				return;
+			}
+			else {
+				value.append(c);
+			}
+		}
+	}
+	
+	private static void addMove(final CharSequence moveText, final int start, final int end, final List<String> moves) {
+		
+		int from = start;
+		int to = end;
+		if(isCastling(moveText, from, to, '0')) {
+			moves.add(to - from >= 5 && moveText.charAt(from + 3) == '-' ? "O-O-O" + moveText.subSequence(from + 5, to) : "O-O" + moveText.subSequence(from + 3, to));
+			return;
+		}
+		if(isResult(moveText, from, to)) {
+			return;
+		}
+		while(from < to && Character.isDigit(moveText.charAt(from))) {
+			from++;
+		}
+		if(from < to && moveText.charAt(from) == '.' || from == start) {
+			while(from < to && moveText.charAt(from) == '.') {
+				from++;
+			}
+		}
+		else {
+			return;
+		}
+		while(to > from && (moveText.charAt(to - 1) == '!' || moveText.charAt(to - 1) == '?')) {
+			to--;
+		}
+		if(from < to && "KQRBNOabcdefgh".indexOf(moveText.charAt(from)) >= 0) {
+			moves.add(moveText.subSequence(from, to).toString());
+		}
+	}
+	
+	private static boolean isCastling(final CharSequence moveText, final int start, final int end, final char letter) {
+		
+		return end - start >= 3 && moveText.charAt(start) == letter && moveText.charAt(start + 1) == '-' && moveText.charAt(start + 2) == letter &&
+			   (end - start < 5 || moveText.charAt(start + 3) != '-' || moveText.charAt(start + 4) == letter);
+	}
+	
+	private static boolean isResult(final CharSequence moveText, final int start, final int end) {
+		
+		final String token = moveText.subSequence(start, end).toString();
+		return token.equals("1-0") || token.equals("0-1") || token.equals("1/2-1/2") || token.equals("*");
+	}
+}
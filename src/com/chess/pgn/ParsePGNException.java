@@ -0,0 +1,14 @@
+package com.chess.pgn;
+
+/**
+ * Thrown when the text of a game cannot be read as PGN
+ */
+public class ParsePGNException extends Exception {
+	
+	private static final long serialVersionUID = 1L;
+	
+	public ParsePGNException(final String message) {
+		
+		super(message);
+	}
+}
@@ -0,0 +1,184 @@
+package com.chess.pgn;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * An on-disk index from the Zobrist key of a position to the games, and the plies within them, where
+ * the position came up. It is built by PositionIndexBuilder and memory-mapped for lookups.
+ * <p>
+ * Postings are sorted by key and then by game and ply, and stored in blocks of up to BLOCK_SIZE. A block
+ * starts with its number of postings as a varint; each posting then holds the difference from the
+ * previous key, the game id, as a difference from the previous game id when the key is the same, and
+ * the ply, all as varints. After the blocks comes a directory with the first key and file offset of
+ * every block, and the file ends with a trailer giving the directory's offset, the number of blocks and
+ * postings, and MAGIC. A lookup binary searches the directory and decodes the one or few blocks holding
+ * the key. No block crosses a SEGMENT_SIZE boundary, so files over 2 GB are mapped a segment at a time.
+ */
+public final class PositionIndex implements Closeable {
+	
+	static final int MAGIC = 0x50494458;
+	static final int BLOCK_SIZE = 128;
+	static final long SEGMENT_SIZE = 1L << 30;
+	static final int TRAILER_SIZE = 3 * Long.BYTES + Integer.BYTES;
+	static final int DIRECTORY_ENTRY_SIZE = 2 * Long.BYTES;
+	static final int PLY_BITS = 16;
+	
+	private static final long[] NO_POSTINGS = new long[0];
+	
+	private final FileChannel channel;
+	private final MappedByteBuffer[] segments;
+	private final MappedByteBuffer directory;
+	private final int blockCount;
+	private final long postingCount;
+	
+	private PositionIndex(final FileChannel channel) throws IOException {
+		
+		this.channel = channel;
+		final long size = channel.size();
+		final ByteBuffer trailer = ByteBuffer.allocate(TRAILER_SIZE);
+		if(size < TRAILER_SIZE || channel.read(trailer, size - TRAILER_SIZE) != TRAILER_SIZE || trailer.getInt(3 * Long.BYTES) != MAGIC) {
+			throw new IOException("Not a position index");
+		}
+		final long directoryOffset = trailer.getLong(0);
+		this.blockCount = (int) trailer.getLong(Long.BYTES);
+		this.postingCount = trailer.getLong(2 * Long.BYTES);
+		this.directory = channel.map(FileChannel.MapMode.READ_ONLY, directoryOffset, (long) this.blockCount * DIRECTORY_ENTRY_SIZE);
+		this.segments = new MappedByteBuffer[(int) ((directoryOffset + SEGMENT_SIZE - 1) / SEGMENT_SIZE)];
+		for(int i = 0; i < this.segments.length; i++) {
+			final long start = i * SEGMENT_SIZE;
+			this.segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_SIZE, directoryOffset - start));
+		}
+	}
+	
+	/**
+	 * Function that opens a position index
+	 * @param indexFile    the index
+	 * @return    the index, to be closed by the caller
+	 * @throws IOException    if the file cannot be read or is not a position index
+	 */
+	public static PositionIndex open(final Path indexFile) throws IOException {
+		
+		final FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ);
+		try {
+			return new PositionIndex(channel);
+		}
+		catch(final IOException e) {
+			channel.close();
+			throw e;
+		}
+	}
+	
+	public long getPostingCount() {
+		
+		return this.postingCount;
+	}
+	
+	/**
+	 * Function that finds every time a position came up. It is safe to call from several threads
+	 * @param zobristHash    the Zobrist key of the position
+	 * @return    the postings, in order of game and ply; take them apart with gameId and ply
+	 */
+	public long[] findPostings(final long zobristHash) {
+		
+		int low = 0;
+		int high = this.blockCount;
+		while(low < high) {
+			final int middle = (low + high) >>> 1;
+			if(firstKey(middle) < zobristHash) {
+				low = middle + 1;
+			}
+			else {
+				high = middle;
+			}
+		}
+		
+		long[] postings = NO_POSTINGS;
+		int numPostings = 0;
+		for(int block = Math.max(0, low - 1); block < this.blockCount; block++) {
+			if(block >= low && firstKey(block) > zobristHash) {
+				break;
+			}
+			final long blockOffset = this.directory.getLong(block * DIRECTORY_ENTRY_SIZE + Long.BYTES);
+			final ByteBuffer segment = this.segments[(int) (blockOffset / SEGMENT_SIZE)].duplicate();
+			segment.position((int) (blockOffset % SEGMENT_SIZE));
+			final int entries = (int) readVarLong(segment);
+			long key = firstKey(block);
+			long gameId = 0;
+			for(int i = 0; i < entries; i++) {
+				final long keyDelta = readVarLong(segment);
+				key += keyDelta;
+				gameId = keyDelta == 0 && i > 0 ? gameId + readVarLong(segment) : readVarLong(segment);
+				final long ply = readVarLong(segment);
+				if(key == zobristHash) {
+					if(numPostings == postings.length) {
+						postings = Arrays.copyOf(postings, Math.max(16, 2 * numPostings));
+					}
+					postings[numPostings++] = gameId << PLY_BITS | ply;
+				}
+				else if(key > zobristHash) {
+					return Arrays.copyOf(postings, numPostings);
+				}
+			}
+		}
+		return Arrays.copyOf(postings, numPostings);
+	}
+	
+	/**
+	 * Function that finds the games in which a position came up
+	 * @param zobristHash    the Zobrist key of the position
+	 * @return    the game ids, ascending and without repeats
+	 */
+	public long[] findGames(final long zobristHash) {
+		
+		final long[] postings = findPostings(zobristHash);
+		int numGames = 0;
+		for(final long posting : postings) {
+			final long gameId = gameId(posting);
+			if(numGames == 0 || postings[numGames - 1] != gameId) {
+				postings[numGames++] = gameId;
+			}
+		}
+		return Arrays.copyOf(postings, numGames);
+	}
+	
+	public static long gameId(final long posting) {
+		
+		return posting >>> PLY_BITS;
+	}
+	
+	public static int ply(final long posting) {
+		
+		return (int) (posting & ((1 << PLY_BITS) - 1));
+	}
+	
+	@Override
+	public void close() throws IOException {
+		
+		this.channel.close();
+	}
+	
+	private long firstKey(final int block) {
+		
+		return this.directory.getLong(block * DIRECTORY_ENTRY_SIZE);
+	}
+	
+	static long readVarLong(final ByteBuffer buffer) {
+		
+		long value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = buffer.get();
+			value |= (long) (b & 0x7F) << shift;
+			shift += 7;
+		} while(b < 0);
+		return value;
+	}
+}
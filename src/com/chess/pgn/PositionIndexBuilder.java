@@ -0,0 +1,408 @@
+package com.chess.pgn;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.Move;
+
+/**
+ * Builds a PositionIndex over a binary game archive. Worker threads take games from the archive a few
+ * hundred at a time, replay them, and collect a posting for every position they pass through. Each
+ * worker sorts its postings in runs of RUN_SIZE, written to temporary files next to the index, and
+ * the runs are then merged into the blocks of the index in a single pass, so memory use depends on the
+ * number of threads rather than on the size of the archive.
+ */
+public final class PositionIndexBuilder {
+	
+	private static final int RUN_SIZE = 1 << 21;
+	private static final int GAMES_PER_TASK = 256;
+	private static final int BUFFER_SIZE = 1 << 16;
+	private static final int INSERTION_SORT_THRESHOLD = 16;
+	
+	private PositionIndexBuilder() {
+		
+		throw new RuntimeException("Cannot initiate this class");
+	}
+	
+	/**
+	 * Function that builds the position index of an archive, with the archive's game numbers as game ids
+	 * @param archive       the archive
+	 * @param indexFile     the index to write
+	 * @param numThreads    the number of threads replaying games
+	 * @return    the number of postings in the index
+	 * @throws IOException    if the archive cannot be read or the index cannot be written
+	 */
+	public static long build(final GameArchiveReader archive, final Path indexFile, final int numThreads) throws IOException {
+		
+		final Path runDirectory = Files.createTempDirectory(indexFile.toAbsolutePath().getParent(), "position-runs");
+		final List<Path> runs = Collections.synchronizedList(new ArrayList<>());
+		try {
+			final long gameCount = archive.getGameCount();
+			final AtomicLong nextGame = new AtomicLong();
+			final ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+			try {
+				final List<Future<Void>> workers = new ArrayList<>();
+				for(int i = 0; i < numThreads; i++) {
+					workers.add(executor.submit(new RunTask(archive, gameCount, nextGame, runDirectory, runs)));
+				}
+				for(final Future<Void> worker : workers) {
+					worker.get();
+				}
+			}
+			catch(final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Position index build interrupted");
+			}
+			catch(final ExecutionException e) {
+				if(e.getCause() instanceof IOException) {
+					throw (IOException) e.getCause();
+				}
+				throw new RuntimeException(e.getCause());
+			}
+			finally {
+				executor.shutdownNow();
+			}
+			
+			return merge(runs, indexFile);
+		}
+		finally {
+			for(final Path run : runs) {
+				Files.deleteIfExists(run);
+			}
+			Files.deleteIfExists(runDirectory);
+		}
+	}
+	
+	/**
+	 * Helper function that merges the sorted runs into the index
+	 */
+	private static long merge(final List<Path> runs, final Path indexFile) throws IOException {
+		
+		final PriorityQueue<RunReader> queue = new PriorityQueue<>(Math.max(1, runs.size()), (first, second) -> {
+			final int keyOrder = Long.compare(first.key, second.key);
+			return keyOrder != 0 ? keyOrder : Long.compare(first.posting, second.posting);
+		});
+		try(final BlockWriter writer = new BlockWriter(Files.newOutputStream(indexFile))) {
+			try {
+				for(final Path run : runs) {
+					final RunReader reader = new RunReader(run);
+					if(reader.next()) {
+						queue.add(reader);
+					}
+					else {
+						reader.close();
+					}
+				}
+				while(!queue.isEmpty()) {
+					final RunReader reader = queue.poll();
+					writer.add(reader.key, reader.posting);
+					if(reader.next()) {
+						queue.add(reader);
+					}
+					else {
+						reader.close();
+					}
+				}
+			}
+			finally {
+				for(final RunReader reader : queue) {
+					reader.close();
+				}
+			}
+			writer.finish();
+			return writer.postingCount;
+		}
+	}
+	
+	/**
+	 * Helper function that sorts keys, and the postings alongside them, by key and then by posting
+	 */
+	static void sort(final long[] keys, final long[] postings, final int from, final int to) {
+		
+		if(to - from < INSERTION_SORT_THRESHOLD) {
+			for(int i = from + 1; i < to; i++) {
+				for(int j = i; j > from && compare(keys, postings, j - 1, j) > 0; j--) {
+					swap(keys, postings, j - 1, j);
+				}
+			}
+			return;
+		}
+		final int middle = (from + to) >>> 1;
+		if(compare(keys, postings, from, middle) > 0) {
+			swap(keys, postings, from, middle);
+		}
+		if(compare(keys, postings, middle, to - 1) > 0) {
+			swap(keys, postings, middle, to - 1);
+			if(compare(keys, postings, from, middle) > 0) {
+				swap(keys, postings, from, middle);
+			}
+		}
+		final long pivotKey = keys[middle];
+		final long pivotPosting = postings[middle];
+		int low = from;
+		int high = to - 1;
+		while(low <= high) {
+			while(keys[low] < pivotKey || keys[low] == pivotKey && postings[low] < pivotPosting) {
+				low++;
+			}
+			while(keys[high] > pivotKey || keys[high] == pivotKey && postings[high] > pivotPosting) {
+				high--;
+			}
+			if(low <= high) {
+				swap(keys, postings, low++, high--);
+			}
+		}
+		sort(keys, postings, from, high + 1);
+		sort(keys, postings, low, to);
+	}
+	
+	private static int compare(final long[] keys, final long[] postings, final int first, final int second) {
+		
+		final int keyOrder = Long.compare(keys[first], keys[second]);
+		return keyOrder != 0 ? keyOrder : Long.compare(postings[first], postings[second]);
+	}
+	
+	private static void swap(final long[] keys, final long[] postings, final int first, final int second) {
+		
+		final long key = keys[first];
+		keys[first] = keys[second];
+		keys[second] = key;
+		final long posting = postings[first];
+		postings[first] = postings[second];
+		postings[second] = posting;
+	}
+	
+	/**
+	 * Replays games taken from a shared counter and writes their postings out in sorted runs
+	 */
+	private static final class RunTask implements Callable<Void> {
+		
+		private final GameArchiveReader archive;
+		private final long gameCount;
+		private final AtomicLong nextGame;
+		private final Path runDirectory;
+		private final List<Path> runs;
+		private final long[] keys;
+		private final long[] postings;
+		private int size;
+		
+		RunTask(final GameArchiveReader archive, final long gameCount, final AtomicLong nextGame, final Path runDirectory, final List<Path> runs) {
+			
+			this.archive = archive;
+			this.gameCount = gameCount;
+			this.nextGame = nextGame;
+			this.runDirectory = runDirectory;
+			this.runs = runs;
+			this.keys = new long[RUN_SIZE];
+			this.postings = new long[RUN_SIZE];
+		}
+		
+		@Override
+		public Void call() throws IOException {
+			
+			final List<Move> moves = new ArrayList<>();
+			long start;
+			while((start = this.nextGame.getAndAdd(GAMES_PER_TASK)) < this.gameCount) {
+				final long end = Math.min(this.gameCount, start + GAMES_PER_TASK);
+				for(long gameId = start; gameId < end; gameId++) {
+					moves.clear();
+					final Board finalBoard = this.archive.replayGame(gameId, moves);
+					for(int ply = 0; ply < moves.size(); ply++) {
+						add(moves.get(ply).getBoard().getZobristHash(), gameId << PositionIndex.PLY_BITS | ply);
+					}
+					add(finalBoard.getZobristHash(), gameId << PositionIndex.PLY_BITS | moves.size());
+				}
+			}
+			writeRun();
+			return null;
+		}
+		
+		private void add(final long key, final long posting) throws IOException {
+			
+			if(this.size == RUN_SIZE) {
+				writeRun();
+			}
+			this.keys[this.size] = key;
+			this.postings[this.size] = posting;
+			this.size++;
+		}
+		
+		private void writeRun() throws IOException {
+			
+			if(this.size == 0) {
+				return;
+			}
+			sort(this.keys, this.postings, 0, this.size);
+			final Path run = Files.createTempFile(this.runDirectory, "run", ".bin");
+			this.runs.add(run);
+			try(final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run), BUFFER_SIZE))) {
+				output.writeInt(this.size);
+				for(int i = 0; i < this.size; i++) {
+					output.writeLong(this.keys[i]);
+					output.writeLong(this.postings[i]);
+				}
+			}
+			this.size = 0;
+		}
+	}
+	
+	/**
+	 * Reads a sorted run back one posting at a time
+	 */
+	private static final class RunReader {
+		
+		private final DataInputStream input;
+		private int remaining;
+		private long key;
+		private long posting;
+		
+		RunReader(final Path run) throws IOException {
+			
+			this.input = new DataInputStream(new BufferedInputStream(Files.newInputStream(run), BUFFER_SIZE));
+			this.remaining = this.input.readInt();
+		}
+		
+		boolean next() throws IOException {
+			
+			if(this.remaining == 0) {
+				return false;
+			}
+			this.key = this.input.readLong();
+			this.posting = this.input.readLong();
+			this.remaining--;
+			return true;
+		}
+		
+		void close() throws IOException {
+			
+			this.input.close();
+		}
+	}
+	
+	/**
+	 * Encodes sorted postings into the blocks, directory and trailer of a position index
+	 */
+	private static final class BlockWriter implements AutoCloseable {
+		
+		private final DataOutputStream output;
+		private final byte[] block;
+		private final byte[] header;
+		private long[] directory;
+		private int blockCount;
+		private int blockLength;
+		private int blockEntries;
+		private long blockFirstKey;
+		private long previousKey;
+		private long previousGameId;
+		private long fileOffset;
+		private long postingCount;
+		
+		BlockWriter(final OutputStream output) {
+			
+			this.output = new DataOutputStream(new BufferedOutputStream(output, BUFFER_SIZE));
+			this.block = new byte[PositionIndex.BLOCK_SIZE * 3 * 10];
+			this.header = new byte[10];
+			this.directory = new long[1024];
+		}
+		
+		void add(final long key, final long posting) throws IOException {
+			
+			if(this.blockEntries == PositionIndex.BLOCK_SIZE) {
+				writeBlock();
+			}
+			if(this.blockEntries == 0) {
+				this.blockFirstKey = key;
+				this.previousKey = key;
+			}
+			final long keyDelta = key - this.previousKey;
+			final long gameId = PositionIndex.gameId(posting);
+			this.blockLength = writeVarLong(this.block, this.blockLength, keyDelta);
+			this.blockLength = writeVarLong(this.block, this.blockLength,
+					keyDelta == 0 && this.blockEntries > 0 ? gameId - this.previousGameId : gameId);
+			this.blockLength = writeVarLong(this.block, this.blockLength, PositionIndex.ply(posting));
+			this.previousKey = key;
+			this.previousGameId = gameId;
+			this.blockEntries++;
+			this.postingCount++;
+		}
+		
+		void finish() throws IOException {
+			
+			if(this.blockEntries > 0) {
+				writeBlock();
+			}
+			final long directoryOffset = this.fileOffset;
+			for(int i = 0; i < 2 * this.blockCount; i++) {
+				this.output.writeLong(this.directory[i]);
+			}
+			this.output.writeLong(directoryOffset);
+			this.output.writeLong(this.blockCount);
+			this.output.writeLong(this.postingCount);
+			this.output.writeInt(PositionIndex.MAGIC);
+		}
+		
+		@Override
+		public void close() throws IOException {
+			
+			this.output.close();
+		}
+		
+		/**
+		 * Helper function that writes out the current block, first padding to the next segment if the block
+		 * would otherwise cross into it
+		 */
+		private void writeBlock() throws IOException {
+			
+			final int headerLength = writeVarLong(this.header, 0, this.blockEntries);
+			final long segmentRemaining = PositionIndex.SEGMENT_SIZE - this.fileOffset % PositionIndex.SEGMENT_SIZE;
+			if(headerLength + this.blockLength > segmentRemaining) {
+				for(long i = 0; i < segmentRemaining; i++) {
+					this.output.write(0);
+				}
+				this.fileOffset += segmentRemaining;
+			}
+			if(2 * this.blockCount + 2 > this.directory.length) {
+				this.directory = Arrays.copyOf(this.directory, 2 * this.directory.length);
+			}
+			this.directory[2 * this.blockCount] = this.blockFirstKey;
+			this.directory[2 * this.blockCount + 1] = this.fileOffset;
+			this.blockCount++;
+			this.output.write(this.header, 0, headerLength);
+			this.output.write(this.block, 0, this.blockLength);
+			this.fileOffset += headerLength + this.blockLength;
+			this.blockLength = 0;
+			this.blockEntries = 0;
+		}
+		
+		private static int writeVarLong(final byte[] buffer, final int offset, final long value) {
+			
+			int index = offset;
+			long remaining = value;
+			while((remaining & ~0x7FL) != 0) {
+				buffer[index++] = (byte) ((remaining & 0x7F) | 0x80);
+				remaining >>>= 7;
+			}
+			buffer[index++] = (byte) remaining;
+			return index;
+		}
+	}
+}
@@ -0,0 +1,134 @@
+package com.chess.pgn;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.Move;
+import com.chess.engine.pieces.Piece.PieceType;
+import com.chess.engine.player.MoveTransition;
+
+/**
+ * Writes and reads moves in Standard Algebraic Notation. The notation of a move without its check
+ * marker comes from Move.toString, which adds a file, rank or square when another piece of the same
+ * type could also reach the destination; the check and mate markers need the position after the move
+ * and are added here.
+ */
+public final class SANUtilities {
+	
+	private SANUtilities() {
+		
+		throw new RuntimeException("Cannot initiate this class");
+	}
+	
+	/**
+	 * Function that writes a move in SAN, playing it to find out whether it gives check or mate
+	 * @param move    a legal move
+	 * @return    the move in SAN
+	 */
+	public static String toSAN(final Move move) {
+		
+		final MoveTransition transition = move.getBoard().currentPlayer().makeMove(move);
+		return toSAN(move, transition.getTransitionBoard());
+	}
+	
+	/**
+	 * Function that writes a move in SAN when the position after it is already known
+	 * @param move          a legal move
+	 * @param boardAfter    the position after the move
+	 * @return    the move in SAN
+	 */
+	public static String toSAN(final Move move, final Board boardAfter) {
+		
+		return move.toString() + checkMarker(boardAfter);
+	}
+	
+	/**
+	 * Function that returns the marker SAN puts after a move leading to a position
+	 * @param boardAfter    the position after the move
+	 * @return    # if the side to move is mated, + if it is in check, and an empty string otherwise
+	 */
+	public static String checkMarker(final Board boardAfter) {
+		
+		if(!boardAfter.currentPlayer().isInCheck()) {
+			return "";
+		}
+		return boardAfter.currentPlayer().isInCheckMate() ? "#" : "+";
+	}
+	
+	/**
+	 * Function that finds the move a SAN token stands for. Candidates are picked out of the current
+	 * player's moves by piece, destination and disambiguation alone; only when more than one is left, as
+	 * with a pinned piece the SAN leaves undisambiguated, are they tried on the board
+	 * @param board    the board the move is played on
+	 * @param san      the move in SAN, with or without check marks and annotations
+	 * @return    the move, or Move.NULL_MOVE if no move of the current player matches or the move
+	 *            promotes to anything but a queen, the only promotion the engine plays
+	 */
+	public static Move createMove(final Board board, final String san) {
+		
+		int end = san.length();
+		while(end > 0 && "+#!?".indexOf(san.charAt(end - 1)) >= 0) {
+			end--;
+		}
+		if(san.startsWith("O-O") || san.startsWith("0-0")) {
+			final boolean queenSide = end >= 5;
+			for(final Move move : board.currentPlayer().getLegalMoves()) {
+				if(move.isCastlingMove() && (move.getDestinationCoordinate() % 8 == 2) == queenSide) {
+					return move;
+				}
+			}
+			return Move.NULL_MOVE;
+		}
+		final int equals = san.indexOf('=');
+		if(equals > 0) {
+			if(equals + 1 >= end || san.charAt(equals + 1) != 'Q') {
+				return Move.NULL_MOVE;
+			}
+			end = equals;
+		}
+		else if(end > 0 && "QRBN".indexOf(san.charAt(end - 1)) >= 0) {
+			if(san.charAt(end - 1) != 'Q') {
+				return Move.NULL_MOVE;
+			}
+			end--;
+		}
+		if(end < 2) {
+			return Move.NULL_MOVE;
+		}
+		final int destinationFile = san.charAt(end - 2) - 'a';
+		final int destinationRank = san.charAt(end - 1) - '1';
+		if(destinationFile < 0 || destinationFile > 7 || destinationRank < 0 || destinationRank > 7) {
+			return Move.NULL_MOVE;
+		}
+		final int destination = (7 - destinationRank) * 8 + destinationFile;
+		final int pieceIndex = "PNBRQK".indexOf(san.charAt(0));
+		final PieceType pieceType = pieceIndex > 0 ? PieceType.values()[pieceIndex] : PieceType.PAWN;
+		int fromFile = -1;
+		int fromRank = -1;
+		for(int i = pieceIndex > 0 ? 1 : 0; i < end - 2; i++) {
+			final char c = san.charAt(i);
+			if(c >= 'a' && c <= 'h') {
+				fromFile = c - 'a';
+			}
+			else if(c >= '1' && c <= '8') {
+				fromRank = c - '1';
+			}
+		}
+		
+		final List<Move> candidates = new ArrayList<>(2);
+		for(final Move move : board.currentPlayer().getLegalMoves()) {
+			final int from = move.getCurrentCoordinate();
+			if(move.getDestinationCoordinate() == destination && !move.isCastlingMove() &&
+			   move.getMovedPiece().getPieceType() == pieceType &&
+			   (fromFile < 0 || from % 8 == fromFile) && (fromRank < 0 || 7 - from / 8 == fromRank)) {
+				candidates.add(move);
+			}
+		}
+		if(candidates.size() > 1) {
+			candidates.removeIf(move -> !board.currentPlayer().makeMove(move).getMoveStatus().isDone());
+		}
+		
+		return candidates.size() == 1 ? candidates.get(0) : Move.NULL_MOVE;
+	}
+}
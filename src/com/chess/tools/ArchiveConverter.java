@@ -0,0 +1,58 @@
+package com.chess.tools;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.chess.pgn.GameArchiveWriter;
+import com.chess.pgn.PGNImporter;
+import com.chess.pgn.PGNImporter.ImportResult;
+
+/**
+ * Converts a PGN file into a binary game archive and its index. Games are parsed and replayed in
+ * parallel by PGNImporter and appended to the archive as they finish, so their order in the archive
+ * follows the order they were replayed in rather than the order of the PGN file.
+ * <p>
+ * Usage: ArchiveConverter pgn-file archive-file index-file [threads]
+ */
+public final class ArchiveConverter {
+	
+	private ArchiveConverter() {
+		
+		throw new RuntimeException("Cannot initiate this class");
+	}
+	
+	public static void main(final String[] args) throws IOException {
+		
+		if(args.length < 3) {
+			System.err.println("Usage: ArchiveConverter pgn-file archive-file index-file [threads]");
+			System.exit(1);
+		}
+		final Path pgnFile = Paths.get(args[0]);
+		final Path archiveFile = Paths.get(args[1]);
+		final int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+		
+		final long start = System.currentTimeMillis();
+		final AtomicLong unwritable = new AtomicLong();
+		final ImportResult result;
+		try(final GameArchiveWriter writer = new GameArchiveWriter(archiveFile, Paths.get(args[2]))) {
+			result = new PGNImporter(threads).importFile(pgnFile, (game, moves, finalBoard) -> {
+				try {
+					writer.append(game, moves);
+				}
+				catch(final IOException e) {
+					throw new UncheckedIOException(e);
+				}
+				catch(final IllegalArgumentException e) {
+					unwritable.incrementAndGet();
+				}
+			});
+		}
+		
+		System.out.printf("%s, %d too large for the archive, in %d ms%n", result, unwritable.get(), System.currentTimeMillis() - start);
+		System.out.printf("%d bytes of PGN stored in %d bytes%n", Files.size(pgnFile), Files.size(archiveFile));
+	}
+}
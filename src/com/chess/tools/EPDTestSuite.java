@@ -0,0 +1,412 @@
+package com.chess.tools;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.Move;
+import com.chess.engine.player.ai.CachingBoardEvaluator;
+import com.chess.engine.player.ai.IterativeDeepening;
+import com.chess.engine.player.ai.MiniMax;
+import com.chess.engine.player.ai.MoveStrategy;
+import com.chess.engine.player.ai.SearchInfo;
+import com.chess.engine.player.ai.StandardBoardEvaluator;
+import com.chess.engine.player.ai.TranspositionTable;
+import com.chess.pgn.FenUtilities;
+import com.chess.pgn.SANUtilities;
+
+/**
+ * Runs an EPD test suite such as WAC or STS: every position is searched with a fresh move strategy
+ * under a time or depth limit, and counts as solved if the strategy plays one of its bm moves and
+ * none of its am moves. Positions are searched in parallel, one per thread, and reported in the order
+ * of the file, followed by the number solved, the average time to solution and the nodes per second.
+ * Each thread keeps a transposition table, emptied before every position, and an evaluation cache,
+ * which is not, since an evaluation depends on the position alone.
+ * <p>
+ * The time to solution is the time of the first completed iteration from which the strategy kept
+ * playing a solving move until the end of the search. The time limit is kept by stopping the strategy,
+ * so it applies to any strategy that honours MoveStrategy.stop. Nodes are taken from the strategy once
+ * it returns, so they include those of the iteration it was stopped in.
+ * <p>
+ * Usage: EPDTestSuite epd-file move-time-millis [depth] [threads] [iterative|minimax]
+ * <br>
+ * A move time of 0 searches every position to the full depth.
+ */
+public final class EPDTestSuite {
+	
+	private static final int MAX_SEARCH_DEPTH = 63;
+	private static final int TABLE_SIZE_MB = 16;
+	private static final int EVALUATION_CACHE_SIZE_MB = 4;
+	
+	private final Supplier<MoveStrategy> strategyFactory;
+	private final long moveTimeMillis;
+	private final ExecutorService searchPool;
+	private final ScheduledExecutorService timer;
+	
+	private EPDTestSuite(final Supplier<MoveStrategy> strategyFactory, final long moveTimeMillis, final int threads) {
+		
+		this.strategyFactory = strategyFactory;
+		this.moveTimeMillis = moveTimeMillis;
+		this.searchPool = Executors.newFixedThreadPool(threads);
+		this.timer = Executors.newSingleThreadScheduledExecutor();
+	}
+	
+	public static void main(final String[] args) throws IOException, InterruptedException {
+		
+		if(args.length < 2) {
+			System.err.println("Usage: EPDTestSuite epd-file move-time-millis [depth] [threads] [iterative|minimax]");
+			System.exit(1);
+		}
+		final long moveTimeMillis = Long.parseLong(args[1]);
+		final int depth = args.length > 2 ? Integer.parseInt(args[2]) : MAX_SEARCH_DEPTH;
+		final int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+		final String strategy = args.length > 4 ? args[4] : "iterative";
+		
+		final Supplier<MoveStrategy> strategyFactory;
+		if(strategy.equals("iterative")) {
+			final ThreadLocal<TranspositionTable> tables = ThreadLocal.withInitial(() -> new TranspositionTable(TABLE_SIZE_MB));
+			final ThreadLocal<CachingBoardEvaluator> evaluators = ThreadLocal.withInitial(
+					() -> new CachingBoardEvaluator(new StandardBoardEvaluator(), EVALUATION_CACHE_SIZE_MB));
+			strategyFactory = () -> {
+				final TranspositionTable table = tables.get();
+				table.clear();
+				return new IterativeDeepening(depth, 0, table, evaluators.get());
+			};
+		}
+		else if(strategy.equals("minimax")) {
+			strategyFactory = () -> new MiniMax(depth);
+		}
+		else {
+			throw new IllegalArgumentException("Unknown strategy " + strategy);
+		}
+		
+		final List<TestPosition> positions = load(Paths.get(args[0]));
+		if(positions.isEmpty()) {
+			System.exit(1);
+		}
+		System.out.printf("Searching %d positions with %s, %s, on %d threads%n", positions.size(), strategy,
+				moveTimeMillis > 0 ? moveTimeMillis + " ms per move" : "depth " + depth, threads);
+		
+		final EPDTestSuite suite = new EPDTestSuite(strategyFactory, moveTimeMillis, threads);
+		try {
+			suite.run(positions);
+		}
+		finally {
+			suite.searchPool.shutdownNow();
+			suite.timer.shutdownNow();
+		}
+	}
+	
+	/**
+	 * Function that reads the positions of an EPD file. Lines without a position, or with neither a bm
+	 * nor an am operation, are skipped and reported
+	 * @param file    the EPD file
+	 * @return    the positions, in the order of the file
+	 * @throws IOException    if the file cannot be read
+	 */
+	private static List<TestPosition> load(final Path file) throws IOException {
+		
+		final List<TestPosition> positions = new ArrayList<>();
+		try(final BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.ISO_8859_1)) {
+			String line;
+			int lineNumber = 0;
+			while((line = reader.readLine()) != null) {
+				lineNumber++;
+				if(line.trim().isEmpty() || line.startsWith("#")) {
+					continue;
+				}
+				try {
+					positions.add(TestPosition.parse(line, "line " + lineNumber));
+				}
+				catch(final IllegalArgumentException e) {
+					System.err.printf("Skipped line %d: %s%n", lineNumber, e.getMessage());
+				}
+			}
+		}
+		
+		return positions;
+	}
+	
+	private void run(final List<TestPosition> positions) throws InterruptedException {
+		
+		final long start = System.currentTimeMillis();
+		final List<Future<TestResult>> futures = new ArrayList<>(positions.size());
+		for(final TestPosition position : positions) {
+			futures.add(this.searchPool.submit(() -> solve(position)));
+		}
+		
+		int solved = 0;
+		long solutionMillis = 0;
+		long totalNodes = 0;
+		long searchMillis = 0;
+		for(int i = 0; i < positions.size(); i++) {
+			final TestResult result;
+			try {
+				result = futures.get(i).get();
+			}
+			catch(final ExecutionException e) {
+				System.out.printf("%4d %-12s error %s%n", i + 1, positions.get(i).id, e.getCause());
+				continue;
+			}
+			System.out.printf("%4d %s%n", i + 1, result);
+			if(result.isSolved()) {
+				solved++;
+				solutionMillis += result.solutionMillis;
+			}
+			totalNodes += result.nodes;
+			searchMillis += result.elapsedMillis;
+		}
+		final long wallMillis = System.currentTimeMillis() - start;
+		
+		System.out.printf("Solved %d of %d (%.1f%%) in %d ms%n", solved, positions.size(), 100.0 * solved / positions.size(), wallMillis);
+		System.out.printf("Average time to solution %d ms%n", solved > 0 ? solutionMillis / solved : 0);
+		System.out.printf("%d nodes, %d nps per search, %d nps in total%n", totalNodes,
+				searchMillis > 0 ? totalNodes * 1000 / searchMillis : 0, wallMillis > 0 ? totalNodes * 1000 / wallMillis : 0);
+	}
+	
+	/**
+	 * Function that searches one position on the calling thread
+	 * @param position    the position to solve
+	 * @return    the move played and how the search went
+	 */
+	private TestResult solve(final TestPosition position) {
+		
+		final MoveStrategy strategy = this.strategyFactory.get();
+		final SolutionTracker tracker = new SolutionTracker(position);
+		strategy.setSearchListener(tracker::iterationCompleted);
+		
+		final ScheduledFuture<?> stopper = this.moveTimeMillis > 0 ?
+				this.timer.schedule(strategy::stop, this.moveTimeMillis, TimeUnit.MILLISECONDS) : null;
+		final long start = System.currentTimeMillis();
+		final Move move = strategy.execute(position.board);
+		final long elapsedMillis = System.currentTimeMillis() - start;
+		if(stopper != null) {
+			stopper.cancel(false);
+		}
+		
+		final boolean solved = position.isSolution(move);
+		final long solutionMillis = !solved ? -1 : tracker.solutionMillis >= 0 ? tracker.solutionMillis : elapsedMillis;
+		final SearchInfo lastInfo = tracker.lastInfo;
+		return new TestResult(position, move, solved, solutionMillis, elapsedMillis,
+				lastInfo != null ? lastInfo.getDepth() : 0, strategy.getNumNodesSearched());
+	}
+	
+	/**
+	 * Follows the iterations of one search to find when it settled on a solving move
+	 */
+	private static final class SolutionTracker {
+		
+		private final TestPosition position;
+		private SearchInfo lastInfo;
+		/** The time of the first iteration of the current run of solving iterations, or -1 */
+		private long solutionMillis;
+		
+		private SolutionTracker(final TestPosition position) {
+			
+			this.position = position;
+			this.solutionMillis = -1;
+		}
+		
+		private void iterationCompleted(final SearchInfo searchInfo) {
+			
+			if(searchInfo.getMultiPV() != 1 || searchInfo.getPrincipalVariation().isEmpty()) {
+				return;
+			}
+			this.lastInfo = searchInfo;
+			if(!this.position.isSolution(searchInfo.getPrincipalVariation().get(0))) {
+				this.solutionMillis = -1;
+			}
+			else if(this.solutionMillis < 0) {
+				this.solutionMillis = searchInfo.getElapsedMillis();
+			}
+		}
+	}
+	
+	/**
+	 * A position of the suite with the moves that solve it and the moves to avoid
+	 */
+	private static final class TestPosition {
+		
+		private final String id;
+		private final Board board;
+		private final List<Move> bestMoves;
+		private final List<Move> avoidMoves;
+		private final String description;
+		
+		private TestPosition(final String id, final Board board, final List<Move> bestMoves, final List<Move> avoidMoves, final String description) {
+			
+			this.id = id;
+			this.board = board;
+			this.bestMoves = bestMoves;
+			this.avoidMoves = avoidMoves;
+			this.description = description;
+		}
+		
+		/**
+		 * Function that reads an EPD line: the first four FEN fields, then operations of an opcode and
+		 * operands, each ended by a semicolon, with quoted operands such as that of id kept whole
+		 * @param line           the EPD line
+		 * @param defaultId      the id to use if the line has no id operation
+		 * @return    the position
+		 * @throws IllegalArgumentException    if the line has no valid position, neither bm nor am, or a
+		 *                                     move that is not legal in the position
+		 */
+		private static TestPosition parse(final String line, final String defaultId) {
+			
+			int index = 0;
+			for(int field = 0; field < 4; field++) {
+				while(index < line.length() && Character.isWhitespace(line.charAt(index))) {
+					index++;
+				}
+				while(index < line.length() && !Character.isWhitespace(line.charAt(index))) {
+					index++;
+				}
+			}
+			final Board board = FenUtilities.createGameFromFEN(line.substring(0, index));
+			
+			String id = defaultId;
+			final List<String> bestSAN = new ArrayList<>();
+			final List<String> avoidSAN = new ArrayList<>();
+			final StringBuilder description = new StringBuilder();
+			while(index < line.length()) {
+				final List<String> tokens = new ArrayList<>();
+				index = readOperation(line, index, tokens);
+				if(tokens.isEmpty()) {
+					continue;
+				}
+				final String opcode = tokens.get(0);
+				final List<String> operands = tokens.subList(1, tokens.size());
+				if(opcode.equals("id") && !operands.isEmpty()) {
+					id = operands.get(0);
+				}
+				else if(opcode.equals("bm")) {
+					bestSAN.addAll(operands);
+				}
+				else if(opcode.equals("am")) {
+					avoidSAN.addAll(operands);
+				}
+			}
+			if(bestSAN.isEmpty() && avoidSAN.isEmpty()) {
+				throw new IllegalArgumentException("no bm or am operation");
+			}
+			if(!bestSAN.isEmpty()) {
+				description.append("bm ").append(String.join(" ", bestSAN));
+			}
+			if(!avoidSAN.isEmpty()) {
+				description.append(description.length() > 0 ? ", " : "").append("am ").append(String.join(" ", avoidSAN));
+			}
+			
+			return new TestPosition(id, board, createMoves(board, bestSAN), createMoves(board, avoidSAN), description.toString());
+		}
+		
+		/**
+		 * Function that reads one operation, up to and including its semicolon
+		 * @param line      the EPD line
+		 * @param index     where the operation starts
+		 * @param tokens    the list to add the opcode and operands to
+		 * @return    the index after the operation
+		 */
+		private static int readOperation(final String line, int index, final List<String> tokens) {
+			
+			final StringBuilder token = new StringBuilder();
+			boolean quoted = false;
+			for(; index < line.length(); index++) {
+				final char c = line.charAt(index);
+				if(c == '"') {
+					quoted = !quoted;
+				}
+				else if(!quoted && (c == ';' || Character.isWhitespace(c))) {
+					if(token.length() > 0) {
+						tokens.add(token.toString());
+						token.setLength(0);
+					}
+					if(c == ';') {
+						return index + 1;
+					}
+				}
+				else {
+					token.append(c);
+				}
+			}
+			if(token.length() > 0) {
+				tokens.add(token.toString());
+			}
+			
+			return index;
+		}
+		
+		private static List<Move> createMoves(final Board board, final List<String> sanMoves) {
+			
+			final List<Move> moves = new ArrayList<>(sanMoves.size());
+			for(final String san : sanMoves) {
+				final Move move = SANUtilities.createMove(board, san);
+				if(move == Move.NULL_MOVE) {
+					throw new IllegalArgumentException("no legal move " + san);
+				}
+				moves.add(move);
+			}
+			
+			return Collections.unmodifiableList(moves);
+		}
+		
+		private boolean isSolution(final Move move) {
+			
+			return (this.bestMoves.isEmpty() || this.bestMoves.contains(move)) && !this.avoidMoves.contains(move);
+		}
+	}
+	
+	/**
+	 * The outcome of searching one position
+	 */
+	private static final class TestResult {
+		
+		private final TestPosition position;
+		private final Move move;
+		private final boolean solved;
+		private final long solutionMillis;
+		private final long elapsedMillis;
+		private final int depth;
+		private final long nodes;
+		
+		private TestResult(final TestPosition position, final Move move, final boolean solved, final long solutionMillis,
+						   final long elapsedMillis, final int depth, final long nodes) {
+			
+			this.position = position;
+			this.move = move;
+			this.solved = solved;
+			this.solutionMillis = solutionMillis;
+			this.elapsedMillis = elapsedMillis;
+			this.depth = depth;
+			this.nodes = nodes;
+		}
+		
+		private boolean isSolved() {
+			
+			return this.solved;
+		}
+		
+		@Override
+		public String toString() {
+			
+			final String played = this.move == null || this.move == Move.NULL_MOVE ? "none" : SANUtilities.toSAN(this.move);
+			return String.format("%-12s %-6s %-8s (%s)%s depth %d, %d nodes in %d ms", this.position.id,
+					this.solved ? "solved" : "failed", played, this.position.description,
+					this.solved ? " in " + this.solutionMillis + " ms," : "", this.depth, this.nodes, this.elapsedMillis);
+		}
+	}
+}
@@ -0,0 +1,381 @@
+package com.chess.tools;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import com.chess.engine.board.BoardUtils;
+import com.chess.engine.board.PieceSquareTables;
+import com.chess.engine.pieces.Piece.PieceType;
+
+/**
+ * Tunes the material values and piece-square tables by Texel's method: the tapered material and
+ * piece-square score of every position in a file of labelled positions is turned into an expected
+ * result with a sigmoid, and each weight in turn is nudged up or down for as long as that lowers the
+ * mean squared difference from the actual game results.
+ * <p>
+ * Positions are read from EPD or FEN lines carrying a result, either as 1-0, 0-1 and 1/2-1/2 anywhere
+ * on the line or as [1.0], [0.5] and [0.0]. Only the piece placement is kept, packed into primitive
+ * arrays, and the error over them is summed in parallel on a ForkJoinPool. The result is a weights file
+ * for PieceSquareTables.loadWeights.
+ * <p>
+ * Only the material and piece-square terms are tuned. The pawn structure, king safety, rook and
+ * mobility terms and the check and castling bonuses of StandardBoardEvaluator are left out, since they
+ * need the whole board rather than the piece placement kept here; they keep their hand-set values, and
+ * the tuned weights soak up part of what those terms would otherwise score.
+ * <p>
+ * Usage: TexelTuner positions-file weights-file [passes] [threads]
+ */
+public final class TexelTuner {
+	
+	private static final PieceType[] PIECE_TYPES = PieceType.values();
+	private static final int NUM_PIECE_TYPES = PIECE_TYPES.length;
+	private static final int TABLE_SIZE = NUM_PIECE_TYPES * BoardUtils.NUM_TILES;
+	private static final int MIDDLEGAME_MATERIAL = 0;
+	private static final int ENDGAME_MATERIAL = MIDDLEGAME_MATERIAL + NUM_PIECE_TYPES;
+	private static final int MIDDLEGAME_TABLES = ENDGAME_MATERIAL + NUM_PIECE_TYPES;
+	private static final int ENDGAME_TABLES = MIDDLEGAME_TABLES + TABLE_SIZE;
+	private static final int NUM_PARAMETERS = ENDGAME_TABLES + TABLE_SIZE;
+	
+	private static final short BLACK_PIECE = 1 << 9;
+	private static final int ENTRY_MASK = BLACK_PIECE - 1;
+	private static final int SEQUENTIAL_THRESHOLD = 8192;
+	private static final int DEFAULT_PASSES = 100;
+	
+	/** Every piece of every position as its color, type and tile, black tiles mirrored to white's side */
+	private short[] features;
+	/** Where the pieces of each position start in features, plus one entry past the last position */
+	private int[] offsets;
+	private byte[] phases;
+	/** Game results in half points from white's point of view */
+	private byte[] results;
+	private int numPositions;
+	private int numFeatures;
+	
+	private final ForkJoinPool pool;
+	
+	private TexelTuner(final ForkJoinPool pool) {
+		
+		this.pool = pool;
+		this.features = new short[1 << 16];
+		this.offsets = new int[1 << 12];
+		this.phases = new byte[1 << 12];
+		this.results = new byte[1 << 12];
+	}
+	
+	public static void main(final String[] args) throws IOException {
+		
+		if(args.length < 2) {
+			System.err.println("Usage: TexelTuner positions-file weights-file [passes] [threads]");
+			System.exit(1);
+		}
+		final int passes = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_PASSES;
+		final int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+		
+		final TexelTuner tuner = new TexelTuner(new ForkJoinPool(threads));
+		final long start = System.currentTimeMillis();
+		final int skipped = tuner.load(Paths.get(args[0]));
+		System.out.printf("Loaded %d positions in %d ms, skipped %d lines%n", tuner.numPositions,
+				System.currentTimeMillis() - start, skipped);
+		if(tuner.numPositions == 0) {
+			System.exit(1);
+		}
+		tuner.tune(currentWeights(), passes, Paths.get(args[1]));
+	}
+	
+	/**
+	 * Function that reads labelled positions from a file
+	 * @param file    the EPD or FEN file
+	 * @return    the number of lines that were skipped for lacking a position or a result
+	 * @throws IOException    if the file cannot be read
+	 */
+	private int load(final Path file) throws IOException {
+		
+		int skipped = 0;
+		try(final BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.ISO_8859_1)) {
+			String line;
+			while((line = reader.readLine()) != null) {
+				if(!addPosition(line)) {
+					skipped++;
+				}
+			}
+		}
+		
+		return skipped;
+	}
+	
+	private boolean addPosition(final String line) {
+		
+		final int result = parseResult(line);
+		if(result < 0) {
+			return false;
+		}
+		
+		final int firstFeature = this.numFeatures;
+		int coordinate = 0;
+		int phase = 0;
+		for(int i = 0; i < line.length() && coordinate < BoardUtils.NUM_TILES; i++) {
+			final char c = line.charAt(i);
+			if(c == '/') {
+				continue;
+			}
+			if(c >= '1' && c <= '8') {
+				coordinate += c - '0';
+				continue;
+			}
+			final int type = pieceType(c);
+			if(type < 0) {
+				this.numFeatures = firstFeature;
+				return false;
+			}
+			final boolean black = Character.isLowerCase(c);
+			ensureFeatureCapacity();
+			this.features[this.numFeatures++] = (short) ((black ? BLACK_PIECE : 0) | type << 6 |
+					(black ? PieceSquareTables.mirror(coordinate) : coordinate));
+			phase += PieceSquareTables.phaseWeight(PIECE_TYPES[type]);
+			coordinate++;
+		}
+		if(coordinate != BoardUtils.NUM_TILES) {
+			this.numFeatures = firstFeature;
+			return false;
+		}
+		
+		if(this.numPositions + 1 >= this.offsets.length) {
+			final int capacity = this.offsets.length * 2;
+			this.offsets = Arrays.copyOf(this.offsets, capacity);
+			this.phases = Arrays.copyOf(this.phases, capacity);
+			this.results = Arrays.copyOf(this.results, capacity);
+		}
+		this.offsets[this.numPositions] = firstFeature;
+		this.phases[this.numPositions] = (byte) Math.min(phase, PieceSquareTables.MAX_PHASE);
+		this.results[this.numPositions] = (byte) result;
+		this.numPositions++;
+		this.offsets[this.numPositions] = this.numFeatures;
+		
+		return true;
+	}
+	
+	private void ensureFeatureCapacity() {
+		
+		if(this.numFeatures == this.features.length) {
+			this.features = Arrays.copyOf(this.features, this.features.length * 2);
+		}
+	}
+	
+	private static int pieceType(final char c) {
+		
+		switch(Character.toUpperCase(c)) {
+			case 'P': return PieceType.PAWN.ordinal();
+			case 'N': return PieceType.KNIGHT.ordinal();
+			case 'B': return PieceType.BISHOP.ordinal();
+			case 'R': return PieceType.ROOK.ordinal();
+			case 'Q': return PieceType.QUEEN.ordinal();
+			case 'K': return PieceType.KING.ordinal();
+			default: return -1;
+		}
+	}
+	
+	/**
+	 * Helper function that finds the game result on a line
+	 * @return    the result in half points for white, or -1 if there is none
+	 */
+	private static int parseResult(final String line) {
+		
+		if(line.contains("1/2-1/2") || line.contains("[0.5]")) {
+			return 1;
+		}
+		if(line.contains("1-0") || line.contains("[1.0]")) {
+			return 2;
+		}
+		if(line.contains("0-1") || line.contains("[0.0]")) {
+			return 0;
+		}
+		
+		return -1;
+	}
+	
+	/**
+	 * Function that runs the local search, writing the weights out after every pass that improved them
+	 * @param parameters    the weights to start from, changed in place
+	 * @param maxPasses     the most passes over all weights to make
+	 * @param output        the weights file to write
+	 * @throws IOException    if the weights file cannot be written
+	 */
+	private void tune(final int[] parameters, final int maxPasses, final Path output) throws IOException {
+		
+		final double k = findScalingConstant(parameters);
+		double bestError = error(parameters, k);
+		System.out.printf("K = %.3f, starting error %.6f%n", k, bestError);
+		
+		for(int pass = 1; pass <= maxPasses; pass++) {
+			final long start = System.currentTimeMillis();
+			boolean improved = false;
+			for(int i = 0; i < NUM_PARAMETERS; i++) {
+				if(!isTunable(i)) {
+					continue;
+				}
+				parameters[i]++;
+				double error = error(parameters, k);
+				if(error < bestError) {
+					bestError = error;
+					improved = true;
+					continue;
+				}
+				parameters[i] -= 2;
+				error = error(parameters, k);
+				if(error < bestError) {
+					bestError = error;
+					improved = true;
+					continue;
+				}
+				parameters[i]++;
+			}
+			System.out.printf("Pass %d: error %.6f in %d ms%n", pass, bestError, System.currentTimeMillis() - start);
+			if(!improved) {
+				break;
+			}
+			writeWeights(parameters, output);
+		}
+	}
+	
+	/**
+	 * Helper function that leaves out the king's material, which is never traded, and the pawn
+	 * table entries on the first and last ranks, where pawns never stand
+	 */
+	private static boolean isTunable(final int parameter) {
+		
+		if(parameter == MIDDLEGAME_MATERIAL + PieceType.KING.ordinal() || parameter == ENDGAME_MATERIAL + PieceType.KING.ordinal()) {
+			return false;
+		}
+		if(parameter >= MIDDLEGAME_TABLES) {
+			final int entry = (parameter - MIDDLEGAME_TABLES) % TABLE_SIZE;
+			final int coordinate = entry % BoardUtils.NUM_TILES;
+			final boolean firstOrLastRank = coordinate < BoardUtils.NUM_TILES_PER_ROW ||
+											coordinate >= BoardUtils.NUM_TILES - BoardUtils.NUM_TILES_PER_ROW;
+			return !(entry / BoardUtils.NUM_TILES == PieceType.PAWN.ordinal() && firstOrLastRank);
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Helper function that finds the sigmoid scaling that best fits the starting weights to the results,
+	 * by ternary search
+	 */
+	private double findScalingConstant(final int[] parameters) {
+		
+		double low = 0.0;
+		double high = 3.0;
+		for(int i = 0; i < 40; i++) {
+			final double lowThird = low + (high - low) / 3;
+			final double highThird = high - (high - low) / 3;
+			if(error(parameters, lowThird) < error(parameters, highThird)) {
+				high = highThird;
+			}
+			else {
+				low = lowThird;
+			}
+		}
+		
+		return (low + high) / 2;
+	}
+	
+	private double error(final int[] parameters, final double k) {
+		
+		return this.pool.invoke(new ErrorTask(parameters, k, 0, this.numPositions)) / this.numPositions;
+	}
+	
+	private int evaluate(final int[] parameters, final int position) {
+		
+		int middlegame = 0;
+		int endgame = 0;
+		for(int i = this.offsets[position]; i < this.offsets[position + 1]; i++) {
+			final int feature = this.features[i];
+			final int type = (feature >> 6) & 7;
+			final int entry = feature & ENTRY_MASK;
+			final int middlegameValue = parameters[MIDDLEGAME_MATERIAL + type] + parameters[MIDDLEGAME_TABLES + entry];
+			final int endgameValue = parameters[ENDGAME_MATERIAL + type] + parameters[ENDGAME_TABLES + entry];
+			if((feature & BLACK_PIECE) != 0) {
+				middlegame -= middlegameValue;
+				endgame -= endgameValue;
+			}
+			else {
+				middlegame += middlegameValue;
+				endgame += endgameValue;
+			}
+		}
+		final int phase = this.phases[position];
+		
+		return (middlegame * phase + endgame * (PieceSquareTables.MAX_PHASE - phase)) / PieceSquareTables.MAX_PHASE;
+	}
+	
+	private final class ErrorTask extends RecursiveTask<Double> {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private final int[] parameters;
+		private final double k;
+		private final int from;
+		private final int to;
+		
+		private ErrorTask(final int[] parameters, final double k, final int from, final int to) {
+			
+			this.parameters = parameters;
+			this.k = k;
+			this.from = from;
+			this.to = to;
+		}
+		
+		@Override
+		protected Double compute() {
+			
+			if(this.to - this.from <= SEQUENTIAL_THRESHOLD) {
+				double error = 0;
+				for(int i = this.from; i < this.to; i++) {
+					final double expected = 1.0 / (1.0 + Math.pow(10.0, -this.k * evaluate(this.parameters, i) / 400.0));
+					final double difference = results[i] / 2.0 - expected;
+					error += difference * difference;
+				}
+				return error;
+			}
+			
+			final int middle = (this.from + this.to) >>> 1;
+			final ErrorTask left = new ErrorTask(this.parameters, this.k, this.from, middle);
+			left.fork();
+			final double right = new ErrorTask(this.parameters, this.k, middle, this.to).compute();
+			return left.join() + right;
+		}
+	}
+	
+	private static int[] currentWeights() {
+		
+		final int[] parameters = new int[NUM_PARAMETERS];
+		System.arraycopy(PieceSquareTables.getMaterial(false), 0, parameters, MIDDLEGAME_MATERIAL, NUM_PIECE_TYPES);
+		System.arraycopy(PieceSquareTables.getMaterial(true), 0, parameters, ENDGAME_MATERIAL, NUM_PIECE_TYPES);
+		for(final PieceType pieceType : PieceType.values()) {
+			final int offset = pieceType.ordinal() * BoardUtils.NUM_TILES;
+			System.arraycopy(PieceSquareTables.getTable(pieceType, false), 0, parameters, MIDDLEGAME_TABLES + offset, BoardUtils.NUM_TILES);
+			System.arraycopy(PieceSquareTables.getTable(pieceType, true), 0, parameters, ENDGAME_TABLES + offset, BoardUtils.NUM_TILES);
+		}
+		
+		return parameters;
+	}
+	
+	private static void writeWeights(final int[] parameters, final Path output) throws IOException {
+		
+		PieceSquareTables.setMaterial(false, Arrays.copyOfRange(parameters, MIDDLEGAME_MATERIAL, MIDDLEGAME_MATERIAL + NUM_PIECE_TYPES));
+		PieceSquareTables.setMaterial(true, Arrays.copyOfRange(parameters, ENDGAME_MATERIAL, ENDGAME_MATERIAL + NUM_PIECE_TYPES));
+		for(final PieceType pieceType : PieceType.values()) {
+			final int offset = pieceType.ordinal() * BoardUtils.NUM_TILES;
+			PieceSquareTables.setTable(pieceType, false, Arrays.copyOfRange(parameters, MIDDLEGAME_TABLES + offset, MIDDLEGAME_TABLES + offset + BoardUtils.NUM_TILES));
+			PieceSquareTables.setTable(pieceType, true, Arrays.copyOfRange(parameters, ENDGAME_TABLES + offset, ENDGAME_TABLES + offset + BoardUtils.NUM_TILES));
+		}
+		PieceSquareTables.saveWeights(output);
+	}
+}
@@ -2,6 +2,24 @@ package tests;
 
 import static org.junit.Assert.*;
 
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.Test;
 
@@ -9,8 +27,23 @@ import com.chess.engine.board.Board;
 import com.chess.engine.board.BoardUtils;
 import com.chess.engine.board.Move;
 import com.chess.engine.player.MoveTransition;
+import com.chess.engine.player.ai.AnalysisLine;
+import com.chess.engine.player.ai.IterativeDeepening;
 import com.chess.engine.player.ai.MiniMax;
 import com.chess.engine.player.ai.MoveStrategy;
+import com.chess.engine.player.ai.PolyglotBook;
+import com.chess.pgn.FenUtilities;
+import com.chess.pgn.FileGamePersistence;
+import com.chess.pgn.GameArchiveReader;
+import com.chess.pgn.GameArchiveWriter;
+import com.chess.pgn.GamePersistence;
+import com.chess.pgn.PGNGame;
+import com.chess.pgn.PGNImporter;
+import com.chess.pgn.PGNUtilities;
+import com.chess.pgn.ParsePGNException;
+import com.chess.pgn.PositionIndex;
+import com.chess.pgn.PositionIndexBuilder;
+import com.chess.pgn.SANUtilities;
 
 public class TestBoard {
 
@@ -48,4 +81,440 @@ public class TestBoard {
 		assertEquals(aiMove, bestMove);
 		
 	}
+	
+	@Test
+	public void testFoolsMatePrincipalVariation() {
+		
+		final Board board = Board.createStandardBoard();
+		final MoveTransition t1 = board.currentPlayer().makeMove(Move.MoveFactory.createMove(board, 
+																	BoardUtils.getCoordinateAtPosition("f2"), 
+																	BoardUtils.getCoordinateAtPosition("f3")));
+		final MoveTransition t2 = t1.getTransitionBoard().currentPlayer().makeMove(Move.MoveFactory.createMove(t1.getTransitionBoard(), 
+																	BoardUtils.getCoordinateAtPosition("e7"), 
+																	BoardUtils.getCoordinateAtPosition("e5")));
+		final MoveTransition t3 = t2.getTransitionBoard().currentPlayer().makeMove(Move.MoveFactory.createMove(t2.getTransitionBoard(), 
+																	BoardUtils.getCoordinateAtPosition("g2"), 
+																	BoardUtils.getCoordinateAtPosition("g4")));
+		
+		final IterativeDeepening strategy = new IterativeDeepening(4);
+		
+		final Move aiMove = strategy.execute(t3.getTransitionBoard());
+		
+		final Move bestMove = Move.MoveFactory.createMove(t3.getTransitionBoard(), 
+													BoardUtils.getCoordinateAtPosition("d8"), 
+													BoardUtils.getCoordinateAtPosition("h4"));
+		
+		assertEquals(aiMove, bestMove);
+		assertEquals(strategy.getPrincipalVariation().get(0), bestMove);
+	}
+	
+	@Test
+	public void testMultiPVRanksDistinctRootMoves() {
+		
+		final Board hangingQueen = FenUtilities.createGameFromFEN("4k3/8/8/3q4/8/2N5/3R4/4K3 w - - 0 1");
+		final IterativeDeepening strategy = new IterativeDeepening(3);
+		strategy.setMultiPV(4);
+		final Move bestMove = strategy.execute(hangingQueen);
+		assertEquals(SANUtilities.toSAN(bestMove), "Rxd5");
+		assertRankedLines(hangingQueen, strategy.getAnalysisLines(), 4, bestMove);
+		assertTrue(strategy.getAnalysisLines().get(0).getScore() > strategy.getAnalysisLines().get(1).getScore());
+		
+		final Board foolsMate = FenUtilities.createGameFromFEN("rnbqkbnr/pppp1ppp/8/4p3/6P1/5P2/PPPPP2P/RNBQKBNR b KQkq g3 0 2");
+		strategy.setMultiPV(3);
+		final Move mate = strategy.execute(foolsMate);
+		assertEquals(SANUtilities.toSAN(mate), "Qh4#");
+		assertRankedLines(foolsMate, strategy.getAnalysisLines(), 3, mate);
+		
+		final Board threeMoves = FenUtilities.createGameFromFEN("7k/8/8/8/8/8/8/K7 w - - 0 1");
+		strategy.setMultiPV(5);
+		final Move kingMove = strategy.execute(threeMoves);
+		assertRankedLines(threeMoves, strategy.getAnalysisLines(), 3, kingMove);
+	}
+	
+	@Test
+	public void testStopReturnsLegalMove() throws Exception {
+		
+		final Board board = FenUtilities.createGameFromFEN("r1bq1rk1/pp2bppp/1np2n2/6B1/3P4/1BNQ4/PP2NPPP/R3R1K1 w - - 0 13");
+		final IterativeDeepening strategy = new IterativeDeepening(40);
+		final ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			final Future<Move> search = executor.submit(() -> strategy.execute(board));
+			Thread.sleep(500);
+			assertFalse(search.isDone());
+			final long stopTime = System.currentTimeMillis();
+			strategy.stop();
+			final Move move = search.get(5, TimeUnit.SECONDS);
+			assertTrue(System.currentTimeMillis() - stopTime < 500);
+			assertTrue(board.currentPlayer().getLegalMoves().contains(move));
+			assertTrue(board.currentPlayer().makeMove(move).getMoveStatus().isDone());
+			assertFalse(strategy.getPrincipalVariation().isEmpty());
+			assertEquals(strategy.getPrincipalVariation().get(0), move);
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+	
+	/**
+	 * Helper function that checks multi-PV lines: legal and different root moves, best first from the point
+	 * of view of the side to move, the first one being the move the search returned
+	 */
+	private static void assertRankedLines(final Board board, final List<AnalysisLine> lines, final int expectedLines, final Move bestMove) {
+		
+		assertEquals(lines.size(), expectedLines);
+		assertEquals(lines.get(0).getMove(), bestMove);
+		final Set<Move> rootMoves = new HashSet<>();
+		for(int i = 0; i < lines.size(); i++) {
+			final AnalysisLine line = lines.get(i);
+			assertTrue(board.currentPlayer().getLegalMoves().contains(line.getMove()));
+			assertTrue(rootMoves.add(line.getMove()));
+			if(i > 0) {
+				final int previousScore = lines.get(i - 1).getScore();
+				assertTrue(board.currentPlayer().getAlliance().isWhite() ? line.getScore() <= previousScore : line.getScore() >= previousScore);
+			}
+		}
+	}
+	
+	@Test
+	public void testFENRoundTrip() {
+		
+		final Board board = Board.createStandardBoard();
+		assertEquals(FenUtilities.createFENFromGame(board), "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1");
+		
+		final MoveTransition t1 = board.currentPlayer().makeMove(Move.MoveFactory.createMove(board, 
+																	BoardUtils.getCoordinateAtPosition("e2"), 
+																	BoardUtils.getCoordinateAtPosition("e4")));
+		final MoveTransition t2 = t1.getTransitionBoard().currentPlayer().makeMove(Move.MoveFactory.createMove(t1.getTransitionBoard(), 
+																	BoardUtils.getCoordinateAtPosition("c7"), 
+																	BoardUtils.getCoordinateAtPosition("c5")));
+		final String fen = FenUtilities.createFENFromGame(t2.getTransitionBoard());
+		assertEquals(fen, "rnbqkbnr/pp1ppppp/8/2p5/4P3/8/PPPP1PPP/RNBQKBNR w KQkq c6 0 2");
+		
+		final Board parsedBoard = FenUtilities.createGameFromFEN(fen);
+		assertEquals(FenUtilities.createFENFromGame(parsedBoard), fen);
+		assertEquals(parsedBoard.getZobristHash(), t2.getTransitionBoard().getZobristHash());
+	}
+	
+	@Test
+	public void testSANDisambiguationAndPromotion() {
+		
+		final Board knights = FenUtilities.createGameFromFEN("4k3/8/8/8/8/5N2/8/RN2K3 w - - 0 1");
+		final Move knightMove = SANUtilities.createMove(knights, "Nbd2");
+		assertEquals(knightMove.getCurrentCoordinate(), BoardUtils.getCoordinateAtPosition("b1"));
+		assertEquals(SANUtilities.toSAN(knightMove), "Nbd2");
+		assertEquals(SANUtilities.toSAN(SANUtilities.createMove(knights, "Ra8")), "Ra8+");
+		
+		final Board rooks = FenUtilities.createGameFromFEN("4k3/8/8/R7/8/8/8/R3K3 w - - 0 1");
+		assertEquals(SANUtilities.toSAN(SANUtilities.createMove(rooks, "R1a3")), "R1a3");
+		
+		final Board promotion = FenUtilities.createGameFromFEN("1r4k1/P7/8/8/8/8/8/4K3 w - - 0 1");
+		final Move promotionMove = SANUtilities.createMove(promotion, "axb8=Q");
+		assertEquals(SANUtilities.toSAN(promotionMove), "axb8=Q+");
+		final MoveTransition transition = promotion.currentPlayer().makeMove(promotionMove);
+		assertTrue(transition.getMoveStatus().isDone());
+		assertTrue(transition.getTransitionBoard().currentPlayer().getAlliance().isBlack());
+		assertEquals(SANUtilities.createMove(promotion, "a8Q"), SANUtilities.createMove(promotion, "a8=Q"));
+		for(final String underPromotion : Arrays.asList("axb8=N", "axb8=R", "axb8=B", "a8N", "a8=")) {
+			assertEquals(SANUtilities.createMove(promotion, underPromotion), Move.NULL_MOVE);
+		}
+		try {
+			PGNUtilities.replayGame(new PGNGame(Collections.singletonMap("FEN", "1r4k1/P7/8/8/8/8/8/4K3 w - - 0 1"),
+												Arrays.asList("axb8=N")), new ArrayList<>());
+			fail("A knight promotion was played as a queen promotion");
+		}
+		catch(final ParsePGNException e) {
+			assertTrue(e.getMessage().contains("axb8=N"));
+		}
+	}
+	
+	@Test
+	public void testArchiveRoundTrip() throws IOException, ParsePGNException {
+		
+		final Map<String, String> tags = new LinkedHashMap<>();
+		tags.put("White", "Player \uD83D\uDE00");
+		tags.put("Black", "J\u00F6rg \u0000");
+		tags.put("Result", "1-0");
+		final PGNGame game = new PGNGame(tags, Arrays.asList("e4", "e5", "Bc4", "Nc6", "Qh5", "Nf6", "Qxf7#"));
+		final List<Move> moves = new ArrayList<>();
+		PGNUtilities.replayGame(game, moves);
+		
+		final Path archiveFile = Files.createTempFile("archive", ".cga");
+		final Path indexFile = Files.createTempFile("archive", ".cgi");
+		try {
+			try(final GameArchiveWriter writer = new GameArchiveWriter(archiveFile, indexFile)) {
+				writer.append(game, moves);
+				writer.append(game, moves);
+			}
+			try(final GameArchiveReader reader = new GameArchiveReader(archiveFile, indexFile)) {
+				assertEquals(reader.getGameCount(), 2);
+				final PGNGame readGame = reader.readGame(1);
+				assertEquals(readGame.getTags(), tags);
+				assertEquals(readGame.getMoves(), Arrays.asList("e4", "e5", "Bc4", "Nc6", "Qh5", "Nf6", "Qxf7#"));
+				final List<Move> readMoves = new ArrayList<>();
+				assertTrue(reader.replayGame(0, readMoves).currentPlayer().isInCheckMate());
+				assertEquals(readMoves, moves);
+			}
+		}
+		finally {
+			Files.delete(archiveFile);
+			Files.delete(indexFile);
+		}
+	}
+	
+	@Test
+	public void testGamePersistence() throws IOException, ParsePGNException {
+		
+		final List<List<String>> openings = Arrays.asList(Arrays.asList("e4", "e5", "Nf3", "Nc6"),
+				Arrays.asList("d4", "d5", "c4"), Arrays.asList("e4", "c5"));
+		final List<String> ecos = Arrays.asList("C44", "D06", "B20");
+		final List<String> results = Arrays.asList("1-0", "0-1", "1/2-1/2");
+		final int numGames = 2500;
+		
+		final Path directory = Files.createTempDirectory("store");
+		try {
+			try(final GamePersistence store = new FileGamePersistence(directory)) {
+				for(int i = 0; i < numGames; i++) {
+					final Map<String, String> tags = new LinkedHashMap<>();
+					tags.put("White", "w" + i);
+					tags.put("Black", "b" + i % 7);
+					tags.put("Result", results.get(i % 3));
+					tags.put("ECO", ecos.get(i % 3));
+					final PGNGame game = new PGNGame(tags, openings.get(i % 3));
+					final List<Move> moves = new ArrayList<>();
+					final Board finalBoard = PGNUtilities.replayGame(game, moves);
+					store.gameImported(game, moves, finalBoard);
+				}
+				assertEquals(store.getGameCount(), 2 * 1024);
+				store.flush();
+				assertEquals(store.getGameCount(), numGames);
+				assertStoreLookups(store, numGames);
+				
+				final List<Move> moves = new ArrayList<>();
+				final PGNGame game = new PGNGame(Collections.singletonMap("White", "W3"), Arrays.asList("e4"));
+				PGNUtilities.replayGame(game, moves);
+				assertEquals(store.persistGame(game, moves), numGames);
+				assertEquals(store.findGamesByPlayer("w3"), Arrays.asList(3L, (long) numGames));
+			}
+			try(final GamePersistence store = new FileGamePersistence(directory)) {
+				assertEquals(store.getGameCount(), numGames + 1);
+				assertEquals(store.getGame(numGames).getMoves(), Arrays.asList("e4"));
+				assertStoreLookups(store, numGames);
+			}
+			
+			for(final String file : Arrays.asList("tags.dat", "positions.dat")) {
+				try(final FileChannel channel = FileChannel.open(directory.resolve(file), StandardOpenOption.WRITE)) {
+					channel.truncate(file.equals("tags.dat") ? 0 : channel.size() - 1);
+				}
+			}
+			try(final GamePersistence store = new FileGamePersistence(directory)) {
+				assertEquals(store.getGameCount(), numGames + 1);
+				assertStoreLookups(store, numGames);
+				assertEquals(store.findGamesByPlayer("w3"), Arrays.asList(3L, (long) numGames));
+			}
+		}
+		finally {
+			for(final String file : Arrays.asList("games.cga", "games.cgi", "tags.dat", "positions.dat")) {
+				Files.deleteIfExists(directory.resolve(file));
+			}
+			Files.delete(directory);
+		}
+	}
+	
+	@Test
+	public void testPositionIndex() throws IOException, ParsePGNException {
+		
+		final List<List<String>> openings = Arrays.asList(Arrays.asList("e4", "e5", "Nf3", "Nc6", "Bb5"),
+				Arrays.asList("d4", "d5", "c4", "e6", "Nc3"), Arrays.asList("e4", "c5", "Nf3", "d6"),
+				Arrays.asList("Nf3", "Nf6", "Ng1", "Ng8", "e4"));
+		final int numGames = 400;
+		final Map<Long, List<Long>> expected = new LinkedHashMap<>();
+		long numPostings = 0;
+		
+		final Path directory = Files.createTempDirectory("index");
+		final Path archiveFile = directory.resolve("games.cga");
+		final Path archiveIndexFile = directory.resolve("games.cgi");
+		final Path positionIndexFile = directory.resolve("positions.idx");
+		try {
+			try(final GameArchiveWriter writer = new GameArchiveWriter(archiveFile, archiveIndexFile)) {
+				for(int i = 0; i < numGames; i++) {
+					final PGNGame game = new PGNGame(Collections.singletonMap("Result", "*"), openings.get(i % openings.size()));
+					final List<Move> moves = new ArrayList<>();
+					final Board finalBoard = PGNUtilities.replayGame(game, moves);
+					assertEquals(writer.append(game, moves), i);
+					for(int ply = 0; ply <= moves.size(); ply++) {
+						final Board board = ply < moves.size() ? moves.get(ply).getBoard() : finalBoard;
+						expected.computeIfAbsent(board.getZobristHash(), key -> new ArrayList<>()).add((long) i << 16 | ply);
+						numPostings++;
+					}
+				}
+			}
+			try(final GameArchiveReader reader = new GameArchiveReader(archiveFile, archiveIndexFile)) {
+				assertEquals(PositionIndexBuilder.build(reader, positionIndexFile, 2), numPostings);
+			}
+			
+			try(final PositionIndex index = PositionIndex.open(positionIndexFile)) {
+				assertEquals(index.getPostingCount(), numPostings);
+				final long startKey = Board.createStandardBoard().getZobristHash();
+				assertTrue(expected.get(startKey).size() > 128);
+				for(final Map.Entry<Long, List<Long>> position : expected.entrySet()) {
+					final long[] postings = index.findPostings(position.getKey());
+					final List<Long> found = new ArrayList<>();
+					for(final long posting : postings) {
+						found.add(posting);
+					}
+					assertEquals(found, position.getValue());
+					
+					final List<Long> games = new ArrayList<>();
+					for(final long posting : position.getValue()) {
+						if(games.isEmpty() || games.get(games.size() - 1) != PositionIndex.gameId(posting)) {
+							games.add(PositionIndex.gameId(posting));
+						}
+					}
+					final List<Long> foundGames = new ArrayList<>();
+					for(final long gameId : index.findGames(position.getKey())) {
+						foundGames.add(gameId);
+					}
+					assertEquals(foundGames, games);
+				}
+				final long[] repeated = index.findPostings(startKey);
+				assertEquals(PositionIndex.gameId(repeated[repeated.length - 1]), numGames - 1);
+				assertEquals(PositionIndex.ply(repeated[repeated.length - 1]), 4);
+				assertEquals(index.findGames(startKey).length, numGames);
+				for(final long absentKey : Arrays.asList(0L, Long.MIN_VALUE, Long.MAX_VALUE, startKey + 1)) {
+					assertFalse(expected.containsKey(absentKey));
+					assertEquals(index.findPostings(absentKey).length, 0);
+					assertEquals(index.findGames(absentKey).length, 0);
+				}
+			}
+		}
+		finally {
+			for(final Path file : Arrays.asList(archiveFile, archiveIndexFile, positionIndexFile)) {
+				Files.deleteIfExists(file);
+			}
+			Files.delete(directory);
+		}
+	}
+	
+	@Test
+	public void testPositionRunsMerge() throws IOException, ParsePGNException {
+		
+		final List<List<String>> openings = Arrays.asList(Arrays.asList("e4", "e5", "Nf3", "Nc6"),
+				Arrays.asList("d4", "d5", "c4", "e6"), Arrays.asList("e4", "c5", "Nf3", "d6"), Arrays.asList("Nf3", "d5"));
+		final int numGames = 300;
+		final Map<Long, List<Long>> expected = new LinkedHashMap<>();
+		
+		final Path directory = Files.createTempDirectory("store");
+		try {
+			try(final GamePersistence store = new FileGamePersistence(directory)) {
+				for(int i = 0; i < numGames; i++) {
+					final List<String> sanMoves = new ArrayList<>(openings.get(i % openings.size()));
+					sanMoves.add(i % 5 == 0 ? "h3" : "a3");
+					final PGNGame game = new PGNGame(Collections.singletonMap("White", "w" + i), sanMoves);
+					final List<Move> moves = new ArrayList<>();
+					final Board finalBoard = PGNUtilities.replayGame(game, moves);
+					assertEquals(store.persistGame(game, moves), i);
+					final List<Long> keys = new ArrayList<>();
+					for(final Move move : moves) {
+						keys.add(move.getBoard().getZobristHash());
+					}
+					keys.add(finalBoard.getZobristHash());
+					for(final Long key : keys) {
+						final List<Long> games = expected.computeIfAbsent(key, k -> new ArrayList<>());
+						if(games.isEmpty() || games.get(games.size() - 1) != i) {
+							games.add((long) i);
+						}
+					}
+				}
+				for(final Map.Entry<Long, List<Long>> position : expected.entrySet()) {
+					assertEquals(store.findGamesByPosition(position.getKey()), position.getValue());
+				}
+			}
+			final long mergedSize = Files.size(directory.resolve("positions.dat"));
+			try(final GamePersistence store = new FileGamePersistence(directory)) {
+				assertTrue(Files.size(directory.resolve("positions.dat")) < mergedSize);
+				for(final Map.Entry<Long, List<Long>> position : expected.entrySet()) {
+					assertEquals(store.findGamesByPosition(position.getKey()), position.getValue());
+				}
+				assertTrue(store.findGamesByPosition(0L).isEmpty());
+			}
+		}
+		finally {
+			for(final String file : Arrays.asList("games.cga", "games.cgi", "tags.dat", "positions.dat")) {
+				Files.deleteIfExists(directory.resolve(file));
+			}
+			Files.delete(directory);
+		}
+	}
+	
+	@Test
+	public void testImportRejectsGamesTheStoreCannotTake() throws IOException {
+		
+		final StringBuilder pgn = new StringBuilder("[White \"small\"]\n[Result \"1-0\"]\n\n1. e4 e5 1-0\n\n");
+		for(int i = 0; i < 256; i++) {
+			pgn.append("[Tag").append(i).append(" \"").append(i).append("\"]\n");
+		}
+		pgn.append("\n1. d4 d5 *\n");
+		
+		final Path directory = Files.createTempDirectory("store");
+		final Path pgnFile = directory.resolve("games.pgn");
+		try {
+			Files.write(pgnFile, pgn.toString().getBytes(StandardCharsets.UTF_8));
+			try(final GamePersistence store = new FileGamePersistence(directory)) {
+				final PGNImporter.ImportResult result = new PGNImporter(1).importFile(pgnFile, store);
+				store.flush();
+				assertEquals(result.getGamesImported(), 1);
+				assertEquals(result.getGamesRejected(), 1);
+				assertEquals(store.getGameCount(), 1);
+				assertEquals(store.findGamesByPlayer("small"), Arrays.asList(0L));
+			}
+		}
+		finally {
+			for(final String file : Arrays.asList("games.pgn", "games.cga", "games.cgi", "tags.dat", "positions.dat")) {
+				Files.deleteIfExists(directory.resolve(file));
+			}
+			Files.delete(directory);
+		}
+	}
+	
+	@Test
+	public void testPolyglotKeys() {
+		
+		assertEquals(PolyglotBook.getKey(Board.createStandardBoard()), 0x463B96181691FC9CL);
+		assertEquals(PolyglotBook.getKey(FenUtilities.createGameFromFEN(
+				"rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1")), 0x823C9B50FD114196L);
+		assertEquals(PolyglotBook.getKey(FenUtilities.createGameFromFEN(
+				"rnbqkbnr/ppp1pppp/8/3p4/4P3/8/PPPP1PPP/RNBQKBNR w KQkq d6 0 2")), 0x0756B94461C50FB0L);
+		assertEquals(PolyglotBook.getKey(FenUtilities.createGameFromFEN(
+				"rnbqkbnr/ppp1pppp/8/3pP3/8/8/PPPP1PPP/RNBQKBNR b KQkq - 0 2")), 0x662FAFB965DB29D4L);
+		assertEquals(PolyglotBook.getKey(FenUtilities.createGameFromFEN(
+				"rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3")), 0x22A48B5A8E47FF78L);
+		assertEquals(PolyglotBook.getKey(FenUtilities.createGameFromFEN(
+				"rnbq1bnr/ppp1pkpp/8/3pPp2/8/8/PPPPKPPP/RNBQ1BNR w - - 0 4")), 0x00FDD303C946BDD9L);
+		assertEquals(PolyglotBook.getKey(FenUtilities.createGameFromFEN(
+				"rnbqkbnr/p1pppppp/8/8/PpP4P/8/1P1PPPP1/RNBQKBNR b KQkq c3 0 3")), 0x3C8123EA7B067637L);
+		assertEquals(PolyglotBook.getKey(FenUtilities.createGameFromFEN(
+				"rnbqkbnr/p1pppppp/8/8/P6P/R1p5/1P1PPPP1/1NBQKBNR b Kkq - 0 4")), 0x5C3F9B829B279560L);
+	}
+	
+	private static void assertStoreLookups(final GamePersistence store, final int numGames) throws IOException {
+		
+		assertEquals(store.findGamesByPlayer(" W2499 "), Arrays.asList(2499L));
+		assertEquals(store.findGamesByPlayer("b6").size(), (numGames + 1) / 7);
+		assertEquals(store.findGamesByResult("0-1").size(), numGames / 3);
+		assertEquals(store.findGamesByOpening("b20").get(0).longValue(), 2L);
+		assertEquals(store.findGamesByOpening("B20").size(), numGames / 3);
+		assertEquals(store.getGame(1).getTag("ECO"), "D06");
+		
+		final List<Long> afterE4 = store.findGamesByPosition(FenUtilities.createGameFromFEN(
+				"rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1").getZobristHash());
+		assertEquals(afterE4.size(), numGames - numGames / 3 + (store.getGameCount() > numGames ? 1 : 0));
+		for(int i = 1; i < afterE4.size(); i++) {
+			assertTrue(afterE4.get(i - 1) < afterE4.get(i));
+		}
+		final List<Long> queensGambit = store.findGamesByPosition(FenUtilities.createGameFromFEN(
+				"rnbqkbnr/ppp1pppp/8/3p4/2PP4/8/PP2PPPP/RNBQKBNR b KQkq c3 0 2").getZobristHash());
+		assertEquals(queensGambit.size(), numGames / 3);
+		assertEquals(queensGambit.get(0).longValue(), 1L);
+		assertTrue(store.findGamesByPosition(0L).isEmpty());
+	}
 }
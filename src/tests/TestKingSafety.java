@@ -1,29 +1,109 @@
-package com.chess.tests;
-
-import org.junit.Test;
-
-import com.chess.engine.classic.Alliance;
-import com.chess.engine.classic.board.Board;
-import com.chess.engine.classic.board.Board.Builder;
-import com.chess.engine.classic.pieces.King;
-import com.chess.engine.classic.pieces.Pawn;
-
-public class TestKingSafety {
-
-    @Test
-    public void test1() {
-        final Builder builder = new Builder();
-        // Black Layout
-        builder.setPiece(new King(Alliance.BLACK, 4, false, false));
-        builder.setPiece(new Pawn(Alliance.BLACK, 12));
-        // White Layout
-        builder.setPiece(new Pawn(Alliance.WHITE, 52));
-        builder.setPiece(new King(Alliance.WHITE, 60, false, false));
-        builder.setMoveMaker(Alliance.WHITE);
-        // Set the current player
-        final Board board = builder.build();
-
-        //assertEquals(KingSafetyAnalyzer.get().calculateKingTropism(board.whitePlayer()).tropismScore(), 40);
-    }
-
-}
\ No newline at end of file
+package tests;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import com.chess.engine.Alliance;
+import com.chess.engine.board.Board;
+import com.chess.engine.board.BoardUtils;
+import com.chess.engine.player.ai.AttackInfo;
+import com.chess.engine.player.ai.KingSafetyAnalyzer;
+import com.chess.pgn.FenUtilities;
+
+public class TestKingSafety {
+	
+	@Test
+	public void testPawnShield() {
+		
+		final KingSafetyAnalyzer analyzer = KingSafetyAnalyzer.get();
+		final Board castled = FenUtilities.createGameFromFEN("6k1/5ppp/8/8/8/8/5PPP/6K1 w - - 0 1");
+		assertEquals(analyzer.pawnShield(castled, Alliance.WHITE, tile("g1")), KingSafetyAnalyzer.SHIELD_PAWN_BONUS * 3);
+		assertEquals(analyzer.pawnShield(castled, Alliance.BLACK, tile("g8")), KingSafetyAnalyzer.SHIELD_PAWN_BONUS * 3);
+		
+		final Board advanced = FenUtilities.createGameFromFEN("6k1/5pp1/7p/8/8/6P1/5P1P/6K1 w - - 0 1");
+		assertEquals(analyzer.pawnShield(advanced, Alliance.WHITE, tile("g1")),
+				KingSafetyAnalyzer.SHIELD_PAWN_BONUS * 2 + KingSafetyAnalyzer.ADVANCED_SHIELD_PAWN_BONUS);
+		assertEquals(analyzer.pawnShield(advanced, Alliance.BLACK, tile("g8")),
+				KingSafetyAnalyzer.SHIELD_PAWN_BONUS * 2 + KingSafetyAnalyzer.ADVANCED_SHIELD_PAWN_BONUS);
+		
+		final Board edge = FenUtilities.createGameFromFEN("7k/6pp/8/8/8/8/PP6/K7 w - - 0 1");
+		assertEquals(analyzer.pawnShield(edge, Alliance.WHITE, tile("a1")), KingSafetyAnalyzer.SHIELD_PAWN_BONUS * 2);
+		assertEquals(analyzer.pawnShield(edge, Alliance.BLACK, tile("h8")), KingSafetyAnalyzer.SHIELD_PAWN_BONUS * 2);
+		
+		final Board wandering = FenUtilities.createGameFromFEN("8/5ppp/6k1/8/8/6K1/5PPP/8 w - - 0 1");
+		assertEquals(analyzer.pawnShield(wandering, Alliance.WHITE, tile("g3")), 0);
+		assertEquals(analyzer.pawnShield(wandering, Alliance.BLACK, tile("g6")), 0);
+	}
+	
+	@Test
+	public void testOpenColumns() {
+		
+		final KingSafetyAnalyzer analyzer = KingSafetyAnalyzer.get();
+		final Board closed = FenUtilities.createGameFromFEN("6k1/5ppp/8/8/8/8/5PPP/6K1 w - - 0 1");
+		assertEquals(analyzer.openColumns(closed, Alliance.WHITE, tile("g1")), 0);
+		assertEquals(analyzer.openColumns(closed, Alliance.BLACK, tile("g8")), 0);
+		
+		final Board semiOpen = FenUtilities.createGameFromFEN("6k1/5ppp/8/8/8/8/5PP1/6K1 w - - 0 1");
+		assertEquals(analyzer.openColumns(semiOpen, Alliance.WHITE, tile("g1")), KingSafetyAnalyzer.SEMI_OPEN_COLUMN_PENALTY);
+		assertEquals(analyzer.openColumns(semiOpen, Alliance.BLACK, tile("g8")), 0);
+		
+		final Board open = FenUtilities.createGameFromFEN("6k1/5p2/8/8/8/8/5P2/6K1 w - - 0 1");
+		assertEquals(analyzer.openColumns(open, Alliance.WHITE, tile("g1")), KingSafetyAnalyzer.OPEN_COLUMN_PENALTY * 2);
+		assertEquals(analyzer.openColumns(open, Alliance.BLACK, tile("g8")), KingSafetyAnalyzer.OPEN_COLUMN_PENALTY * 2);
+		
+		final Board corner = FenUtilities.createGameFromFEN("k7/8/8/8/8/8/1p6/K7 w - - 0 1");
+		assertEquals(analyzer.openColumns(corner, Alliance.WHITE, tile("a1")),
+				KingSafetyAnalyzer.OPEN_COLUMN_PENALTY + KingSafetyAnalyzer.SEMI_OPEN_COLUMN_PENALTY);
+	}
+	
+	@Test
+	public void testKingZoneAttacks() {
+		
+		final KingSafetyAnalyzer analyzer = KingSafetyAnalyzer.get();
+		final Board rook = FenUtilities.createGameFromFEN("4k1r1/8/8/8/8/8/8/7K w - - 0 1");
+		assertEquals(analyzer.kingZoneAttacks(rook, Alliance.WHITE, tile("h1"), new AttackInfo(rook)), 0);
+		
+		final Board rookAndBishop = FenUtilities.createGameFromFEN("b3k1r1/8/8/8/8/8/8/7K w - - 0 1");
+		assertEquals(analyzer.kingZoneAttacks(rookAndBishop, Alliance.WHITE, tile("h1"), new AttackInfo(rookAndBishop)),
+				-kingDanger(3 * 2 + 2 * 2));
+		
+		final Board withQueen = FenUtilities.createGameFromFEN("b3k1rq/8/8/8/8/8/8/7K w - - 0 1");
+		assertEquals(analyzer.kingZoneAttacks(withQueen, Alliance.WHITE, tile("h1"), new AttackInfo(withQueen)),
+				-kingDanger(3 * 2 + 2 * 2 + 5 * 2));
+		
+		final Board blocked = FenUtilities.createGameFromFEN("b3k1rq/8/8/8/8/8/6PP/7K w - - 0 1");
+		assertEquals(analyzer.kingZoneAttacks(blocked, Alliance.WHITE, tile("h1"), new AttackInfo(blocked)),
+				-kingDanger(3 + 2 + 5));
+		assertEquals(analyzer.kingZoneAttacks(blocked, Alliance.BLACK, tile("e8"), new AttackInfo(blocked)), 0);
+		
+		final Board knights = FenUtilities.createGameFromFEN("4k3/8/8/8/8/5n2/8/5n1K w - - 0 1");
+		assertEquals(analyzer.kingZoneAttacks(knights, Alliance.WHITE, tile("h1"), new AttackInfo(knights)),
+				-kingDanger(2 * 2 + 2));
+	}
+	
+	@Test
+	public void testKingSafetyAddsUpTheTerms() {
+		
+		final KingSafetyAnalyzer analyzer = KingSafetyAnalyzer.get();
+		final Board board = FenUtilities.createGameFromFEN("b3k1rq/8/8/8/8/8/6P1/7K w - - 0 1");
+		final AttackInfo attackInfo = new AttackInfo(board);
+		assertEquals(analyzer.kingSafety(board, Alliance.WHITE, attackInfo),
+				analyzer.pawnShield(board, Alliance.WHITE, tile("h1")) +
+				analyzer.openColumns(board, Alliance.WHITE, tile("h1")) +
+				analyzer.kingZoneAttacks(board, Alliance.WHITE, tile("h1"), attackInfo));
+		assertEquals(analyzer.pawnShield(board, Alliance.WHITE, tile("h1")), KingSafetyAnalyzer.SHIELD_PAWN_BONUS);
+		assertEquals(analyzer.openColumns(board, Alliance.WHITE, tile("h1")), KingSafetyAnalyzer.OPEN_COLUMN_PENALTY);
+		assertTrue(analyzer.kingZoneAttacks(board, Alliance.WHITE, tile("h1"), attackInfo) < 0);
+	}
+	
+	private static int kingDanger(final int attackUnits) {
+		
+		return attackUnits * attackUnits / 2;
+	}
+	
+	private static int tile(final String position) {
+		
+		return BoardUtils.getCoordinateAtPosition(position);
+	}
+}
@@ -1,122 +1,206 @@
-package com.chess.tests;
-
-import com.chess.engine.classic.Alliance;
-import com.chess.engine.classic.board.Board;
-import com.chess.engine.classic.board.Board.Builder;
-import com.chess.engine.classic.pieces.King;
-import com.chess.engine.classic.pieces.Pawn;
-import com.chess.engine.classic.player.ai.PawnStructureAnalyzer;
-import com.chess.engine.classic.player.ai.StandardBoardEvaluator;
-import com.chess.pgn.FenUtilities;
-import org.junit.Test;
-
-import static junit.framework.Assert.assertEquals;
-
-public class TestPawnStructure {
-
-    @Test
-    public void testIsolatedPawnsOnStandardBoard() {
-        final Board board = Board.createStandardBoard();
-        assertEquals(PawnStructureAnalyzer.get().isolatedPawnPenalty(board.whitePlayer()), 0);
-        assertEquals(PawnStructureAnalyzer.get().isolatedPawnPenalty(board.blackPlayer()), 0);
-    }
-
-    @Test
-    public void testIsolatedPawnByExample1() {
-        final Board board = FenUtilities.createGameFromFEN("r1bq1rk1/pp2bppp/1np2n2/6B1/3P4/1BNQ4/PP2NPPP/R3R1K1 b - - 0 13");
-        assertEquals(PawnStructureAnalyzer.get().isolatedPawnPenalty(board.whitePlayer()), PawnStructureAnalyzer.ISOLATED_PAWN_PENALTY);
-        assertEquals(PawnStructureAnalyzer.get().isolatedPawnPenalty(board.blackPlayer()), 0);
-    }
-
-    @Test
-    public void testIsolatedPawnByExample2() {
-        final Board board = FenUtilities.createGameFromFEN("r1bq1rk1/p3bppp/1np2n2/6B1/3P4/1BNQ4/PP2NPPP/R3R1K1 b - - 0 1");
-        assertEquals(PawnStructureAnalyzer.get().isolatedPawnPenalty(board.whitePlayer()), PawnStructureAnalyzer.ISOLATED_PAWN_PENALTY);
-        assertEquals(PawnStructureAnalyzer.get().isolatedPawnPenalty(board.blackPlayer()), PawnStructureAnalyzer.ISOLATED_PAWN_PENALTY * 2);
-    }
-
-    @Test
-    public void testIsolatedPawnByExample3() {
-        final Builder builder = new Builder();
-        // Black Layout
-        builder.setPiece(new King(Alliance.BLACK, 4, false, false));
-        builder.setPiece(new Pawn(Alliance.BLACK, 12));
-        builder.setPiece(new Pawn(Alliance.BLACK, 20));
-        builder.setPiece(new Pawn(Alliance.BLACK, 28));
-        builder.setPiece(new Pawn(Alliance.BLACK, 8));
-        builder.setPiece(new Pawn(Alliance.BLACK, 16));
-        // White Layout
-        builder.setPiece(new Pawn(Alliance.WHITE, 52));
-        builder.setPiece(new King(Alliance.WHITE, 60, false, false));
-        builder.setMoveMaker(Alliance.WHITE);
-        // Set the current player
-        final Board board = builder.build();
-        System.out.println(FenUtilities.createFENFromGame(board));
-
-        assertEquals(PawnStructureAnalyzer.get().isolatedPawnPenalty(board.whitePlayer()), PawnStructureAnalyzer.ISOLATED_PAWN_PENALTY);
-        assertEquals(PawnStructureAnalyzer.get().isolatedPawnPenalty(board.blackPlayer()), PawnStructureAnalyzer.ISOLATED_PAWN_PENALTY * 5);
-    }
-
-    @Test
-    public void testIsolatedPawnByExample4() {
-        final Board board = FenUtilities.createGameFromFEN("4k3/2p1p1p1/8/8/8/8/2P1P1P1/4K3 w KQkq -");
-        assertEquals(PawnStructureAnalyzer.get().isolatedPawnPenalty(board.whitePlayer()), PawnStructureAnalyzer.ISOLATED_PAWN_PENALTY * 3);
-        assertEquals(PawnStructureAnalyzer.get().isolatedPawnPenalty(board.blackPlayer()), PawnStructureAnalyzer.ISOLATED_PAWN_PENALTY * 3);
-        final StandardBoardEvaluator boardEvaluator = StandardBoardEvaluator.get();
-        assertEquals(boardEvaluator.evaluate(board, 1), 0);
-    }
-
-    @Test
-    public void testIsolatedPawnByExample5() {
-        final Board board = FenUtilities.createGameFromFEN("6k1/p6p/8/8/8/8/P6P/6K1 b - - 0 1");
-        assertEquals(PawnStructureAnalyzer.get().isolatedPawnPenalty(board.whitePlayer()), PawnStructureAnalyzer.ISOLATED_PAWN_PENALTY * 2);
-        assertEquals(PawnStructureAnalyzer.get().isolatedPawnPenalty(board.blackPlayer()), PawnStructureAnalyzer.ISOLATED_PAWN_PENALTY * 2);
-        final StandardBoardEvaluator boardEvaluator = StandardBoardEvaluator.get();
-        assertEquals(boardEvaluator.evaluate(board, 1), 0);
-    }
-
-    @Test
-    public void testIsolatedPawnByExample6() {
-        final Board board = FenUtilities.createGameFromFEN("6k1/4p3/4p3/8/8/4P3/4P3/6K1 b - - 0 1");
-        assertEquals(PawnStructureAnalyzer.get().isolatedPawnPenalty(board.whitePlayer()), PawnStructureAnalyzer.ISOLATED_PAWN_PENALTY * 2);
-        assertEquals(PawnStructureAnalyzer.get().isolatedPawnPenalty(board.blackPlayer()), PawnStructureAnalyzer.ISOLATED_PAWN_PENALTY * 2);
-        final StandardBoardEvaluator boardEvaluator = StandardBoardEvaluator.get();
-        assertEquals(boardEvaluator.evaluate(board, 1), 0);
-    }
-
-    @Test
-    public void testDoubledPawnByExample1() {
-        final Board board = Board.createStandardBoard();
-        assertEquals(PawnStructureAnalyzer.get().doubledPawnPenalty(board.whitePlayer()), 0);
-        assertEquals(PawnStructureAnalyzer.get().doubledPawnPenalty(board.blackPlayer()), 0);
-        final StandardBoardEvaluator boardEvaluator = StandardBoardEvaluator.get();
-        assertEquals(boardEvaluator.evaluate(board, 1), 0);
-    }
-
-    @Test
-    public void testDoubledPawnByExample2() {
-        final Board board = FenUtilities.createGameFromFEN("6k1/4p3/4p3/8/8/4P3/4P3/6K1 b - - 0 1");
-        assertEquals(PawnStructureAnalyzer.get().doubledPawnPenalty(board.whitePlayer()), PawnStructureAnalyzer.DOUBLED_PAWN_PENALTY * 2);
-        assertEquals(PawnStructureAnalyzer.get().doubledPawnPenalty(board.blackPlayer()), PawnStructureAnalyzer.DOUBLED_PAWN_PENALTY * 2);
-        final StandardBoardEvaluator boardEvaluator = StandardBoardEvaluator.get();
-        assertEquals(boardEvaluator.evaluate(board, 1), 0);
-    }
-
-    @Test
-    public void testDoubledPawnByExample3() {
-        final Board board = FenUtilities.createGameFromFEN("6k1/8/8/P7/P7/P7/8/6K1 b - - 0 1");
-        assertEquals(PawnStructureAnalyzer.get().doubledPawnPenalty(board.whitePlayer()), PawnStructureAnalyzer.DOUBLED_PAWN_PENALTY * 3);
-        assertEquals(PawnStructureAnalyzer.get().doubledPawnPenalty(board.blackPlayer()), 0);
-    }
-
-    @Test
-    public void testDoubledPawnByExample4() {
-        final Board board = FenUtilities.createGameFromFEN("6k1/8/8/P6p/P6p/P6p/8/6K1 b - - 0 1");
-        assertEquals(PawnStructureAnalyzer.get().doubledPawnPenalty(board.whitePlayer()), PawnStructureAnalyzer.DOUBLED_PAWN_PENALTY * 3);
-        assertEquals(PawnStructureAnalyzer.get().doubledPawnPenalty(board.blackPlayer()), PawnStructureAnalyzer.DOUBLED_PAWN_PENALTY * 3);
-        assertEquals(PawnStructureAnalyzer.get().isolatedPawnPenalty(board.whitePlayer()), PawnStructureAnalyzer.ISOLATED_PAWN_PENALTY * 3);
-        assertEquals(PawnStructureAnalyzer.get().isolatedPawnPenalty(board.blackPlayer()), PawnStructureAnalyzer.ISOLATED_PAWN_PENALTY * 3);
-    }
-
-
-}
\ No newline at end of file
+package tests;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import com.chess.engine.Alliance;
+import com.chess.engine.board.Board;
+import com.chess.engine.board.Board.Builder;
+import com.chess.engine.pieces.King;
+import com.chess.engine.pieces.Knight;
+import com.chess.engine.pieces.Pawn;
+import com.chess.engine.player.ai.PawnStructureAnalyzer;
+import com.chess.engine.player.ai.StandardBoardEvaluator;
+import com.chess.pgn.FenUtilities;
+
+public class TestPawnStructure {
+	
+	@Test
+	public void testIsolatedPawnsOnStandardBoard() {
+		
+		final Board board = Board.createStandardBoard();
+		assertEquals(PawnStructureAnalyzer.get().isolatedPawnPenalty(board.whitePlayer()), 0);
+		assertEquals(PawnStructureAnalyzer.get().isolatedPawnPenalty(board.blackPlayer()), 0);
+	}
+	
+	@Test
+	public void testIsolatedPawnByExample1() {
+		
+		final Board board = FenUtilities.createGameFromFEN("r1bq1rk1/pp2bppp/1np2n2/6B1/3P4/1BNQ4/PP2NPPP/R3R1K1 b - - 0 13");
+		assertEquals(PawnStructureAnalyzer.get().isolatedPawnPenalty(board.whitePlayer()), PawnStructureAnalyzer.ISOLATED_PAWN_PENALTY);
+		assertEquals(PawnStructureAnalyzer.get().isolatedPawnPenalty(board.blackPlayer()), 0);
+	}
+	
+	@Test
+	public void testIsolatedPawnByExample2() {
+		
+		final Board board = FenUtilities.createGameFromFEN("r1bq1rk1/p3bppp/1np2n2/6B1/3P4/1BNQ4/PP2NPPP/R3R1K1 b - - 0 1");
+		assertEquals(PawnStructureAnalyzer.get().isolatedPawnPenalty(board.whitePlayer()), PawnStructureAnalyzer.ISOLATED_PAWN_PENALTY);
+		assertEquals(PawnStructureAnalyzer.get().isolatedPawnPenalty(board.blackPlayer()), PawnStructureAnalyzer.ISOLATED_PAWN_PENALTY * 2);
+	}
+	
+	@Test
+	public void testIsolatedPawnByExample3() {
+		
+		final Builder builder = new Builder();
+		builder.setPiece(new King(4, Alliance.BLACK, false));
+		builder.setPiece(new Pawn(12, Alliance.BLACK));
+		builder.setPiece(new Pawn(20, Alliance.BLACK));
+		builder.setPiece(new Pawn(28, Alliance.BLACK));
+		builder.setPiece(new Pawn(8, Alliance.BLACK));
+		builder.setPiece(new Pawn(16, Alliance.BLACK));
+		builder.setPiece(new Pawn(52, Alliance.WHITE));
+		builder.setPiece(new King(60, Alliance.WHITE, false));
+		builder.setMoveMaker(Alliance.WHITE);
+		final Board board = builder.build();
+		assertEquals(PawnStructureAnalyzer.get().isolatedPawnPenalty(board.whitePlayer()), PawnStructureAnalyzer.ISOLATED_PAWN_PENALTY);
+		assertEquals(PawnStructureAnalyzer.get().isolatedPawnPenalty(board.blackPlayer()), PawnStructureAnalyzer.ISOLATED_PAWN_PENALTY * 5);
+	}
+	
+	@Test
+	public void testIsolatedPawnByExample4() {
+		
+		final Board board = FenUtilities.createGameFromFEN("4k3/2p1p1p1/8/8/8/8/2P1P1P1/4K3 w - - 0 1");
+		assertEquals(PawnStructureAnalyzer.get().isolatedPawnPenalty(board.whitePlayer()), PawnStructureAnalyzer.ISOLATED_PAWN_PENALTY * 3);
+		assertEquals(PawnStructureAnalyzer.get().isolatedPawnPenalty(board.blackPlayer()), PawnStructureAnalyzer.ISOLATED_PAWN_PENALTY * 3);
+		assertEquals(new StandardBoardEvaluator().evaluate(board, 1), 0);
+	}
+	
+	@Test
+	public void testIsolatedPawnByExample5() {
+		
+		final Board board = FenUtilities.createGameFromFEN("6k1/p6p/8/8/8/8/P6P/6K1 b - - 0 1");
+		assertEquals(PawnStructureAnalyzer.get().isolatedPawnPenalty(board.whitePlayer()), PawnStructureAnalyzer.ISOLATED_PAWN_PENALTY * 2);
+		assertEquals(PawnStructureAnalyzer.get().isolatedPawnPenalty(board.blackPlayer()), PawnStructureAnalyzer.ISOLATED_PAWN_PENALTY * 2);
+		assertEquals(new StandardBoardEvaluator().evaluate(board, 1), 0);
+	}
+	
+	@Test
+	public void testIsolatedPawnByExample6() {
+		
+		final Board board = FenUtilities.createGameFromFEN("6k1/4p3/4p3/8/8/4P3/4P3/6K1 b - - 0 1");
+		assertEquals(PawnStructureAnalyzer.get().isolatedPawnPenalty(board.whitePlayer()), PawnStructureAnalyzer.ISOLATED_PAWN_PENALTY * 2);
+		assertEquals(PawnStructureAnalyzer.get().isolatedPawnPenalty(board.blackPlayer()), PawnStructureAnalyzer.ISOLATED_PAWN_PENALTY * 2);
+		assertEquals(new StandardBoardEvaluator().evaluate(board, 1), 0);
+	}
+	
+	@Test
+	public void testDoubledPawnByExample1() {
+		
+		final Board board = Board.createStandardBoard();
+		assertEquals(PawnStructureAnalyzer.get().doubledPawnPenalty(board.whitePlayer()), 0);
+		assertEquals(PawnStructureAnalyzer.get().doubledPawnPenalty(board.blackPlayer()), 0);
+		assertEquals(new StandardBoardEvaluator().evaluate(board, 1), 0);
+	}
+	
+	@Test
+	public void testDoubledPawnByExample2() {
+		
+		final Board board = FenUtilities.createGameFromFEN("6k1/4p3/4p3/8/8/4P3/4P3/6K1 b - - 0 1");
+		assertEquals(PawnStructureAnalyzer.get().doubledPawnPenalty(board.whitePlayer()), PawnStructureAnalyzer.DOUBLED_PAWN_PENALTY * 2);
+		assertEquals(PawnStructureAnalyzer.get().doubledPawnPenalty(board.blackPlayer()), PawnStructureAnalyzer.DOUBLED_PAWN_PENALTY * 2);
+	}
+	
+	@Test
+	public void testDoubledPawnByExample3() {
+		
+		final Board board = FenUtilities.createGameFromFEN("6k1/8/8/P7/P7/P7/8/6K1 b - - 0 1");
+		assertEquals(PawnStructureAnalyzer.get().doubledPawnPenalty(board.whitePlayer()), PawnStructureAnalyzer.DOUBLED_PAWN_PENALTY * 3);
+		assertEquals(PawnStructureAnalyzer.get().doubledPawnPenalty(board.blackPlayer()), 0);
+	}
+	
+	@Test
+	public void testDoubledPawnByExample4() {
+		
+		final Board board = FenUtilities.createGameFromFEN("6k1/8/8/P6p/P6p/P6p/8/6K1 b - - 0 1");
+		assertEquals(PawnStructureAnalyzer.get().doubledPawnPenalty(board.whitePlayer()), PawnStructureAnalyzer.DOUBLED_PAWN_PENALTY * 3);
+		assertEquals(PawnStructureAnalyzer.get().doubledPawnPenalty(board.blackPlayer()), PawnStructureAnalyzer.DOUBLED_PAWN_PENALTY * 3);
+		assertEquals(PawnStructureAnalyzer.get().isolatedPawnPenalty(board.whitePlayer()), PawnStructureAnalyzer.ISOLATED_PAWN_PENALTY * 3);
+		assertEquals(PawnStructureAnalyzer.get().isolatedPawnPenalty(board.blackPlayer()), PawnStructureAnalyzer.ISOLATED_PAWN_PENALTY * 3);
+	}
+	
+	@Test
+	public void testPassedPawns() {
+		
+		final Board passed = FenUtilities.createGameFromFEN("4k3/8/8/3P4/2p5/8/8/4K3 w - - 0 1");
+		assertEquals(PawnStructureAnalyzer.get().passedPawnBonus(passed.whitePlayer(), false), 25);
+		assertEquals(PawnStructureAnalyzer.get().passedPawnBonus(passed.whitePlayer(), true), 60);
+		assertEquals(PawnStructureAnalyzer.get().passedPawnBonus(passed.blackPlayer(), false), 25);
+		assertEquals(PawnStructureAnalyzer.get().passedPawnBonus(passed.blackPlayer(), true), 60);
+		
+		final Board blocked = FenUtilities.createGameFromFEN("4k3/8/4p3/3P4/8/8/8/4K3 w - - 0 1");
+		assertEquals(PawnStructureAnalyzer.get().passedPawnBonus(blocked.whitePlayer(), false), 0);
+		assertEquals(PawnStructureAnalyzer.get().passedPawnBonus(blocked.blackPlayer(), false), 0);
+		
+		final Board seventhRank = FenUtilities.createGameFromFEN("4k3/1P6/8/8/8/8/6p1/4K3 w - - 0 1");
+		assertEquals(PawnStructureAnalyzer.get().passedPawnBonus(seventhRank.whitePlayer(), true), 150);
+		assertEquals(PawnStructureAnalyzer.get().passedPawnBonus(seventhRank.blackPlayer(), true), 150);
+		assertEquals(PawnStructureAnalyzer.get().passedPawnBonus(Board.createStandardBoard().whitePlayer(), true), 0);
+	}
+	
+	@Test
+	public void testBackwardPawns() {
+		
+		final Board board = FenUtilities.createGameFromFEN("4k3/8/8/2p5/2P1P3/3P4/8/4K3 w - - 0 1");
+		assertEquals(PawnStructureAnalyzer.get().backwardPawnPenalty(board.whitePlayer()), PawnStructureAnalyzer.BACKWARD_PAWN_PENALTY);
+		assertEquals(PawnStructureAnalyzer.get().backwardPawnPenalty(board.blackPlayer()), 0);
+		
+		final Board unattacked = FenUtilities.createGameFromFEN("4k3/8/8/8/2P1P3/3P4/8/4K3 w - - 0 1");
+		assertEquals(PawnStructureAnalyzer.get().backwardPawnPenalty(unattacked.whitePlayer()), 0);
+		
+		final Board supported = FenUtilities.createGameFromFEN("4k3/8/8/2p5/2P1P3/3P4/4P3/4K3 w - - 0 1");
+		assertEquals(PawnStructureAnalyzer.get().backwardPawnPenalty(supported.whitePlayer()), 0);
+		assertEquals(PawnStructureAnalyzer.get().backwardPawnPenalty(Board.createStandardBoard().whitePlayer()), 0);
+	}
+	
+	@Test
+	public void testPawnHashHit() {
+		
+		final Board board = FenUtilities.createGameFromFEN("4k3/pp4p1/2p5/2P1P3/3P3p/8/P4PP1/4K3 w - - 0 1");
+		final long entry = PawnStructureAnalyzer.get().pawnStructureScore(board);
+		assertEquals(PawnStructureAnalyzer.getMiddlegameScore(entry), middlegameScore(board, Alliance.WHITE) - middlegameScore(board, Alliance.BLACK));
+		assertEquals(PawnStructureAnalyzer.getEndgameScore(entry), endgameScore(board, Alliance.WHITE) - endgameScore(board, Alliance.BLACK));
+		assertEquals(PawnStructureAnalyzer.get().pawnStructureScore(board), entry);
+		
+		final Builder builder = new Builder();
+		for(final Pawn pawn : new Pawn[] { new Pawn(8, Alliance.BLACK), new Pawn(9, Alliance.BLACK), new Pawn(14, Alliance.BLACK),
+										   new Pawn(18, Alliance.BLACK), new Pawn(26, Alliance.WHITE), new Pawn(28, Alliance.WHITE),
+										   new Pawn(35, Alliance.WHITE), new Pawn(39, Alliance.BLACK), new Pawn(48, Alliance.WHITE),
+										   new Pawn(53, Alliance.WHITE), new Pawn(54, Alliance.WHITE) }) {
+			builder.setPiece(pawn);
+		}
+		builder.setPiece(new King(6, Alliance.BLACK, false));
+		builder.setPiece(new Knight(21, Alliance.BLACK));
+		builder.setPiece(new King(62, Alliance.WHITE, false));
+		builder.setMoveMaker(Alliance.BLACK);
+		final Board samePawns = builder.build();
+		assertEquals(samePawns.getPawnZobristHash(), board.getPawnZobristHash());
+		assertNotEquals(samePawns.getZobristHash(), board.getZobristHash());
+		assertEquals(PawnStructureAnalyzer.get().pawnStructureScore(samePawns), entry);
+		
+		final Board otherPawns = FenUtilities.createGameFromFEN("4k3/pp4p1/2p5/2P1P3/3P3p/8/P4P2/4K3 w - - 0 1");
+		assertNotEquals(otherPawns.getPawnZobristHash(), board.getPawnZobristHash());
+		assertNotEquals(PawnStructureAnalyzer.get().pawnStructureScore(otherPawns), entry);
+	}
+	
+	private static int middlegameScore(final Board board, final Alliance alliance) {
+		
+		return structureScore(board, alliance) +
+			   PawnStructureAnalyzer.get().passedPawnBonus(alliance.isWhite() ? board.whitePlayer() : board.blackPlayer(), false);
+	}
+	
+	private static int endgameScore(final Board board, final Alliance alliance) {
+		
+		return structureScore(board, alliance) +
+			   PawnStructureAnalyzer.get().passedPawnBonus(alliance.isWhite() ? board.whitePlayer() : board.blackPlayer(), true);
+	}
+	
+	private static int structureScore(final Board board, final Alliance alliance) {
+		
+		final PawnStructureAnalyzer analyzer = PawnStructureAnalyzer.get();
+		return alliance.isWhite() ?
+			   analyzer.isolatedPawnPenalty(board.whitePlayer()) + analyzer.doubledPawnPenalty(board.whitePlayer()) + analyzer.backwardPawnPenalty(board.whitePlayer()) :
+			   analyzer.isolatedPawnPenalty(board.blackPlayer()) + analyzer.doubledPawnPenalty(board.blackPlayer()) + analyzer.backwardPawnPenalty(board.blackPlayer());
+	}
+}
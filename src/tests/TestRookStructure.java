@@ -1,40 +1,88 @@
-//package com.chess.tests;
-//
-//import static junit.framework.Assert.assertEquals;
-//
-//import com.chess.engine.classic.pieces.Rook;
-//import com.chess.engine.classic.player.ai.RookStructureAnalyzer;
-//import org.junit.Test;
-//
-//import com.chess.engine.classic.Alliance;
-//import com.chess.engine.classic.board.Board;
-//import com.chess.engine.classic.board.Board.Builder;
-//import com.chess.engine.classic.pieces.King;
-//
-//public class TestRookStructure {
-//
-//    @Test
-//    public void test1() {
-//        final Board board = Board.createStandardBoard();
-//        assertEquals(RookStructureAnalyzer.get().rookStructureScore(board, board.whitePlayer()), 0);
-//        assertEquals(RookStructureAnalyzer.get().rookStructureScore(board, board.whitePlayer()), 0);
-//    }
-//
-//    @Test
-//    public void test2() {
-//        final Builder builder = new Builder();
-//        // Black Layout
-//        builder.setPiece(new Rook(Alliance.BLACK, 0));
-//        builder.setPiece(new King(Alliance.BLACK, 4, false, false));
-//        // White Layout
-//        builder.setPiece(new Rook(Alliance.WHITE, 63));
-//        builder.setPiece(new King(Alliance.WHITE, 60, false, false));
-//        builder.setMoveMaker(Alliance.WHITE);
-//        // Set the current player
-//        final Board board = builder.build();
-//        assertEquals(RookStructureAnalyzer.get().rookStructureScore(board, board.whitePlayer()), 25);
-//        assertEquals(RookStructureAnalyzer.get().rookStructureScore(board, board.whitePlayer()), 25);
-//    }
-//
-//
-//}
\ No newline at end of file
+package tests;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import com.chess.engine.Alliance;
+import com.chess.engine.board.Board;
+import com.chess.engine.board.Board.Builder;
+import com.chess.engine.pieces.King;
+import com.chess.engine.pieces.Rook;
+import com.chess.engine.player.ai.RookStructureAnalyzer;
+import com.chess.pgn.FenUtilities;
+
+public class TestRookStructure {
+	
+	@Test
+	public void test1() {
+		
+		final Board board = Board.createStandardBoard();
+		assertEquals(RookStructureAnalyzer.get().rookStructureScore(board, board.whitePlayer()), 0);
+		assertEquals(RookStructureAnalyzer.get().rookStructureScore(board, board.blackPlayer()), 0);
+	}
+	
+	@Test
+	public void test2() {
+		
+		final Builder builder = new Builder();
+		builder.setPiece(new Rook(0, Alliance.BLACK));
+		builder.setPiece(new King(4, Alliance.BLACK, false));
+		builder.setPiece(new Rook(63, Alliance.WHITE));
+		builder.setPiece(new King(60, Alliance.WHITE, false));
+		builder.setMoveMaker(Alliance.WHITE);
+		final Board board = builder.build();
+		assertEquals(RookStructureAnalyzer.get().rookStructureScore(board, board.whitePlayer()), RookStructureAnalyzer.OPEN_COLUMN_BONUS);
+		assertEquals(RookStructureAnalyzer.get().rookStructureScore(board, board.blackPlayer()), RookStructureAnalyzer.OPEN_COLUMN_BONUS);
+	}
+	
+	@Test
+	public void testOpenAndSemiOpenColumns() {
+		
+		final Board board = FenUtilities.createGameFromFEN("3rk2r/5ppp/3p4/8/8/4P3/5PPP/3RK2R w - - 0 1");
+		assertEquals(RookStructureAnalyzer.get().rookStructureScore(board, Alliance.WHITE), RookStructureAnalyzer.SEMI_OPEN_COLUMN_BONUS);
+		assertEquals(RookStructureAnalyzer.get().rookStructureScore(board, Alliance.BLACK), 0);
+		
+		final Board open = FenUtilities.createGameFromFEN("3rk2r/5ppp/8/8/8/8/5PPP/3RK2R w - - 0 1");
+		assertEquals(RookStructureAnalyzer.get().rookStructureScore(open, Alliance.WHITE), RookStructureAnalyzer.OPEN_COLUMN_BONUS);
+		assertEquals(RookStructureAnalyzer.get().rookStructureScore(open, Alliance.BLACK), RookStructureAnalyzer.OPEN_COLUMN_BONUS);
+		assertEquals(RookStructureAnalyzer.get().rookStructureScore(open, open.whitePlayer()),
+				RookStructureAnalyzer.get().rookStructureScore(open, Alliance.WHITE));
+	}
+	
+	@Test
+	public void testSeventhRank() {
+		
+		final Board board = FenUtilities.createGameFromFEN("6k1/2R3pp/8/8/8/5P2/P4r2/6K1 w - - 0 1");
+		assertEquals(RookStructureAnalyzer.get().rookStructureScore(board, Alliance.WHITE),
+				RookStructureAnalyzer.SEVENTH_RANK_BONUS + RookStructureAnalyzer.OPEN_COLUMN_BONUS);
+		assertEquals(RookStructureAnalyzer.get().rookStructureScore(board, Alliance.BLACK),
+				RookStructureAnalyzer.SEVENTH_RANK_BONUS + RookStructureAnalyzer.SEMI_OPEN_COLUMN_BONUS);
+		
+		final Board notSeventh = FenUtilities.createGameFromFEN("6k1/6pp/2R5/8/8/5P2/P7/5rK1 w - - 0 1");
+		assertEquals(RookStructureAnalyzer.get().rookStructureScore(notSeventh, Alliance.WHITE), RookStructureAnalyzer.OPEN_COLUMN_BONUS);
+		assertEquals(RookStructureAnalyzer.get().rookStructureScore(notSeventh, Alliance.BLACK), RookStructureAnalyzer.SEMI_OPEN_COLUMN_BONUS);
+	}
+	
+	@Test
+	public void testConnectedRooks() {
+		
+		final Board connected = FenUtilities.createGameFromFEN("6k1/pppppppp/8/8/8/8/PPPPPPPP/3RR1K1 w - - 0 1");
+		assertEquals(RookStructureAnalyzer.get().rookStructureScore(connected, Alliance.WHITE), RookStructureAnalyzer.CONNECTED_ROOKS_BONUS);
+		
+		final Board blocked = FenUtilities.createGameFromFEN("6k1/pppppppp/8/8/8/8/PPPPPPPP/R2B1RK1 w - - 0 1");
+		assertEquals(RookStructureAnalyzer.get().rookStructureScore(blocked, Alliance.WHITE), 0);
+		
+		final Board doubled = FenUtilities.createGameFromFEN("6k1/ppp1pppp/8/8/8/3R4/PPP1PPPP/3R2K1 w - - 0 1");
+		assertEquals(RookStructureAnalyzer.get().rookStructureScore(doubled, Alliance.WHITE),
+				RookStructureAnalyzer.OPEN_COLUMN_BONUS * 2 + RookStructureAnalyzer.CONNECTED_ROOKS_BONUS);
+		
+		final Board apart = FenUtilities.createGameFromFEN("6k1/ppp1pppp/8/8/8/3R4/PPPBPPPP/3R2K1 w - - 0 1");
+		assertEquals(RookStructureAnalyzer.get().rookStructureScore(apart, Alliance.WHITE),
+				RookStructureAnalyzer.OPEN_COLUMN_BONUS * 2);
+		
+		final Board bothSides = FenUtilities.createGameFromFEN("r1r3k1/pppppppp/8/8/8/8/PPPPPPPP/R1R3K1 w - - 0 1");
+		assertEquals(RookStructureAnalyzer.get().rookStructureScore(bothSides, Alliance.WHITE), RookStructureAnalyzer.CONNECTED_ROOKS_BONUS);
+		assertEquals(RookStructureAnalyzer.get().rookStructureScore(bothSides, Alliance.BLACK), RookStructureAnalyzer.CONNECTED_ROOKS_BONUS);
+	}
+}
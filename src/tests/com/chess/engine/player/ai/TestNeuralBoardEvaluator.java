@@ -0,0 +1,152 @@
+package com.chess.engine.player.ai;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.Move;
+import com.chess.engine.player.MoveTransition;
+import com.chess.pgn.FenUtilities;
+import com.chess.pgn.SANUtilities;
+
+public class TestNeuralBoardEvaluator {
+	
+	private static final int HIDDEN_SIZE = 8;
+	private static final int LAYER1_SIZE = 4;
+	private static final int LAYER2_SIZE = 2;
+	
+	/** Captures and castling on both wings */
+	private static final List<String> OPENING = Arrays.asList("e4", "d5", "exd5", "Qxd5", "Nc3", "Qa5", "d4", "c6", "Nf3", "Bg4",
+															   "Be2", "e6", "O-O", "Nd7", "Bd2", "O-O-O", "Ne5", "Nxe5", "dxe5", "Bxe2", "Qxe2");
+	/** En passant, castling on both wings, promotions with and without a capture */
+	private static final String ENDGAME_FEN = "r3k2r/1P6/8/3pP3/8/8/6p1/R3K2R w KQkq d6 0 1";
+	private static final List<String> ENDGAME = Arrays.asList("exd6", "O-O", "O-O-O", "g1=Q", "Rhxg1+", "Kh8", "bxa8=Q", "Kh7", "d7",
+															   "Rf1", "Rdxf1", "Kh6", "d8=Q", "Kh5");
+	
+	@Test
+	public void testIncrementalAccumulatorsMatchRefresh() throws IOException {
+		
+		final NeuralNetwork network = createNetwork(new Random(1));
+		for(final int tableSize : new int[] { 1 << 12, 2, 1 }) {
+			assertIncrementalMatchesRefresh(network, tableSize, Board.createStandardBoard(), OPENING);
+			assertIncrementalMatchesRefresh(network, tableSize, FenUtilities.createGameFromFEN(ENDGAME_FEN), ENDGAME);
+		}
+	}
+	
+	@Test
+	public void testDeepLineInOneSlot() throws IOException {
+		
+		final NeuralNetwork network = createNetwork(new Random(2));
+		final List<Board> boards = play(Board.createStandardBoard(), OPENING);
+		final Board last = boards.get(boards.size() - 1);
+		final NeuralBoardEvaluator evaluator = new NeuralBoardEvaluator(network, 1);
+		assertArrayEquals(evaluator.getAccumulators(last), refreshedAccumulators(network, last));
+		assertEquals(evaluator.evaluate(last, 0), new NeuralBoardEvaluator(network).evaluate(refreshedBoard(last), 0));
+		
+		evaluator.clear();
+		final Board first = boards.get(1);
+		assertArrayEquals(evaluator.getAccumulators(first), refreshedAccumulators(network, first));
+		assertArrayEquals(evaluator.getAccumulators(last), refreshedAccumulators(network, last));
+	}
+	
+	/**
+	 * Helper function that evaluates every board of a line in order, so that each one is updated from
+	 * the one before it, and compares its accumulators with those worked out from scratch
+	 */
+	private static void assertIncrementalMatchesRefresh(final NeuralNetwork network,
+														final int tableSize,
+														final Board start,
+														final List<String> line) {
+		
+		final NeuralBoardEvaluator evaluator = new NeuralBoardEvaluator(network, tableSize);
+		final NeuralBoardEvaluator reference = new NeuralBoardEvaluator(network);
+		for(final Board board : play(start, line)) {
+			final String setting = FenUtilities.createFENFromGame(board) + " with " + tableSize + " slots";
+			assertArrayEquals(setting, evaluator.getAccumulators(board), refreshedAccumulators(network, board));
+			assertEquals(setting, evaluator.evaluate(board, 0), reference.evaluate(refreshedBoard(board), 0));
+		}
+	}
+	
+	private static List<Board> play(final Board start, final List<String> line) {
+		
+		final List<Board> boards = new ArrayList<>();
+		Board board = start;
+		boards.add(board);
+		for(final String san : line) {
+			final Move move = SANUtilities.createMove(board, san);
+			final MoveTransition transition = board.currentPlayer().makeMove(move);
+			assertTrue(san, transition.getMoveStatus().isDone());
+			board = transition.getTransitionBoard();
+			boards.add(board);
+		}
+		return boards;
+	}
+	
+	/**
+	 * Helper function that rebuilds a board from its FEN, so it has no transition move and its
+	 * accumulators can only be worked out from scratch
+	 */
+	private static Board refreshedBoard(final Board board) {
+		
+		final Board refreshed = FenUtilities.createGameFromFEN(FenUtilities.createFENFromGame(board));
+		assertNull(refreshed.getTransitionMove());
+		return refreshed;
+	}
+	
+	private static short[] refreshedAccumulators(final NeuralNetwork network, final Board board) {
+		
+		return new NeuralBoardEvaluator(network).getAccumulators(refreshedBoard(board));
+	}
+	
+	/**
+	 * Helper function that writes a network of random weights to a file and loads it
+	 */
+	private static NeuralNetwork createNetwork(final Random random) throws IOException {
+		
+		final ByteBuffer buffer = ByteBuffer.allocate(5 * Integer.BYTES +
+													  (NeuralNetwork.NUM_FEATURES + 1) * HIDDEN_SIZE * Short.BYTES +
+													  2 * HIDDEN_SIZE * LAYER1_SIZE + LAYER1_SIZE * Integer.BYTES +
+													  LAYER1_SIZE * LAYER2_SIZE + LAYER2_SIZE * Integer.BYTES +
+													  LAYER2_SIZE + Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(NeuralNetwork.MAGIC).putInt(HIDDEN_SIZE).putInt(LAYER1_SIZE).putInt(LAYER2_SIZE).putInt(400);
+		for(int i = 0; i < (NeuralNetwork.NUM_FEATURES + 1) * HIDDEN_SIZE; i++) {
+			buffer.putShort((short) (random.nextInt(41) - 20));
+		}
+		for(int i = 0; i < 2 * HIDDEN_SIZE * LAYER1_SIZE; i++) {
+			buffer.put((byte) (random.nextInt(33) - 16));
+		}
+		for(int i = 0; i < LAYER1_SIZE; i++) {
+			buffer.putInt(random.nextInt(257) - 128);
+		}
+		for(int i = 0; i < LAYER1_SIZE * LAYER2_SIZE; i++) {
+			buffer.put((byte) (random.nextInt(33) - 16));
+		}
+		for(int i = 0; i < LAYER2_SIZE; i++) {
+			buffer.putInt(random.nextInt(257) - 128);
+		}
+		for(int i = 0; i < LAYER2_SIZE; i++) {
+			buffer.put((byte) (random.nextInt(33) - 16));
+		}
+		buffer.putInt(random.nextInt(257) - 128);
+		
+		final Path file = Files.createTempFile("network", ".bin");
+		try {
+			Files.write(file, buffer.array());
+			return NeuralNetwork.load(file);
+		}
+		finally {
+			Files.delete(file);
+		}
+	}
+}
@@ -0,0 +1,128 @@
+package com.chess.pgn;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.BoardUtils;
+import com.chess.engine.board.Move;
+import com.chess.pgn.OpeningTree.OpeningMove;
+
+public class TestOpeningTree {
+	
+	private static final String GAMES =
+			"[WhiteElo \"2400\"]\n[BlackElo \"2200\"]\n[Result \"1-0\"]\n\n1. e4 e5 2. Nf3 1-0\n\n" +
+			"[WhiteElo \"2600\"]\n[BlackElo \"2000\"]\n[Result \"0-1\"]\n\n1. e4 c5 0-1\n\n" +
+			"[WhiteElo \"2000\"]\n[Result \"1/2-1/2\"]\n\n1. e4 e5 2. Nc3 1/2-1/2\n\n" +
+			"[Result \"1-0\"]\n\n1. d4 d5 1-0\n\n" +
+			"[WhiteElo \"2800\"]\n[Result \"*\"]\n\n1. e4 e5 *\n\n" +
+			"[WhiteElo \"unknown\"]\n[Result \"0-1\"]\n\n1. e4 e5 2. Nf3 0-1\n\n" +
+			"[Result \"0-1\"]\n\n1. Nf3 d5 0-1\n";
+	
+	@Test
+	public void testMoveStatistics() throws IOException {
+		
+		final Path directory = Files.createTempDirectory("tree");
+		final Path pgnFile = directory.resolve("games.pgn");
+		final Path treeFile = directory.resolve("games.tree");
+		try {
+			Files.write(pgnFile, GAMES.getBytes(StandardCharsets.UTF_8));
+			assertEquals(OpeningTreeBuilder.build(pgnFile, treeFile, 1, 3, 1), 9);
+			try(final OpeningTree tree = OpeningTree.open(treeFile)) {
+				final Board start = Board.createStandardBoard();
+				final List<OpeningMove> rootMoves = tree.getMoves(start);
+				assertEquals(rootMoves.size(), 3);
+				final OpeningMove e4 = rootMoves.get(0);
+				assertEquals(e4.getMove(), move(start, "e2", "e4"));
+				assertEquals(e4.getGames(), 4);
+				assertEquals(e4.getWhiteWins(), 1);
+				assertEquals(e4.getDraws(), 1);
+				assertEquals(e4.getBlackWins(), 2);
+				assertEquals(e4.getAverageRating(), (2400 + 2600 + 2000) / 3);
+				assertEquals(e4.getScore(), 1.5 / 4, 1e-9);
+				final OpeningMove d4 = rootMoves.get(rootMoves.get(1).getMove().equals(move(start, "d2", "d4")) ? 1 : 2);
+				assertEquals(d4.getGames(), 1);
+				assertEquals(d4.getWhiteWins(), 1);
+				assertEquals(d4.getAverageRating(), 0);
+				
+				final Board afterE4 = play(start, "e2", "e4");
+				final List<OpeningMove> replies = tree.getMoves(afterE4);
+				assertEquals(replies.size(), 2);
+				assertEquals(replies.get(0).getMove(), move(afterE4, "e7", "e5"));
+				assertEquals(replies.get(0).getGames(), 3);
+				assertEquals(replies.get(0).getAverageRating(), 2200);
+				assertEquals(replies.get(0).getScore(), 1.5 / 3, 1e-9);
+				assertEquals(replies.get(1).getMove(), move(afterE4, "c7", "c5"));
+				assertEquals(replies.get(1).getBlackWins(), 1);
+				
+				final Board afterE5 = play(afterE4, "e7", "e5");
+				final List<OpeningMove> thirdMoves = tree.getMoves(afterE5);
+				assertEquals(thirdMoves.size(), 2);
+				assertEquals(thirdMoves.get(0).getMove(), move(afterE5, "g1", "f3"));
+				assertEquals(thirdMoves.get(0).getGames(), 2);
+				assertTrue(tree.getMoves(play(afterE5, "g1", "f3")).isEmpty());
+			}
+			
+			assertEquals(OpeningTreeBuilder.build(pgnFile, treeFile, 1, 2, 2), 2);
+			try(final OpeningTree tree = OpeningTree.open(treeFile)) {
+				final Board start = Board.createStandardBoard();
+				final List<OpeningMove> rootMoves = tree.getMoves(start);
+				assertEquals(rootMoves.size(), 1);
+				assertEquals(rootMoves.get(0).getGames(), 4);
+				assertEquals(tree.getMoves(play(start, "e2", "e4")).size(), 1);
+				assertTrue(tree.getMoves(play(start, "d2", "d4")).isEmpty());
+				assertTrue(tree.getMoves(play(play(start, "e2", "e4"), "e7", "e5")).isEmpty());
+			}
+		}
+		finally {
+			for(final Path file : Arrays.asList(pgnFile, treeFile)) {
+				Files.deleteIfExists(file);
+			}
+			Files.delete(directory);
+		}
+	}
+	
+	@Test
+	public void testSpilledRunsMatchOneRun() throws IOException {
+		
+		final Path directory = Files.createTempDirectory("tree");
+		final Path pgnFile = directory.resolve("games.pgn");
+		final Path oneRunFile = directory.resolve("one-run.tree");
+		final Path spilledFile = directory.resolve("spilled.tree");
+		try {
+			Files.write(pgnFile, GAMES.getBytes(StandardCharsets.UTF_8));
+			final long moves = OpeningTreeBuilder.build(pgnFile, oneRunFile, 1, 4, 1);
+			assertEquals(OpeningTreeBuilder.build(pgnFile, spilledFile, 2, 4, 1, 1), moves);
+			assertArrayEquals(Files.readAllBytes(spilledFile), Files.readAllBytes(oneRunFile));
+			assertEquals(OpeningTreeBuilder.build(pgnFile, spilledFile, 1, 4, 2, 2), 3);
+			try(final Stream<Path> files = Files.list(directory)) {
+				assertEquals(files.count(), 3);
+			}
+		}
+		finally {
+			for(final Path file : Arrays.asList(pgnFile, oneRunFile, spilledFile)) {
+				Files.deleteIfExists(file);
+			}
+			Files.delete(directory);
+		}
+	}
+	
+	private static Move move(final Board board, final String from, final String to) {
+		
+		return Move.MoveFactory.createMove(board, BoardUtils.getCoordinateAtPosition(from), BoardUtils.getCoordinateAtPosition(to));
+	}
+	
+	private static Board play(final Board board, final String from, final String to) {
+		
+		return board.currentPlayer().makeMove(move(board, from, to)).getTransitionBoard();
+	}
+}
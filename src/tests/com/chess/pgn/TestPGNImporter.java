@@ -0,0 +1,82 @@
+package com.chess.pgn;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.junit.Test;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.Move;
+
+public class TestPGNImporter {
+	
+	private static final List<String> MOVE_TEXTS = Arrays.asList(
+			"1. e4 e5 2. Nf3 Nc6 3. Bb5 a6",
+			"1. d4 {a comment running\nover two lines} d5 2. c4 (2. Nf3 Nf6) e6",
+			"1. e4 c5 $1 2. Nf3 d6!? 3. d4 cxd4 4. Nxd4 Nf6 5. Nc3 a6",
+			"1. Nf3 d5 2. g3 ; the rest of the line is a comment\nNf6 3. Bg2 e6 4. 0-0 Be7",
+			"1. e4 (1. d4 e5",
+			"1. e4 e5 2. Ke3");
+	
+	@Test
+	public void testSegmentsMatchReader() throws IOException {
+		
+		final StringBuilder pgn = new StringBuilder();
+		for(int i = 0; i < 150; i++) {
+			pgn.append("[Event \"Test\"]\n[Round \"").append(i).append("\"]\n[White \"w").append(i % 7)
+			   .append("\"]\n[Result \"1-0\"]\n\n").append(MOVE_TEXTS.get(i % MOVE_TEXTS.size())).append(" 1-0\n\n");
+		}
+		final Path pgnFile = Files.createTempFile("games", ".pgn");
+		try {
+			Files.write(pgnFile, pgn.toString().getBytes(StandardCharsets.UTF_8));
+			final Map<Integer, List<String>> expected = new TreeMap<>();
+			long expectedRejected = 0;
+			final long expectedSkipped;
+			try(final PGNReader reader = PGNReader.open(pgnFile, false)) {
+				while(reader.hasNext()) {
+					final PGNGame game = reader.next();
+					try {
+						PGNUtilities.replayGame(game, new ArrayList<>());
+						expected.put(Integer.parseInt(game.getTag("Round")), game.getMoves());
+					}
+					catch(final ParsePGNException e) {
+						expectedRejected++;
+					}
+				}
+				expectedSkipped = reader.getGamesSkipped();
+			}
+			assertEquals(expected.size(), 100);
+			assertEquals(expectedRejected, 25);
+			assertEquals(expectedSkipped, 25);
+			
+			for(final int segmentSize : Arrays.asList(1 << 20, 4096, 500, 61)) {
+				for(final int numThreads : Arrays.asList(1, 3)) {
+					final Map<Integer, List<String>> imported = new ConcurrentSkipListMap<>();
+					final PGNImporter.ImportResult result = new PGNImporter(numThreads, segmentSize).importFile(pgnFile,
+							(final PGNGame game, final List<Move> moves, final Board finalBoard) -> {
+								assertEquals(moves.size(), game.getMoves().size());
+								assertNull(imported.put(Integer.parseInt(game.getTag("Round")), game.getMoves()));
+							});
+					final String setting = segmentSize + " byte segments on " + numThreads + " threads";
+					assertEquals(setting, imported, expected);
+					assertEquals(setting, result.getGamesImported(), expected.size());
+					assertEquals(setting, result.getGamesRejected(), expectedRejected);
+					assertEquals(setting, result.getGamesSkipped(), expectedSkipped);
+				}
+			}
+		}
+		finally {
+			Files.delete(pgnFile);
+		}
+	}
+}
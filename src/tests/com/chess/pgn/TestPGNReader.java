@@ -0,0 +1,119 @@
+package com.chess.pgn;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+public class TestPGNReader {
+	
+	@Test
+	public void testMoveText() throws ParsePGNException {
+		
+		assertEquals(PGNUtilities.processMoveText("1. e4 e5 2.Nf3 Nc6 3. Bb5 1-0"),
+				Arrays.asList("e4", "e5", "Nf3", "Nc6", "Bb5"));
+		assertEquals(PGNUtilities.processMoveText("1. e4 (1. d4 d5 (1... Nf6 2. c4 (2. Nf3)) 2. c4) 1... c5 (1... e5 2. Nf3) 2. Nf3 *"),
+				Arrays.asList("e4", "c5", "Nf3"));
+		assertEquals(PGNUtilities.processMoveText("1. e4 $1 e5 $14 2. Nf3!? Nc6?! 3. Bc4!! Nf6?? 0-1"),
+				Arrays.asList("e4", "e5", "Nf3", "Nc6", "Bc4", "Nf6"));
+		assertEquals(PGNUtilities.processMoveText("10. 0-0 0-0-0 11. O-O-O+ 0-0# 1/2-1/2"),
+				Arrays.asList("O-O", "O-O-O", "O-O-O+", "O-O#"));
+		assertEquals(PGNUtilities.processMoveText("1. e4 ; the rest of the line { ( is a comment\ne5 {a\n[comment] ; over lines} 2. Nf3"),
+				Arrays.asList("e4", "e5", "Nf3"));
+		assertEquals(PGNUtilities.processMoveText("1-0"), Collections.emptyList());
+		assertEquals(PGNUtilities.processMoveText("1. e4 *"), Collections.singletonList("e4"));
+		assertEquals(PGNUtilities.processMoveText("1. d4 d5 2. c4 1/2-1/2"), Arrays.asList("d4", "d5", "c4"));
+		assertEquals(PGNUtilities.processMoveText("1. e4 e5 0-1"), Arrays.asList("e4", "e5"));
+		
+		for(final String malformed : Arrays.asList("1. e4 {open comment", "1. e4 (1. d4 d5", "1. e4 ) e5", "1. e4 } e5",
+													"1. e4 ((1. d4) e5")) {
+			try {
+				PGNUtilities.processMoveText(malformed);
+				fail(malformed);
+			}
+			catch(final ParsePGNException expected) {
+			}
+		}
+	}
+	
+	@Test
+	public void testCommentLinesAreNotTags() throws IOException {
+		
+		final String pgn = "[Event \"First\"]\n[Result \"1-0\"]\n\n1. e4 {a comment\n[that looks like a tag]\n  [and another] } e5\n" +
+						   "2. Nf3 ; not a { brace\n2... Nc6 1-0\n\n" +
+						   "[Event \"Second\"]\n\n% an escaped line\n1. d4 d5 *\n";
+		try(final PGNReader reader = new PGNReader(new StringReader(pgn), false)) {
+			final List<PGNGame> games = readAll(reader);
+			assertEquals(games.size(), 2);
+			assertEquals(games.get(0).getTag("Event"), "First");
+			assertEquals(games.get(0).getTags().size(), 2);
+			assertEquals(games.get(0).getMoves(), Arrays.asList("e4", "e5", "Nf3", "Nc6"));
+			assertEquals(games.get(0).getResult(), "1-0");
+			assertEquals(games.get(1).getTag("Event"), "Second");
+			assertEquals(games.get(1).getMoves(), Arrays.asList("d4", "d5"));
+			assertEquals(reader.getGamesSkipped(), 0);
+		}
+	}
+	
+	@Test
+	public void testMalformedGameIsSkipped() throws IOException {
+		
+		final String pgn = "[Event \"First\"]\n\n1. e4 e5 1-0\n\n" +
+						   "[Event \"Broken\"]\n\n1. e4 (1. d4 e5 0-1\n\n" +
+						   "[Event \"Also broken\"]\n\n1. e4 e5) 2. Nf3 0-1\n\n" +
+						   "[Event \"Last\"]\n\n1. c4 *\n";
+		try(final PGNReader reader = new PGNReader(new StringReader(pgn), false)) {
+			final List<PGNGame> games = readAll(reader);
+			assertEquals(games.size(), 2);
+			assertEquals(games.get(0).getTag("Event"), "First");
+			assertEquals(games.get(1).getTag("Event"), "Last");
+			assertEquals(games.get(1).getMoves(), Collections.singletonList("c4"));
+			assertEquals(reader.getGamesRead(), 2);
+			assertEquals(reader.getGamesSkipped(), 2);
+		}
+		
+		try(final PGNReader reader = new PGNReader(new StringReader(pgn), true)) {
+			final List<PGNGame> games = readAll(reader);
+			assertEquals(games.size(), 4);
+			assertEquals(games.get(1).getTag("Event"), "Broken");
+			for(final PGNGame game : games) {
+				assertTrue(game.getMoves().isEmpty());
+			}
+			assertEquals(reader.getGamesSkipped(), 0);
+		}
+	}
+	
+	@Test
+	public void testSkimMode() throws IOException {
+		
+		final String pgn = "[White \"Carlsen, Magnus\"]\n[Black \"Say \\\"cheese\\\"\"]\n[Result \"0-1\"]\n\n" +
+						   "1. e4 {\n[Event \"Inside a comment\"]\n} e5 0-1\n\n" +
+						   "[White \"Second\"]\n[Result \"*\"]\n\n1. d4 *\n";
+		try(final PGNReader reader = new PGNReader(new StringReader(pgn), true)) {
+			final List<PGNGame> games = readAll(reader);
+			assertEquals(games.size(), 2);
+			assertEquals(games.get(0).getTag("White"), "Carlsen, Magnus");
+			assertEquals(games.get(0).getTag("Black"), "Say \"cheese\"");
+			assertNull(games.get(0).getTag("Event"));
+			assertEquals(games.get(0).getResult(), "0-1");
+			assertTrue(games.get(0).getMoves().isEmpty());
+			assertEquals(games.get(1).getTag("White"), "Second");
+			assertFalse(reader.hasNext());
+		}
+	}
+	
+	private static List<PGNGame> readAll(final PGNReader reader) {
+		
+		final List<PGNGame> games = new ArrayList<>();
+		while(reader.hasNext()) {
+			games.add(reader.next());
+		}
+		return games;
+	}
+}